@@ -0,0 +1,147 @@
+/*
+ * This file is derived from Burningwave Core.
+ *
+ * Author: Roberto Gentili
+ * 
+ * Hosted at: https://github.com/burningwave/core
+ * 
+ * Modified by: Luke Hutchison
+ *
+ * Modifications hosted at:  https://github.com/lukehutch/burningwave-reflection
+ *
+ * --
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Roberto Gentili
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT
+ * LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO
+ * EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package bwr.benchmark;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Field;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import bwr.FieldAccessor;
+import bwr.ReflectionDriver;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FieldAccessBenchmark {
+    private static final Field intField;
+    private static final Field objectField;
+    private static final FieldAccessor intFieldAccessor;
+    private static final MethodHandle intGetter;
+    private static final MethodHandle intSetter;
+
+    static {
+        try {
+            intField = Target.class.getDeclaredField("intValue");
+            intField.setAccessible(true);
+            objectField = Target.class.getDeclaredField("objectValue");
+            objectField.setAccessible(true);
+            intFieldAccessor = ReflectionDriver.getFieldAccessor(intField);
+            intGetter = MethodHandles.lookup().unreflectGetter(intField);
+            intSetter = MethodHandles.lookup().unreflectSetter(intField);
+        } catch (final ReflectiveOperationException exc) {
+            throw new ExceptionInInitializerError(exc);
+        }
+    }
+
+    private final Target target = new Target();
+    private int value = 7;
+
+    @Benchmark
+    public int getDirect() {
+        return target.intValue;
+    }
+
+    @Benchmark
+    public Object getFieldValue() {
+        return ReflectionDriver.getFieldValue(target, intField);
+    }
+
+    @Benchmark
+    public Object getObjectFieldValue() {
+        return ReflectionDriver.getFieldValue(target, objectField);
+    }
+
+    @Benchmark
+    public int getInt() {
+        return ReflectionDriver.getInt(target, intField);
+    }
+
+    @Benchmark
+    public int getIntFieldAccessor() {
+        return intFieldAccessor.getInt(target);
+    }
+
+    @Benchmark
+    public int getReflection() throws IllegalAccessException {
+        return intField.getInt(target);
+    }
+
+    @Benchmark
+    public int getMethodHandle() throws Throwable {
+        return (int) intGetter.invokeExact(target);
+    }
+
+    @Benchmark
+    public void setDirect() {
+        target.intValue = value;
+    }
+
+    @Benchmark
+    public void setFieldValue() {
+        ReflectionDriver.setFieldValue(target, intField, value);
+    }
+
+    @Benchmark
+    public void setInt() {
+        ReflectionDriver.setInt(target, intField, value);
+    }
+
+    @Benchmark
+    public void setIntFieldAccessor() {
+        intFieldAccessor.setInt(target, value);
+    }
+
+    @Benchmark
+    public void setReflection() throws IllegalAccessException {
+        intField.setInt(target, value);
+    }
+
+    @Benchmark
+    public void setMethodHandle() throws Throwable {
+        intSetter.invokeExact(target, value);
+    }
+}
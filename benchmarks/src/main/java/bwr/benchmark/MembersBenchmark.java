@@ -0,0 +1,100 @@
+/*
+ * This file is derived from Burningwave Core.
+ *
+ * Author: Roberto Gentili
+ * 
+ * Hosted at: https://github.com/burningwave/core
+ * 
+ * Modified by: Luke Hutchison
+ *
+ * Modifications hosted at:  https://github.com/lukehutch/burningwave-reflection
+ *
+ * --
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Roberto Gentili
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT
+ * LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO
+ * EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package bwr.benchmark;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import bwr.ReflectionDriver;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MembersBenchmark {
+    private final Class<?> cls = Target.class;
+
+    @Benchmark
+    public Field[] getDeclaredFields() {
+        return ReflectionDriver.getDeclaredFields(cls);
+    }
+
+    @Benchmark
+    public Field[] getDeclaredFieldsReflection() {
+        return cls.getDeclaredFields();
+    }
+
+    @Benchmark
+    public Field getDeclaredField() {
+        return ReflectionDriver.getDeclaredField(cls, "objectValue");
+    }
+
+    @Benchmark
+    public Field getDeclaredFieldReflection() throws NoSuchFieldException {
+        return cls.getDeclaredField("objectValue");
+    }
+
+    @Benchmark
+    public Method[] getDeclaredMethods() {
+        return ReflectionDriver.getDeclaredMethods(cls);
+    }
+
+    @Benchmark
+    public Method[] getDeclaredMethodsReflection() {
+        return cls.getDeclaredMethods();
+    }
+
+    @Benchmark
+    public Constructor<?>[] getDeclaredConstructors() {
+        return ReflectionDriver.getDeclaredConstructors(cls);
+    }
+
+    @Benchmark
+    public Constructor<?>[] getDeclaredConstructorsReflection() {
+        return cls.getDeclaredConstructors();
+    }
+}
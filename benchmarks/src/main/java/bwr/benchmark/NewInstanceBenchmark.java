@@ -0,0 +1,109 @@
+/*
+ * This file is derived from Burningwave Core.
+ *
+ * Author: Roberto Gentili
+ * 
+ * Hosted at: https://github.com/burningwave/core
+ * 
+ * Modified by: Luke Hutchison
+ *
+ * Modifications hosted at:  https://github.com/lukehutch/burningwave-reflection
+ *
+ * --
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Roberto Gentili
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT
+ * LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO
+ * EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package bwr.benchmark;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Constructor;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import bwr.Instantiator;
+import bwr.ReflectionDriver;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NewInstanceBenchmark {
+    private static final Constructor<Target> constructor;
+    private static final Instantiator<Target> instantiator;
+    private static final Instantiator<Target> allocatingInstantiator;
+    private static final MethodHandle methodHandle;
+
+    static {
+        try {
+            constructor = Target.class.getDeclaredConstructor(int.class);
+            constructor.setAccessible(true);
+            instantiator = ReflectionDriver.getInstantiator(constructor);
+            allocatingInstantiator = ReflectionDriver.getAllocatingInstantiator(Target.class);
+            methodHandle = MethodHandles.lookup().unreflectConstructor(constructor);
+        } catch (final ReflectiveOperationException exc) {
+            throw new ExceptionInInitializerError(exc);
+        }
+    }
+
+    private int value = 7;
+    private final Object[] arguments = { Integer.valueOf(7) };
+
+    @Benchmark
+    public Target direct() {
+        return new Target(value);
+    }
+
+    @Benchmark
+    public Target newInstance() {
+        return ReflectionDriver.newInstance(constructor, arguments);
+    }
+
+    @Benchmark
+    public Target instantiator() throws Throwable {
+        return instantiator.newInstance(arguments[0]);
+    }
+
+    @Benchmark
+    public Target allocatingInstantiator() throws Throwable {
+        return allocatingInstantiator.newInstance();
+    }
+
+    @Benchmark
+    public Target reflection() throws ReflectiveOperationException {
+        return constructor.newInstance(arguments);
+    }
+
+    @Benchmark
+    public Target methodHandle() throws Throwable {
+        return (Target) methodHandle.invokeExact(value);
+    }
+}
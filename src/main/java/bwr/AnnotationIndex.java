@@ -0,0 +1,227 @@
+/*
+ * This file is derived from Burningwave Core.
+ *
+ * Author: Roberto Gentili
+ * 
+ * Hosted at: https://github.com/burningwave/core
+ * 
+ * Modified by: Luke Hutchison
+ *
+ * Modifications hosted at:  https://github.com/lukehutch/burningwave-reflection
+ *
+ * --
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Roberto Gentili
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT
+ * LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO
+ * EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package bwr;
+
+import java.lang.annotation.Annotation;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Index by annotation type of the classes, methods and fields annotated by the classes loaded by a set of class
+ * loaders, kept up to date incrementally through a {@link LoadedClassCursor}. The classes loaded when the index is
+ * first queried are scanned in parallel, and each query only scans the classes loaded since the previous one. Only
+ * declared annotations are indexed, and classes are weakly referenced, so the index does not keep class loaders
+ * alive.
+ */
+public final class AnnotationIndex {
+    private static final Logger logger = Logger.getLogger(AnnotationIndex.class.getName());
+
+    /** The number of classes below which a scan is not split further. */
+    private static final int PARALLEL_THRESHOLD = 64;
+
+    private static final int CLASS = -1;
+
+    private final LoadedClassCursor cursor = new LoadedClassCursor();
+    // Keyed by name, so that annotation types are not strongly referenced either
+    private final ConcurrentMap<String, Annotated> annotatedByType = new ConcurrentHashMap<>();
+
+    AnnotationIndex() {
+    }
+
+    /** Starts indexing a class loader, if not already indexed. */
+    public void addClassLoader(final ClassLoader classLoader) {
+        cursor.addClassLoader(classLoader);
+    }
+
+    /** Starts indexing a class loader and all of its parents. */
+    public void addClassLoaderHierarchy(final ClassLoader classLoader) {
+        cursor.addClassLoaderHierarchy(classLoader);
+    }
+
+    /** Adds the annotations of the classes loaded since the last refresh to the index, and returns the classes. */
+    public List<Class<?>> refresh() {
+        synchronized (cursor) {
+            final List<Class<?>> loadedClasses = cursor.poll();
+            if (loadedClasses.size() < PARALLEL_THRESHOLD) {
+                for (final Class<?> cls : loadedClasses) {
+                    scan(cls);
+                }
+            } else {
+                ForkJoinPool.commonPool().invoke(new ScanTask(loadedClasses, 0, loadedClasses.size()));
+            }
+            return loadedClasses;
+        }
+    }
+
+    /** Returns the loaded classes annotated with the annotation type. */
+    public List<Class<?>> getAnnotatedClasses(final Class<? extends Annotation> annotationType) {
+        return get(annotationType, Kind.CLASSES);
+    }
+
+    /** Returns the methods of the loaded classes annotated with the annotation type. */
+    public List<Method> getAnnotatedMethods(final Class<? extends Annotation> annotationType) {
+        return get(annotationType, Kind.METHODS);
+    }
+
+    /** Returns the fields of the loaded classes annotated with the annotation type. */
+    public List<Field> getAnnotatedFields(final Class<? extends Annotation> annotationType) {
+        return get(annotationType, Kind.FIELDS);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends AnnotatedElement> List<T> get(final Class<? extends Annotation> annotationType,
+            final Kind kind) {
+        refresh();
+        final List<T> elements = new ArrayList<>();
+        final Annotated annotated = annotatedByType.get(annotationType.getName());
+        if (annotated == null) {
+            return elements;
+        }
+        for (final Iterator<Entry> iterator = annotated.get(kind).iterator(); iterator.hasNext();) {
+            final Entry entry = iterator.next();
+            final Class<?> cls = entry.get();
+            if (cls == null) {
+                iterator.remove();
+                continue;
+            }
+            final AnnotatedElement element = kind == Kind.CLASSES ? cls
+                    : kind == Kind.METHODS ? Members.of(cls).getDeclaredMethods()[entry.index]
+                            : Members.of(cls).getDeclaredFields()[entry.index];
+            // Another class loader may have loaded a distinct annotation type with the same name
+            if (element.isAnnotationPresent(annotationType)) {
+                elements.add((T) element);
+            }
+        }
+        return elements;
+    }
+
+    private void scan(final Class<?> cls) {
+        try {
+            for (final Annotation annotation : cls.getDeclaredAnnotations()) {
+                add(annotation, Kind.CLASSES, cls, CLASS);
+            }
+            final Field[] fields = Members.of(cls).getDeclaredFields();
+            for (int i = 0; i < fields.length; i++) {
+                for (final Annotation annotation : fields[i].getDeclaredAnnotations()) {
+                    add(annotation, Kind.FIELDS, cls, i);
+                }
+            }
+            final Method[] methods = Members.of(cls).getDeclaredMethods();
+            for (int i = 0; i < methods.length; i++) {
+                for (final Annotation annotation : methods[i].getDeclaredAnnotations()) {
+                    add(annotation, Kind.METHODS, cls, i);
+                }
+            }
+        } catch (final Throwable exc) {
+            // Classes whose members or annotations refer to missing classes cannot be indexed
+            logger.log(Level.FINE, "Could not index annotations of " + cls.getName(), exc);
+        }
+    }
+
+    private void add(final Annotation annotation, final Kind kind, final Class<?> cls, final int index) {
+        final String name = annotation.annotationType().getName();
+        Annotated annotated = annotatedByType.get(name);
+        if (annotated == null) {
+            final Annotated newAnnotated = new Annotated();
+            annotated = annotatedByType.putIfAbsent(name, newAnnotated);
+            if (annotated == null) {
+                annotated = newAnnotated;
+            }
+        }
+        annotated.get(kind).add(new Entry(cls, index));
+    }
+
+    private enum Kind {
+        CLASSES, METHODS, FIELDS
+    }
+
+    /** The classes and members annotated with the annotation types of a name. */
+    private static final class Annotated {
+        final Queue<Entry> classes = new ConcurrentLinkedQueue<>();
+        final Queue<Entry> methods = new ConcurrentLinkedQueue<>();
+        final Queue<Entry> fields = new ConcurrentLinkedQueue<>();
+
+        Queue<Entry> get(final Kind kind) {
+            return kind == Kind.CLASSES ? classes : kind == Kind.METHODS ? methods : fields;
+        }
+    }
+
+    /** An annotated class, or one of its members by index in its shared array of declared members. */
+    private static final class Entry extends WeakReference<Class<?>> {
+        final int index;
+
+        Entry(final Class<?> cls, final int index) {
+            super(cls);
+            this.index = index;
+        }
+    }
+
+    private final class ScanTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Class<?>> classes;
+        private final int from;
+        private final int to;
+
+        ScanTask(final List<Class<?>> classes, final int from, final int to) {
+            this.classes = classes;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from < PARALLEL_THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    scan(classes.get(i));
+                }
+            } else {
+                final int middle = (from + to) >>> 1;
+                invokeAll(new ScanTask(classes, from, middle), new ScanTask(classes, middle, to));
+            }
+        }
+    }
+}
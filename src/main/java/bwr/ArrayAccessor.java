@@ -0,0 +1,599 @@
+/*
+ * This file is derived from Burningwave Core.
+ *
+ * Author: Roberto Gentili
+ * 
+ * Hosted at: https://github.com/burningwave/core
+ * 
+ * Modified by: Luke Hutchison
+ *
+ * Modifications hosted at:  https://github.com/lukehutch/burningwave-reflection
+ *
+ * --
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Roberto Gentili
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT
+ * LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO
+ * EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package bwr;
+
+import java.lang.reflect.Array;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import sun.misc.Unsafe;
+
+/**
+ * Accessor for the elements of arrays of a single class, resolved once with the base offset and index scale of the
+ * class. Elements are read and written with {@link Unsafe} after one class check and one bounds check per call, and
+ * ranges of primitive elements are copied in bulk, to other arrays, to native memory or to buffers.
+ */
+public final class ArrayAccessor {
+    static final Unsafe unsafe = ReflectionDriver.unsafe;
+
+    private static final int BOOLEAN = 0;
+    private static final int BYTE = 1;
+    private static final int CHAR = 2;
+    private static final int SHORT = 3;
+    private static final int INT = 4;
+    private static final int LONG = 5;
+    private static final int FLOAT = 6;
+    private static final int DOUBLE = 7;
+    private static final int OBJECT = 8;
+
+    /** The number of elements converted at a time when copying between arrays of different primitive types. */
+    private static final int CHUNK_SIZE = 1024;
+
+    private static final ClassCache<ArrayAccessor> accessors = new ClassCache<ArrayAccessor>() {
+        @Override
+        ArrayAccessor compute(final Class<?> cls) {
+            return new ArrayAccessor(cls);
+        }
+    };
+
+    private final Class<?> arrayClass;
+    private final Class<?> componentType;
+    private final int kind;
+    private final long baseOffset;
+    private final int shift;
+
+    private ArrayAccessor(final Class<?> arrayClass) {
+        this.arrayClass = arrayClass;
+        this.componentType = arrayClass.getComponentType();
+        this.kind = kindOf(componentType);
+        this.baseOffset = unsafe.arrayBaseOffset(arrayClass);
+        this.shift = Integer.numberOfTrailingZeros(unsafe.arrayIndexScale(arrayClass));
+    }
+
+    /** Returns the accessor for arrays of the given class. */
+    public static ArrayAccessor of(final Class<?> arrayClass) {
+        if (!arrayClass.isArray()) {
+            throw new IllegalArgumentException(arrayClass.getName() + " is not an array class");
+        }
+        return accessors.get(arrayClass);
+    }
+
+    private static int kindOf(final Class<?> type) {
+        if (!type.isPrimitive()) {
+            return OBJECT;
+        } else if (type == boolean.class) {
+            return BOOLEAN;
+        } else if (type == byte.class) {
+            return BYTE;
+        } else if (type == char.class) {
+            return CHAR;
+        } else if (type == short.class) {
+            return SHORT;
+        } else if (type == int.class) {
+            return INT;
+        } else if (type == long.class) {
+            return LONG;
+        } else if (type == float.class) {
+            return FLOAT;
+        } else {
+            return DOUBLE;
+        }
+    }
+
+    public Class<?> getArrayClass() {
+        return arrayClass;
+    }
+
+    public int getLength(final Object array) {
+        return Array.getLength(checkArray(array));
+    }
+
+    /** Returns the element at the given index, boxed if primitive. */
+    public Object get(final Object array, final int index) {
+        final long offset = offset(array, index);
+        switch (kind) {
+        case BOOLEAN:
+            return Boolean.valueOf(unsafe.getBoolean(array, offset));
+        case BYTE:
+            return Byte.valueOf(unsafe.getByte(array, offset));
+        case CHAR:
+            return Character.valueOf(unsafe.getChar(array, offset));
+        case SHORT:
+            return Short.valueOf(unsafe.getShort(array, offset));
+        case INT:
+            return Integer.valueOf(unsafe.getInt(array, offset));
+        case LONG:
+            return Long.valueOf(unsafe.getLong(array, offset));
+        case FLOAT:
+            return Float.valueOf(unsafe.getFloat(array, offset));
+        case DOUBLE:
+            return Double.valueOf(unsafe.getDouble(array, offset));
+        default:
+            return unsafe.getObject(array, offset);
+        }
+    }
+
+    /** Sets the element at the given index, unboxing the value if the component type is primitive. */
+    public void set(final Object array, final int index, final Object value) {
+        final long offset = offset(array, index);
+        try {
+            switch (kind) {
+            case BOOLEAN:
+                unsafe.putBoolean(array, offset, ((Boolean) value).booleanValue());
+                break;
+            case BYTE:
+                unsafe.putByte(array, offset, ((Byte) value).byteValue());
+                break;
+            case CHAR:
+                unsafe.putChar(array, offset, ((Character) value).charValue());
+                break;
+            case SHORT:
+                unsafe.putShort(array, offset, ((Short) value).shortValue());
+                break;
+            case INT:
+                unsafe.putInt(array, offset, ((Integer) value).intValue());
+                break;
+            case LONG:
+                unsafe.putLong(array, offset, ((Long) value).longValue());
+                break;
+            case FLOAT:
+                unsafe.putFloat(array, offset, ((Float) value).floatValue());
+                break;
+            case DOUBLE:
+                unsafe.putDouble(array, offset, ((Double) value).doubleValue());
+                break;
+            default:
+                // The array may be of a subclass of the accessed class, so its own component type is checked
+                if (value != null && !array.getClass().getComponentType().isInstance(value)) {
+                    throw notAssignable(value);
+                }
+                unsafe.putObject(array, offset, value);
+            }
+        } catch (final ClassCastException | NullPointerException exc) {
+            throw notAssignable(value);
+        }
+    }
+
+    public boolean getBoolean(final Object array, final int index) {
+        checkKind(BOOLEAN);
+        return unsafe.getBoolean(array, offset(array, index));
+    }
+
+    public void setBoolean(final Object array, final int index, final boolean value) {
+        checkKind(BOOLEAN);
+        unsafe.putBoolean(array, offset(array, index), value);
+    }
+
+    public byte getByte(final Object array, final int index) {
+        checkKind(BYTE);
+        return unsafe.getByte(array, offset(array, index));
+    }
+
+    public void setByte(final Object array, final int index, final byte value) {
+        checkKind(BYTE);
+        unsafe.putByte(array, offset(array, index), value);
+    }
+
+    public char getChar(final Object array, final int index) {
+        checkKind(CHAR);
+        return unsafe.getChar(array, offset(array, index));
+    }
+
+    public void setChar(final Object array, final int index, final char value) {
+        checkKind(CHAR);
+        unsafe.putChar(array, offset(array, index), value);
+    }
+
+    public short getShort(final Object array, final int index) {
+        checkKind(SHORT);
+        return unsafe.getShort(array, offset(array, index));
+    }
+
+    public void setShort(final Object array, final int index, final short value) {
+        checkKind(SHORT);
+        unsafe.putShort(array, offset(array, index), value);
+    }
+
+    public int getInt(final Object array, final int index) {
+        checkKind(INT);
+        return unsafe.getInt(array, offset(array, index));
+    }
+
+    public void setInt(final Object array, final int index, final int value) {
+        checkKind(INT);
+        unsafe.putInt(array, offset(array, index), value);
+    }
+
+    public long getLong(final Object array, final int index) {
+        checkKind(LONG);
+        return unsafe.getLong(array, offset(array, index));
+    }
+
+    public void setLong(final Object array, final int index, final long value) {
+        checkKind(LONG);
+        unsafe.putLong(array, offset(array, index), value);
+    }
+
+    public float getFloat(final Object array, final int index) {
+        checkKind(FLOAT);
+        return unsafe.getFloat(array, offset(array, index));
+    }
+
+    public void setFloat(final Object array, final int index, final float value) {
+        checkKind(FLOAT);
+        unsafe.putFloat(array, offset(array, index), value);
+    }
+
+    public double getDouble(final Object array, final int index) {
+        checkKind(DOUBLE);
+        return unsafe.getDouble(array, offset(array, index));
+    }
+
+    public void setDouble(final Object array, final int index, final double value) {
+        checkKind(DOUBLE);
+        unsafe.putDouble(array, offset(array, index), value);
+    }
+
+    /** Sets the elements from fromIndex, inclusive, to toIndex, exclusive, to the value, unboxed once. */
+    public void fill(final Object array, final int fromIndex, final int toIndex, final Object value) {
+        checkArray(array);
+        try {
+            switch (kind) {
+            case BOOLEAN:
+                Arrays.fill((boolean[]) array, fromIndex, toIndex, ((Boolean) value).booleanValue());
+                break;
+            case BYTE:
+                Arrays.fill((byte[]) array, fromIndex, toIndex, ((Byte) value).byteValue());
+                break;
+            case CHAR:
+                Arrays.fill((char[]) array, fromIndex, toIndex, ((Character) value).charValue());
+                break;
+            case SHORT:
+                Arrays.fill((short[]) array, fromIndex, toIndex, ((Short) value).shortValue());
+                break;
+            case INT:
+                Arrays.fill((int[]) array, fromIndex, toIndex, ((Integer) value).intValue());
+                break;
+            case LONG:
+                Arrays.fill((long[]) array, fromIndex, toIndex, ((Long) value).longValue());
+                break;
+            case FLOAT:
+                Arrays.fill((float[]) array, fromIndex, toIndex, ((Float) value).floatValue());
+                break;
+            case DOUBLE:
+                Arrays.fill((double[]) array, fromIndex, toIndex, ((Double) value).doubleValue());
+                break;
+            default:
+                Arrays.fill((Object[]) array, fromIndex, toIndex, value);
+            }
+        } catch (final ClassCastException | NullPointerException | ArrayStoreException exc) {
+            throw notAssignable(value);
+        }
+    }
+
+    /** Copies length primitive elements from the index of the array to native memory at the given address. */
+    public void copyToMemory(final Object array, final int index, final int length, final long address) {
+        checkPrimitive();
+        unsafe.copyMemory(array, offset(array, index, length), null, address, (long) length << shift);
+    }
+
+    /** Copies length primitive elements from native memory at the given address to the index of the array. */
+    public void copyFromMemory(final long address, final Object array, final int index, final int length) {
+        checkPrimitive();
+        unsafe.copyMemory(null, address, array, offset(array, index, length), (long) length << shift);
+    }
+
+    /**
+     * Writes length primitive elements from the index of the array to the buffer, in the byte order of the buffer,
+     * and advances its position. Booleans are written as one byte each, 1 for true and 0 for false.
+     */
+    public void get(final Object array, final int index, final int length, final ByteBuffer buffer) {
+        checkPrimitive();
+        offset(array, index, length);
+        final int position = buffer.position();
+        switch (kind) {
+        case BOOLEAN:
+            final boolean[] booleans = (boolean[]) array;
+            for (int i = index, end = index + length; i < end; i++) {
+                buffer.put((byte) (booleans[i] ? 1 : 0));
+            }
+            return;
+        case BYTE:
+            buffer.put((byte[]) array, index, length);
+            return;
+        case CHAR:
+            buffer.asCharBuffer().put((char[]) array, index, length);
+            break;
+        case SHORT:
+            buffer.asShortBuffer().put((short[]) array, index, length);
+            break;
+        case INT:
+            buffer.asIntBuffer().put((int[]) array, index, length);
+            break;
+        case LONG:
+            buffer.asLongBuffer().put((long[]) array, index, length);
+            break;
+        case FLOAT:
+            buffer.asFloatBuffer().put((float[]) array, index, length);
+            break;
+        default:
+            buffer.asDoubleBuffer().put((double[]) array, index, length);
+        }
+        ((Buffer) buffer).position(position + (length << shift));
+    }
+
+    /**
+     * Reads length primitive elements from the buffer into the index of the array, in the byte order of the buffer,
+     * and advances its position. Booleans are read as one byte each, true unless 0.
+     */
+    public void put(final ByteBuffer buffer, final Object array, final int index, final int length) {
+        checkPrimitive();
+        offset(array, index, length);
+        final int position = buffer.position();
+        switch (kind) {
+        case BOOLEAN:
+            final boolean[] booleans = (boolean[]) array;
+            for (int i = index, end = index + length; i < end; i++) {
+                booleans[i] = buffer.get() != 0;
+            }
+            return;
+        case BYTE:
+            buffer.get((byte[]) array, index, length);
+            return;
+        case CHAR:
+            buffer.asCharBuffer().get((char[]) array, index, length);
+            break;
+        case SHORT:
+            buffer.asShortBuffer().get((short[]) array, index, length);
+            break;
+        case INT:
+            buffer.asIntBuffer().get((int[]) array, index, length);
+            break;
+        case LONG:
+            buffer.asLongBuffer().get((long[]) array, index, length);
+            break;
+        case FLOAT:
+            buffer.asFloatBuffer().get((float[]) array, index, length);
+            break;
+        default:
+            buffer.asDoubleBuffer().get((double[]) array, index, length);
+        }
+        ((Buffer) buffer).position(position + (length << shift));
+    }
+
+    /**
+     * Copies length elements from the source array to the destination array, like {@link System#arraycopy}, but
+     * also between arrays of different numeric primitive types, converting each element as a cast would.
+     */
+    public static void copy(final Object source, final int sourceIndex, final Object destination,
+            final int destinationIndex, final int length) {
+        final ArrayAccessor sourceAccessor = of(source.getClass());
+        final ArrayAccessor destinationAccessor = of(destination.getClass());
+        if (sourceAccessor.kind == destinationAccessor.kind) {
+            System.arraycopy(source, sourceIndex, destination, destinationIndex, length);
+            return;
+        }
+        if (sourceAccessor.kind == OBJECT || sourceAccessor.kind == BOOLEAN || destinationAccessor.kind == OBJECT
+                || destinationAccessor.kind == BOOLEAN) {
+            throw new IllegalArgumentException("Cannot convert " + source.getClass().getName() + " to "
+                    + destination.getClass().getName());
+        }
+        sourceAccessor.offset(source, sourceIndex, length);
+        destinationAccessor.offset(destination, destinationIndex, length);
+        // Integral values go through longs and floating point values through doubles, which hold them exactly
+        if (sourceAccessor.kind == FLOAT || sourceAccessor.kind == DOUBLE) {
+            final double[] chunk = new double[Math.min(length, CHUNK_SIZE)];
+            for (int done = 0; done < length; done += chunk.length) {
+                final int count = Math.min(chunk.length, length - done);
+                sourceAccessor.read(source, sourceIndex + done, chunk, count);
+                destinationAccessor.write(chunk, count, destination, destinationIndex + done);
+            }
+        } else {
+            final long[] chunk = new long[Math.min(length, CHUNK_SIZE)];
+            for (int done = 0; done < length; done += chunk.length) {
+                final int count = Math.min(chunk.length, length - done);
+                sourceAccessor.read(source, sourceIndex + done, chunk, count);
+                destinationAccessor.write(chunk, count, destination, destinationIndex + done);
+            }
+        }
+    }
+
+    private void read(final Object array, final int index, final long[] chunk, final int count) {
+        switch (kind) {
+        case BYTE:
+            final byte[] bytes = (byte[]) array;
+            for (int i = 0; i < count; i++) {
+                chunk[i] = bytes[index + i];
+            }
+            break;
+        case CHAR:
+            final char[] chars = (char[]) array;
+            for (int i = 0; i < count; i++) {
+                chunk[i] = chars[index + i];
+            }
+            break;
+        case SHORT:
+            final short[] shorts = (short[]) array;
+            for (int i = 0; i < count; i++) {
+                chunk[i] = shorts[index + i];
+            }
+            break;
+        case INT:
+            final int[] ints = (int[]) array;
+            for (int i = 0; i < count; i++) {
+                chunk[i] = ints[index + i];
+            }
+            break;
+        default:
+            System.arraycopy(array, index, chunk, 0, count);
+        }
+    }
+
+    private void read(final Object array, final int index, final double[] chunk, final int count) {
+        if (kind == FLOAT) {
+            final float[] floats = (float[]) array;
+            for (int i = 0; i < count; i++) {
+                chunk[i] = floats[index + i];
+            }
+        } else {
+            System.arraycopy(array, index, chunk, 0, count);
+        }
+    }
+
+    private void write(final long[] chunk, final int count, final Object array, final int index) {
+        switch (kind) {
+        case BYTE:
+            final byte[] bytes = (byte[]) array;
+            for (int i = 0; i < count; i++) {
+                bytes[index + i] = (byte) chunk[i];
+            }
+            break;
+        case CHAR:
+            final char[] chars = (char[]) array;
+            for (int i = 0; i < count; i++) {
+                chars[index + i] = (char) chunk[i];
+            }
+            break;
+        case SHORT:
+            final short[] shorts = (short[]) array;
+            for (int i = 0; i < count; i++) {
+                shorts[index + i] = (short) chunk[i];
+            }
+            break;
+        case INT:
+            final int[] ints = (int[]) array;
+            for (int i = 0; i < count; i++) {
+                ints[index + i] = (int) chunk[i];
+            }
+            break;
+        case LONG:
+            System.arraycopy(chunk, 0, array, index, count);
+            break;
+        case FLOAT:
+            final float[] floats = (float[]) array;
+            for (int i = 0; i < count; i++) {
+                floats[index + i] = chunk[i];
+            }
+            break;
+        default:
+            final double[] doubles = (double[]) array;
+            for (int i = 0; i < count; i++) {
+                doubles[index + i] = chunk[i];
+            }
+        }
+    }
+
+    private void write(final double[] chunk, final int count, final Object array, final int index) {
+        switch (kind) {
+        case BYTE:
+            final byte[] bytes = (byte[]) array;
+            for (int i = 0; i < count; i++) {
+                bytes[index + i] = (byte) (int) chunk[i];
+            }
+            break;
+        case CHAR:
+            final char[] chars = (char[]) array;
+            for (int i = 0; i < count; i++) {
+                chars[index + i] = (char) (int) chunk[i];
+            }
+            break;
+        case SHORT:
+            final short[] shorts = (short[]) array;
+            for (int i = 0; i < count; i++) {
+                shorts[index + i] = (short) (int) chunk[i];
+            }
+            break;
+        case INT:
+            final int[] ints = (int[]) array;
+            for (int i = 0; i < count; i++) {
+                ints[index + i] = (int) chunk[i];
+            }
+            break;
+        case LONG:
+            final long[] longs = (long[]) array;
+            for (int i = 0; i < count; i++) {
+                longs[index + i] = (long) chunk[i];
+            }
+            break;
+        case FLOAT:
+            final float[] floats = (float[]) array;
+            for (int i = 0; i < count; i++) {
+                floats[index + i] = (float) chunk[i];
+            }
+            break;
+        default:
+            System.arraycopy(chunk, 0, array, index, count);
+        }
+    }
+
+    private Object checkArray(final Object array) {
+        // Arrays of primitives have exactly the accessed class, arrays of references may be of a subclass of it
+        if (array == null || array.getClass() != arrayClass && (kind != OBJECT || !arrayClass.isInstance(array))) {
+            throw new IllegalArgumentException("Array " + array + " is not an instance of " + arrayClass.getName());
+        }
+        return array;
+    }
+
+    private long offset(final Object array, final int index) {
+        if (index < 0 || index >= Array.getLength(checkArray(array))) {
+            throw new ArrayIndexOutOfBoundsException(index);
+        }
+        return baseOffset + ((long) index << shift);
+    }
+
+    private long offset(final Object array, final int index, final int length) {
+        if (index < 0 || length < 0 || index > Array.getLength(checkArray(array)) - length) {
+            throw new ArrayIndexOutOfBoundsException("Range [" + index + ", " + index + " + " + length
+                    + ") out of bounds for length " + Array.getLength(array));
+        }
+        return baseOffset + ((long) index << shift);
+    }
+
+    private void checkKind(final int kind) {
+        if (this.kind != kind) {
+            throw new RuntimeException("Component type " + componentType.getName() + " of " + arrayClass.getName()
+                    + " is not of the requested type");
+        }
+    }
+
+    private void checkPrimitive() {
+        if (kind == OBJECT) {
+            throw new RuntimeException("Component type " + componentType.getName() + " is not primitive");
+        }
+    }
+
+    private RuntimeException notAssignable(final Object value) {
+        return new RuntimeException("Value " + value + " is not assignable to an element of " + arrayClass.getName());
+    }
+}
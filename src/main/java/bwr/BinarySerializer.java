@@ -0,0 +1,1074 @@
+/*
+ * This file is derived from Burningwave Core.
+ *
+ * Author: Roberto Gentili
+ * 
+ * Hosted at: https://github.com/burningwave/core
+ * 
+ * Modified by: Luke Hutchison
+ *
+ * Modifications hosted at:  https://github.com/lukehutch/burningwave-reflection
+ *
+ * --
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Roberto Gentili
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT
+ * LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO
+ * EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package bwr;
+
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.GenericSignatureFormatError;
+import java.lang.reflect.MalformedParameterizedTypeException;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.lang.reflect.WildcardType;
+import java.nio.Buffer;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import sun.misc.Unsafe;
+
+/**
+ * Binary serializer driven by a schema compiled once per class from its declared fields. Primitive fields are
+ * copied between field offsets and the buffer without boxing, and instances are allocated on decode without
+ * running any constructor. Static and transient fields are skipped.
+ *
+ * <p>
+ * Strings, primitive wrappers, enums (by ordinal), arrays, collections and maps (by their elements) are
+ * supported, as are nested objects of any other class. A reference whose class differs from the declared type
+ * of the field is preceded by its class name, which must be reachable from the schema through the declared or
+ * generic types of its fields, or permitted explicitly with {@link #of(Class, Class...)}: no other class is
+ * resolved or instantiated when reading. Object graphs must be trees: shared references are written once per
+ * reference, and cycles are not supported. Collections and maps are recreated through their no-arg constructor,
+ * or as a standard implementation of their interface if they have none.
+ *
+ * <p>
+ * The fingerprint of a serializer hashes the names and types of the fields of all classes reachable through the
+ * schema, and is checked at the start of a stream to reject data written with a different schema.
+ */
+@SuppressWarnings("unchecked")
+public final class BinarySerializer<T> {
+    private static final Unsafe unsafe = ReflectionDriver.unsafe;
+
+    private static final byte NULL = 0;
+    private static final byte DECLARED_CLASS = 1;
+    private static final byte NAMED_CLASS = 2;
+    private static final byte FIRST_WELL_KNOWN_CLASS = 3;
+
+    /** Classes written as a one-byte tag instead of by name, when they are not the declared type. */
+    private static final Class<?>[] wellKnownClasses = { String.class, Integer.class, Long.class, Double.class,
+            Float.class, Short.class, Byte.class, Character.class, Boolean.class, ArrayList.class,
+            LinkedList.class, HashMap.class, LinkedHashMap.class, TreeMap.class, HashSet.class,
+            LinkedHashSet.class, TreeSet.class, Object[].class, int[].class, long[].class, double[].class,
+            byte[].class };
+    private static final Map<Class<?>, Byte> wellKnownClassTags = new IdentityHashMap<>();
+
+    static {
+        for (int i = 0; i < wellKnownClasses.length; i++) {
+            wellKnownClassTags.put(wellKnownClasses[i], (byte) (FIRST_WELL_KNOWN_CLASS + i));
+        }
+    }
+
+    private static final byte END_OF_STREAM = 0;
+    private static final byte ELEMENT = 1;
+
+    private static final ClassCache<Codec> codecs = new ClassCache<Codec>() {
+        @Override
+        Codec compute(final Class<?> cls) {
+            return createCodec(cls);
+        }
+    };
+
+    private static final ClassCache<BinarySerializer<?>> serializers = new ClassCache<BinarySerializer<?>>() {
+        @Override
+        BinarySerializer<?> compute(final Class<?> cls) {
+            return new BinarySerializer<>(cls);
+        }
+    };
+
+    private final Class<T> cls;
+    private final ReferenceCodec codec;
+    /** Classes that may be named in a stream, by name. */
+    private final Map<String, Class<?>> namedClasses = new HashMap<>();
+    private volatile long fingerprint;
+
+    private BinarySerializer(final Class<T> cls, final Class<?>... permittedClasses) {
+        this.cls = cls;
+        this.codec = new ReferenceCodec(cls);
+        final Set<Type> visited = new HashSet<>();
+        addNamedClasses(cls, visited);
+        for (final Class<?> permittedClass : permittedClasses) {
+            addNamedClasses(permittedClass, visited);
+        }
+    }
+
+    /** Returns the serializer of the class, compiling its schema on first use. */
+    public static <T> BinarySerializer<T> of(final Class<T> cls) {
+        return (BinarySerializer<T>) serializers.get(cls);
+    }
+
+    /**
+     * Returns a new serializer of the class, which may also name the permitted classes, and the classes reachable
+     * from them, in its streams. This is needed for the values of fields whose class cannot be inferred from the
+     * schema, such as subclasses of the declared type of a field. The fingerprint is the same as that of
+     * {@link #of(Class)}.
+     */
+    public static <T> BinarySerializer<T> of(final Class<T> cls, final Class<?>... permittedClasses) {
+        return new BinarySerializer<>(cls, permittedClasses);
+    }
+
+    public Class<T> getSerializedClass() {
+        return cls;
+    }
+
+    /** Returns a hash of the schema of this class and of all classes reachable through its fields. */
+    public long getFingerprint() {
+        long fingerprint = this.fingerprint;
+        if (fingerprint == 0) {
+            final Fingerprint hash = new Fingerprint();
+            hash.add(cls);
+            this.fingerprint = fingerprint = hash.value;
+        }
+        return fingerprint;
+    }
+
+    /**
+     * Writes the object at the position of the buffer, and advances the position. The object may be null or an
+     * instance of a subclass.
+     *
+     * @throws BufferOverflowException
+     *             if the buffer is too small, in which case its position is undefined
+     */
+    public void write(final T object, final ByteBuffer buffer) {
+        codec.write(object, buffer, this);
+    }
+
+    /** Reads an object written by {@link #write(Object, ByteBuffer)} at the position of the buffer. */
+    public T read(final ByteBuffer buffer) {
+        return (T) codec.read(buffer, this);
+    }
+
+    /**
+     * Returns a writer that streams objects through the buffer into the channel, preceded by the fingerprint of
+     * this serializer. Each object must fit in the buffer.
+     */
+    public StreamWriter<T> newWriter(final WritableByteChannel channel, final ByteBuffer buffer) throws IOException {
+        return new StreamWriter<>(this, channel, buffer);
+    }
+
+    /**
+     * Returns a reader over the objects streamed by a {@link StreamWriter} from the channel, through the buffer,
+     * which must be at least as large as the buffer of the writer.
+     *
+     * @throws IllegalStateException
+     *             if the stream was written with a different schema
+     */
+    public StreamReader<T> newReader(final ReadableByteChannel channel, final ByteBuffer buffer)
+            throws IOException {
+        return new StreamReader<>(this, channel, buffer);
+    }
+
+    /** Streams all the objects into the channel through the buffer. */
+    public void writeAll(final Iterable<? extends T> objects, final WritableByteChannel channel,
+            final ByteBuffer buffer) throws IOException {
+        final StreamWriter<T> writer = newWriter(channel, buffer);
+        for (final T object : objects) {
+            writer.write(object);
+        }
+        writer.close();
+    }
+
+    /** Writes objects into a channel through a buffer, flushing the buffer whenever the next object does not fit. */
+    public static final class StreamWriter<T> {
+        private final BinarySerializer<T> serializer;
+        private final WritableByteChannel channel;
+        private final ByteBuffer buffer;
+
+        StreamWriter(final BinarySerializer<T> serializer, final WritableByteChannel channel,
+                final ByteBuffer buffer) throws IOException {
+            this.serializer = serializer;
+            this.channel = channel;
+            this.buffer = buffer;
+            ((Buffer) buffer).clear();
+            buffer.putLong(serializer.getFingerprint());
+        }
+
+        public void write(final T object) throws IOException {
+            final int start = buffer.position();
+            try {
+                buffer.put(ELEMENT);
+                serializer.write(object, buffer);
+            } catch (final BufferOverflowException exc) {
+                if (start == 0) {
+                    throw new IllegalArgumentException("Object does not fit in a buffer of " + buffer.capacity()
+                            + " bytes", exc);
+                }
+                ((Buffer) buffer).position(start);
+                flush();
+                write(object);
+            }
+        }
+
+        /** Writes the buffered objects to the channel. */
+        public void flush() throws IOException {
+            ((Buffer) buffer).flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            ((Buffer) buffer).clear();
+        }
+
+        /** Marks the end of the stream and flushes, without closing the channel. */
+        public void close() throws IOException {
+            if (!buffer.hasRemaining()) {
+                flush();
+            }
+            buffer.put(END_OF_STREAM);
+            flush();
+        }
+    }
+
+    /** Reads objects from a channel through a buffer, refilling the buffer whenever the next object is incomplete. */
+    public static final class StreamReader<T> implements Iterator<T> {
+        private final BinarySerializer<T> serializer;
+        private final ReadableByteChannel channel;
+        private final ByteBuffer buffer;
+        private boolean endOfChannel;
+        private boolean endOfStream;
+
+        StreamReader(final BinarySerializer<T> serializer, final ReadableByteChannel channel,
+                final ByteBuffer buffer) throws IOException {
+            this.serializer = serializer;
+            this.channel = channel;
+            this.buffer = buffer;
+            ((Buffer) buffer).clear();
+            ((Buffer) buffer).flip();
+            while (buffer.remaining() < 8) {
+                fill();
+            }
+            final long fingerprint = buffer.getLong();
+            if (fingerprint != serializer.getFingerprint()) {
+                throw new IllegalStateException("Stream was written with a different schema for "
+                        + serializer.cls.getName());
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (endOfStream) {
+                return false;
+            }
+            try {
+                while (!buffer.hasRemaining()) {
+                    fill();
+                }
+            } catch (final IOException exc) {
+                throw new RuntimeException(exc);
+            }
+            if (buffer.get(buffer.position()) == END_OF_STREAM) {
+                endOfStream = true;
+            }
+            return !endOfStream;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            while (true) {
+                final int start = buffer.position();
+                try {
+                    buffer.get();
+                    return serializer.read(buffer);
+                } catch (final BufferUnderflowException exc) {
+                    ((Buffer) buffer).position(start);
+                    try {
+                        fill();
+                    } catch (final IOException ioExc) {
+                        throw new RuntimeException(ioExc);
+                    }
+                }
+            }
+        }
+
+        /** Moves the unread bytes to the start of the buffer and reads more from the channel. */
+        private void fill() throws IOException {
+            if (endOfChannel || buffer.remaining() == buffer.capacity()) {
+                throw new IllegalStateException("Truncated stream, or object larger than the buffer");
+            }
+            buffer.compact();
+            final int read = channel.read(buffer);
+            ((Buffer) buffer).flip();
+            if (read < 0) {
+                endOfChannel = true;
+            }
+        }
+    }
+
+    /** Adds the type, and the types reachable through its fields, type arguments and bounds, to the named classes. */
+    private void addNamedClasses(final Type type, final Set<Type> visited) {
+        if (!visited.add(type)) {
+            return;
+        }
+        if (type instanceof Class) {
+            final Class<?> cls = (Class<?>) type;
+            if (cls.isPrimitive()) {
+                return;
+            }
+            if (!hasSchema(cls) || !Modifier.isAbstract(cls.getModifiers())) {
+                namedClasses.put(cls.getName(), cls);
+            }
+            if (cls.isArray()) {
+                addNamedClasses(cls.getComponentType(), visited);
+            } else if (cls.isEnum()) {
+                // Constants with a body are instances of an anonymous subclass
+                for (final Object constant : cls.getEnumConstants()) {
+                    addNamedClasses(constant.getClass(), visited);
+                }
+            } else if (hasSchema(cls)) {
+                for (final Field field : schemaFields(cls)) {
+                    addNamedClasses(field.getType(), visited);
+                    try {
+                        addNamedClasses(field.getGenericType(), visited);
+                    } catch (final TypeNotPresentException | MalformedParameterizedTypeException
+                            | GenericSignatureFormatError exc) {
+                        // The erased type is enough
+                    }
+                }
+            }
+        } else if (type instanceof ParameterizedType) {
+            addNamedClasses(((ParameterizedType) type).getRawType(), visited);
+            for (final Type argument : ((ParameterizedType) type).getActualTypeArguments()) {
+                addNamedClasses(argument, visited);
+            }
+        } else if (type instanceof GenericArrayType) {
+            addNamedClasses(((GenericArrayType) type).getGenericComponentType(), visited);
+        } else if (type instanceof WildcardType) {
+            for (final Type bound : ((WildcardType) type).getUpperBounds()) {
+                addNamedClasses(bound, visited);
+            }
+        } else if (type instanceof TypeVariable) {
+            for (final Type bound : ((TypeVariable<?>) type).getBounds()) {
+                addNamedClasses(bound, visited);
+            }
+        }
+    }
+
+    static Codec codecOf(final Class<?> cls) {
+        return codecs.get(cls);
+    }
+
+    private static Codec createCodec(final Class<?> cls) {
+        if (cls == String.class) {
+            return new StringCodec();
+        } else if (isBox(cls)) {
+            return new BoxCodec(cls);
+        } else if (Enum.class.isAssignableFrom(cls) && cls != Enum.class) {
+            return new EnumCodec(cls.isEnum() ? cls : cls.getSuperclass());
+        } else if (cls.isArray()) {
+            return cls.getComponentType().isPrimitive() ? new PrimitiveArrayCodec(cls)
+                    : new ObjectArrayCodec(cls.getComponentType());
+        } else if (Collection.class.isAssignableFrom(cls)) {
+            return new CollectionCodec(cls);
+        } else if (Map.class.isAssignableFrom(cls)) {
+            return new MapCodec(cls);
+        } else {
+            return new SchemaCodec(cls);
+        }
+    }
+
+    private static boolean isBox(final Class<?> cls) {
+        return cls == Integer.class || cls == Long.class || cls == Double.class || cls == Float.class
+                || cls == Short.class || cls == Byte.class || cls == Character.class || cls == Boolean.class;
+    }
+
+    /** Returns whether values of the class are written field by field, rather than by a dedicated codec. */
+    private static boolean hasSchema(final Class<?> cls) {
+        return cls != String.class && !isBox(cls) && !Enum.class.isAssignableFrom(cls) && !cls.isArray()
+                && !Collection.class.isAssignableFrom(cls) && !Map.class.isAssignableFrom(cls);
+    }
+
+    /** Writes and reads non-null values of one class. */
+    abstract static class Codec {
+        abstract void write(Object value, ByteBuffer buffer, BinarySerializer<?> serializer);
+
+        abstract Object read(ByteBuffer buffer, BinarySerializer<?> serializer);
+    }
+
+    /** Writes and reads possibly null values of a declared type, naming their class if it is not the declared one. */
+    static final class ReferenceCodec {
+        private final Class<?> declaredClass;
+        private volatile Codec declaredCodec;
+
+        ReferenceCodec(final Class<?> declaredClass) {
+            this.declaredClass = declaredClass;
+        }
+
+        void write(final Object value, final ByteBuffer buffer, final BinarySerializer<?> serializer) {
+            if (value == null) {
+                buffer.put(NULL);
+                return;
+            }
+            final Class<?> cls = value.getClass();
+            if (cls == declaredClass) {
+                buffer.put(DECLARED_CLASS);
+                getDeclaredCodec().write(value, buffer, serializer);
+                return;
+            }
+            final Byte tag = wellKnownClassTags.get(cls);
+            if (tag != null) {
+                buffer.put(tag.byteValue());
+            } else if (serializer.namedClasses.get(cls.getName()) == cls) {
+                buffer.put(NAMED_CLASS);
+                StringCodec.writeString(cls.getName(), buffer);
+            } else {
+                throw new IllegalArgumentException(cls.getName() + " is not reachable from the schema of "
+                        + serializer.cls.getName() + ", and must be permitted when obtaining the serializer");
+            }
+            codecOf(cls).write(value, buffer, serializer);
+        }
+
+        Object read(final ByteBuffer buffer, final BinarySerializer<?> serializer) {
+            final byte tag = buffer.get();
+            final Class<?> cls;
+            if (tag == NULL) {
+                return null;
+            } else if (tag == DECLARED_CLASS) {
+                return getDeclaredCodec().read(buffer, serializer);
+            } else if (tag == NAMED_CLASS) {
+                final String name = StringCodec.readString(buffer);
+                cls = serializer.namedClasses.get(name);
+                if (cls == null) {
+                    throw new IllegalStateException("Malformed stream: class " + name
+                            + " is not reachable from the schema of " + serializer.cls.getName());
+                }
+            } else if (tag >= FIRST_WELL_KNOWN_CLASS && tag < FIRST_WELL_KNOWN_CLASS + wellKnownClasses.length) {
+                cls = wellKnownClasses[tag - FIRST_WELL_KNOWN_CLASS];
+            } else {
+                throw new IllegalStateException("Malformed stream: unknown tag " + tag);
+            }
+            if (!declaredClass.isAssignableFrom(cls)) {
+                throw new IllegalStateException("Malformed stream: " + cls.getName() + " is not assignable to "
+                        + declaredClass.getName());
+            }
+            return codecOf(cls).read(buffer, serializer);
+        }
+
+        private Codec getDeclaredCodec() {
+            Codec declaredCodec = this.declaredCodec;
+            if (declaredCodec == null) {
+                // Resolved lazily, so that recursive schemas do not recurse while compiling
+                this.declaredCodec = declaredCodec = codecOf(declaredClass);
+            }
+            return declaredCodec;
+        }
+    }
+
+    static final class SchemaCodec extends Codec {
+        private final Class<?> cls;
+        private final FieldCodec[] fieldCodecs;
+
+        SchemaCodec(final Class<?> cls) {
+            this.cls = cls;
+            final List<FieldCodec> fieldCodecs = new ArrayList<>();
+            for (final Field field : schemaFields(cls)) {
+                final long offset;
+                try {
+                    offset = unsafe.objectFieldOffset(field);
+                } catch (final UnsupportedOperationException exc) {
+                    throw new IllegalArgumentException("Class " + cls.getName() + " cannot be serialized", exc);
+                }
+                fieldCodecs.add(FieldCodec.create(field.getType(), offset));
+            }
+            this.fieldCodecs = fieldCodecs.toArray(new FieldCodec[fieldCodecs.size()]);
+        }
+
+        @Override
+        void write(final Object value, final ByteBuffer buffer, final BinarySerializer<?> serializer) {
+            for (final FieldCodec fieldCodec : fieldCodecs) {
+                fieldCodec.write(value, buffer, serializer);
+            }
+        }
+
+        @Override
+        Object read(final ByteBuffer buffer, final BinarySerializer<?> serializer) {
+            final Object value;
+            try {
+                value = unsafe.allocateInstance(cls);
+            } catch (final InstantiationException exc) {
+                throw new RuntimeException(exc);
+            }
+            for (final FieldCodec fieldCodec : fieldCodecs) {
+                fieldCodec.read(value, buffer, serializer);
+            }
+            return value;
+        }
+    }
+
+    /** Returns the serialized fields of the class, superclass fields first. */
+    static List<Field> schemaFields(final Class<?> cls) {
+        final List<Field> fields = new ArrayList<>();
+        if (cls.getSuperclass() != null) {
+            fields.addAll(schemaFields(cls.getSuperclass()));
+        }
+        for (final Field field : ReflectionDriver.getDeclaredFields(cls)) {
+            if ((field.getModifiers() & (Modifier.STATIC | Modifier.TRANSIENT)) == 0) {
+                fields.add(field);
+            }
+        }
+        return fields;
+    }
+
+    /** Copies one field between an object and a buffer. */
+    abstract static class FieldCodec {
+        final long offset;
+
+        FieldCodec(final long offset) {
+            this.offset = offset;
+        }
+
+        static FieldCodec create(final Class<?> type, final long offset) {
+            if (!type.isPrimitive()) {
+                return new ReferenceFieldCodec(type, offset);
+            } else if (type == int.class) {
+                return new FieldCodec(offset) {
+                    @Override
+                    void write(final Object object, final ByteBuffer buffer, final BinarySerializer<?> serializer) {
+                        buffer.putInt(unsafe.getInt(object, offset));
+                    }
+
+                    @Override
+                    void read(final Object object, final ByteBuffer buffer, final BinarySerializer<?> serializer) {
+                        unsafe.putInt(object, offset, buffer.getInt());
+                    }
+                };
+            } else if (type == long.class) {
+                return new FieldCodec(offset) {
+                    @Override
+                    void write(final Object object, final ByteBuffer buffer, final BinarySerializer<?> serializer) {
+                        buffer.putLong(unsafe.getLong(object, offset));
+                    }
+
+                    @Override
+                    void read(final Object object, final ByteBuffer buffer, final BinarySerializer<?> serializer) {
+                        unsafe.putLong(object, offset, buffer.getLong());
+                    }
+                };
+            } else if (type == double.class) {
+                return new FieldCodec(offset) {
+                    @Override
+                    void write(final Object object, final ByteBuffer buffer, final BinarySerializer<?> serializer) {
+                        buffer.putDouble(unsafe.getDouble(object, offset));
+                    }
+
+                    @Override
+                    void read(final Object object, final ByteBuffer buffer, final BinarySerializer<?> serializer) {
+                        unsafe.putDouble(object, offset, buffer.getDouble());
+                    }
+                };
+            } else if (type == float.class) {
+                return new FieldCodec(offset) {
+                    @Override
+                    void write(final Object object, final ByteBuffer buffer, final BinarySerializer<?> serializer) {
+                        buffer.putFloat(unsafe.getFloat(object, offset));
+                    }
+
+                    @Override
+                    void read(final Object object, final ByteBuffer buffer, final BinarySerializer<?> serializer) {
+                        unsafe.putFloat(object, offset, buffer.getFloat());
+                    }
+                };
+            } else if (type == short.class) {
+                return new FieldCodec(offset) {
+                    @Override
+                    void write(final Object object, final ByteBuffer buffer, final BinarySerializer<?> serializer) {
+                        buffer.putShort(unsafe.getShort(object, offset));
+                    }
+
+                    @Override
+                    void read(final Object object, final ByteBuffer buffer, final BinarySerializer<?> serializer) {
+                        unsafe.putShort(object, offset, buffer.getShort());
+                    }
+                };
+            } else if (type == char.class) {
+                return new FieldCodec(offset) {
+                    @Override
+                    void write(final Object object, final ByteBuffer buffer, final BinarySerializer<?> serializer) {
+                        buffer.putChar(unsafe.getChar(object, offset));
+                    }
+
+                    @Override
+                    void read(final Object object, final ByteBuffer buffer, final BinarySerializer<?> serializer) {
+                        unsafe.putChar(object, offset, buffer.getChar());
+                    }
+                };
+            } else if (type == byte.class) {
+                return new FieldCodec(offset) {
+                    @Override
+                    void write(final Object object, final ByteBuffer buffer, final BinarySerializer<?> serializer) {
+                        buffer.put(unsafe.getByte(object, offset));
+                    }
+
+                    @Override
+                    void read(final Object object, final ByteBuffer buffer, final BinarySerializer<?> serializer) {
+                        unsafe.putByte(object, offset, buffer.get());
+                    }
+                };
+            } else {
+                return new FieldCodec(offset) {
+                    @Override
+                    void write(final Object object, final ByteBuffer buffer, final BinarySerializer<?> serializer) {
+                        buffer.put(unsafe.getBoolean(object, offset) ? (byte) 1 : (byte) 0);
+                    }
+
+                    @Override
+                    void read(final Object object, final ByteBuffer buffer, final BinarySerializer<?> serializer) {
+                        unsafe.putBoolean(object, offset, buffer.get() != 0);
+                    }
+                };
+            }
+        }
+
+        abstract void write(Object object, ByteBuffer buffer, BinarySerializer<?> serializer);
+
+        abstract void read(Object object, ByteBuffer buffer, BinarySerializer<?> serializer);
+    }
+
+    static final class ReferenceFieldCodec extends FieldCodec {
+        private final ReferenceCodec codec;
+
+        ReferenceFieldCodec(final Class<?> type, final long offset) {
+            super(offset);
+            this.codec = new ReferenceCodec(type);
+        }
+
+        @Override
+        void write(final Object object, final ByteBuffer buffer, final BinarySerializer<?> serializer) {
+            codec.write(unsafe.getObject(object, offset), buffer, serializer);
+        }
+
+        @Override
+        void read(final Object object, final ByteBuffer buffer, final BinarySerializer<?> serializer) {
+            unsafe.putObject(object, offset, codec.read(buffer, serializer));
+        }
+    }
+
+    static final class StringCodec extends Codec {
+        @Override
+        void write(final Object value, final ByteBuffer buffer, final BinarySerializer<?> serializer) {
+            writeString((String) value, buffer);
+        }
+
+        @Override
+        Object read(final ByteBuffer buffer, final BinarySerializer<?> serializer) {
+            return readString(buffer);
+        }
+
+        static void writeString(final String string, final ByteBuffer buffer) {
+            final int length = string.length();
+            buffer.putInt(length);
+            for (int i = 0; i < length; i++) {
+                buffer.putChar(string.charAt(i));
+            }
+        }
+
+        static String readString(final ByteBuffer buffer) {
+            final int length = buffer.getInt();
+            if (length > buffer.remaining() / 2) {
+                throw new BufferUnderflowException();
+            }
+            final char[] chars = new char[length];
+            for (int i = 0; i < length; i++) {
+                chars[i] = buffer.getChar();
+            }
+            return new String(chars);
+        }
+    }
+
+    static final class BoxCodec extends Codec {
+        private final Class<?> cls;
+
+        BoxCodec(final Class<?> cls) {
+            this.cls = cls;
+        }
+
+        @Override
+        void write(final Object value, final ByteBuffer buffer, final BinarySerializer<?> serializer) {
+            if (cls == Integer.class) {
+                buffer.putInt((Integer) value);
+            } else if (cls == Long.class) {
+                buffer.putLong((Long) value);
+            } else if (cls == Double.class) {
+                buffer.putDouble((Double) value);
+            } else if (cls == Float.class) {
+                buffer.putFloat((Float) value);
+            } else if (cls == Short.class) {
+                buffer.putShort((Short) value);
+            } else if (cls == Byte.class) {
+                buffer.put((Byte) value);
+            } else if (cls == Character.class) {
+                buffer.putChar((Character) value);
+            } else {
+                buffer.put((Boolean) value ? (byte) 1 : (byte) 0);
+            }
+        }
+
+        @Override
+        Object read(final ByteBuffer buffer, final BinarySerializer<?> serializer) {
+            if (cls == Integer.class) {
+                return buffer.getInt();
+            } else if (cls == Long.class) {
+                return buffer.getLong();
+            } else if (cls == Double.class) {
+                return buffer.getDouble();
+            } else if (cls == Float.class) {
+                return buffer.getFloat();
+            } else if (cls == Short.class) {
+                return buffer.getShort();
+            } else if (cls == Byte.class) {
+                return buffer.get();
+            } else if (cls == Character.class) {
+                return buffer.getChar();
+            } else {
+                return buffer.get() != 0;
+            }
+        }
+    }
+
+    static final class EnumCodec extends Codec {
+        private final Object[] constants;
+
+        EnumCodec(final Class<?> cls) {
+            this.constants = cls.getEnumConstants();
+        }
+
+        @Override
+        void write(final Object value, final ByteBuffer buffer, final BinarySerializer<?> serializer) {
+            buffer.putInt(((Enum<?>) value).ordinal());
+        }
+
+        @Override
+        Object read(final ByteBuffer buffer, final BinarySerializer<?> serializer) {
+            final int ordinal = buffer.getInt();
+            if (ordinal < 0 || ordinal >= constants.length) {
+                throw new IllegalStateException("Malformed stream: ordinal " + ordinal + " out of range");
+            }
+            return constants[ordinal];
+        }
+    }
+
+    static final class PrimitiveArrayCodec extends Codec {
+        private final Class<?> componentType;
+
+        PrimitiveArrayCodec(final Class<?> cls) {
+            this.componentType = cls.getComponentType();
+        }
+
+        @Override
+        void write(final Object value, final ByteBuffer buffer, final BinarySerializer<?> serializer) {
+            final int length = Array.getLength(value);
+            buffer.putInt(length);
+            if (componentType == byte.class) {
+                buffer.put((byte[]) value);
+            } else if (componentType == int.class) {
+                final int[] array = (int[]) value;
+                for (int i = 0; i < length; i++) {
+                    buffer.putInt(array[i]);
+                }
+            } else if (componentType == long.class) {
+                final long[] array = (long[]) value;
+                for (int i = 0; i < length; i++) {
+                    buffer.putLong(array[i]);
+                }
+            } else if (componentType == double.class) {
+                final double[] array = (double[]) value;
+                for (int i = 0; i < length; i++) {
+                    buffer.putDouble(array[i]);
+                }
+            } else if (componentType == float.class) {
+                final float[] array = (float[]) value;
+                for (int i = 0; i < length; i++) {
+                    buffer.putFloat(array[i]);
+                }
+            } else if (componentType == short.class) {
+                final short[] array = (short[]) value;
+                for (int i = 0; i < length; i++) {
+                    buffer.putShort(array[i]);
+                }
+            } else if (componentType == char.class) {
+                final char[] array = (char[]) value;
+                for (int i = 0; i < length; i++) {
+                    buffer.putChar(array[i]);
+                }
+            } else {
+                final boolean[] array = (boolean[]) value;
+                for (int i = 0; i < length; i++) {
+                    buffer.put(array[i] ? (byte) 1 : (byte) 0);
+                }
+            }
+        }
+
+        @Override
+        Object read(final ByteBuffer buffer, final BinarySerializer<?> serializer) {
+            final int length = buffer.getInt();
+            if (length > buffer.remaining()) {
+                throw new BufferUnderflowException();
+            }
+            if (componentType == byte.class) {
+                final byte[] array = new byte[length];
+                buffer.get(array);
+                return array;
+            } else if (componentType == int.class) {
+                final int[] array = new int[length];
+                for (int i = 0; i < length; i++) {
+                    array[i] = buffer.getInt();
+                }
+                return array;
+            } else if (componentType == long.class) {
+                final long[] array = new long[length];
+                for (int i = 0; i < length; i++) {
+                    array[i] = buffer.getLong();
+                }
+                return array;
+            } else if (componentType == double.class) {
+                final double[] array = new double[length];
+                for (int i = 0; i < length; i++) {
+                    array[i] = buffer.getDouble();
+                }
+                return array;
+            } else if (componentType == float.class) {
+                final float[] array = new float[length];
+                for (int i = 0; i < length; i++) {
+                    array[i] = buffer.getFloat();
+                }
+                return array;
+            } else if (componentType == short.class) {
+                final short[] array = new short[length];
+                for (int i = 0; i < length; i++) {
+                    array[i] = buffer.getShort();
+                }
+                return array;
+            } else if (componentType == char.class) {
+                final char[] array = new char[length];
+                for (int i = 0; i < length; i++) {
+                    array[i] = buffer.getChar();
+                }
+                return array;
+            } else {
+                final boolean[] array = new boolean[length];
+                for (int i = 0; i < length; i++) {
+                    array[i] = buffer.get() != 0;
+                }
+                return array;
+            }
+        }
+    }
+
+    static final class ObjectArrayCodec extends Codec {
+        private final Class<?> componentType;
+        private final ReferenceCodec elementCodec;
+
+        ObjectArrayCodec(final Class<?> componentType) {
+            this.componentType = componentType;
+            this.elementCodec = new ReferenceCodec(componentType);
+        }
+
+        @Override
+        void write(final Object value, final ByteBuffer buffer, final BinarySerializer<?> serializer) {
+            final Object[] array = (Object[]) value;
+            buffer.putInt(array.length);
+            for (final Object element : array) {
+                elementCodec.write(element, buffer, serializer);
+            }
+        }
+
+        @Override
+        Object read(final ByteBuffer buffer, final BinarySerializer<?> serializer) {
+            final int length = buffer.getInt();
+            if (length > buffer.remaining()) {
+                throw new BufferUnderflowException();
+            }
+            final Object[] array = (Object[]) Array.newInstance(componentType, length);
+            for (int i = 0; i < length; i++) {
+                array[i] = elementCodec.read(buffer, serializer);
+            }
+            return array;
+        }
+    }
+
+    static final class CollectionCodec extends Codec {
+        private final Class<?> cls;
+        private final ReferenceCodec elementCodec = new ReferenceCodec(Object.class);
+
+        CollectionCodec(final Class<?> cls) {
+            this.cls = cls;
+        }
+
+        @Override
+        void write(final Object value, final ByteBuffer buffer, final BinarySerializer<?> serializer) {
+            final Collection<Object> collection = (Collection<Object>) value;
+            buffer.putInt(collection.size());
+            for (final Object element : collection) {
+                elementCodec.write(element, buffer, serializer);
+            }
+        }
+
+        @Override
+        Object read(final ByteBuffer buffer, final BinarySerializer<?> serializer) {
+            final int size = buffer.getInt();
+            if (size > buffer.remaining()) {
+                throw new BufferUnderflowException();
+            }
+            final Collection<Object> collection = newCollection(cls, size);
+            for (int i = 0; i < size; i++) {
+                collection.add(elementCodec.read(buffer, serializer));
+            }
+            return collection;
+        }
+
+        private static Collection<Object> newCollection(final Class<?> cls, final int size) {
+            final Instantiator<?> instantiator = Modifier.isAbstract(cls.getModifiers()) ? null
+                    : Members.of(cls).getDefaultInstantiator();
+            if (instantiator != null) {
+                try {
+                    return (Collection<Object>) instantiator.newInstance();
+                } catch (final Throwable exc) {
+                    throw new RuntimeException(exc);
+                }
+            } else if (SortedSet.class.isAssignableFrom(cls)) {
+                return new TreeSet<>();
+            } else if (Set.class.isAssignableFrom(cls)) {
+                return new LinkedHashSet<>(size * 2);
+            } else {
+                return new ArrayList<>(size);
+            }
+        }
+    }
+
+    static final class MapCodec extends Codec {
+        private final Class<?> cls;
+        private final ReferenceCodec keyCodec = new ReferenceCodec(Object.class);
+        private final ReferenceCodec valueCodec = new ReferenceCodec(Object.class);
+
+        MapCodec(final Class<?> cls) {
+            this.cls = cls;
+        }
+
+        @Override
+        void write(final Object value, final ByteBuffer buffer, final BinarySerializer<?> serializer) {
+            final Map<Object, Object> map = (Map<Object, Object>) value;
+            buffer.putInt(map.size());
+            for (final Map.Entry<Object, Object> entry : map.entrySet()) {
+                keyCodec.write(entry.getKey(), buffer, serializer);
+                valueCodec.write(entry.getValue(), buffer, serializer);
+            }
+        }
+
+        @Override
+        Object read(final ByteBuffer buffer, final BinarySerializer<?> serializer) {
+            final int size = buffer.getInt();
+            if (size > buffer.remaining()) {
+                throw new BufferUnderflowException();
+            }
+            final Map<Object, Object> map = newMap(cls, size);
+            for (int i = 0; i < size; i++) {
+                final Object key = keyCodec.read(buffer, serializer);
+                map.put(key, valueCodec.read(buffer, serializer));
+            }
+            return map;
+        }
+
+        private static Map<Object, Object> newMap(final Class<?> cls, final int size) {
+            final Instantiator<?> instantiator = Modifier.isAbstract(cls.getModifiers()) ? null
+                    : Members.of(cls).getDefaultInstantiator();
+            if (instantiator != null) {
+                try {
+                    return (Map<Object, Object>) instantiator.newInstance();
+                } catch (final Throwable exc) {
+                    throw new RuntimeException(exc);
+                }
+            } else if (SortedMap.class.isAssignableFrom(cls)) {
+                return new TreeMap<>();
+            } else {
+                return new LinkedHashMap<>(size * 2);
+            }
+        }
+    }
+
+    /** 64-bit FNV-1a hash of the schemas reachable from a class. */
+    private static final class Fingerprint {
+        private final Map<Class<?>, Boolean> visited = new IdentityHashMap<>();
+        long value = 0xcbf29ce484222325L;
+
+        void add(final Class<?> cls) {
+            if (visited.put(cls, Boolean.TRUE) != null) {
+                return;
+            }
+            add(cls.getName());
+            if (hasSchema(cls)) {
+                for (final Field field : schemaFields(cls)) {
+                    add(field.getName());
+                    add(field.getType().getName());
+                }
+                for (final Field field : schemaFields(cls)) {
+                    Class<?> type = field.getType();
+                    while (type.isArray()) {
+                        type = type.getComponentType();
+                    }
+                    if (!type.isPrimitive()) {
+                        add(type);
+                    }
+                }
+            }
+        }
+
+        private void add(final String string) {
+            for (int i = 0; i < string.length(); i++) {
+                value = (value ^ string.charAt(i)) * 0x100000001b3L;
+            }
+            value = (value ^ ';') * 0x100000001b3L;
+        }
+    }
+}
@@ -0,0 +1,382 @@
+/*
+ * This file is derived from Burningwave Core.
+ *
+ * Author: Roberto Gentili
+ * 
+ * Hosted at: https://github.com/burningwave/core
+ * 
+ * Modified by: Luke Hutchison
+ *
+ * Modifications hosted at:  https://github.com/lukehutch/burningwave-reflection
+ *
+ * --
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Roberto Gentili
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT
+ * LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO
+ * EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package bwr;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Index-based access to the fields and methods declared by a class, through a class generated for it. The
+ * generated class is defined as an anonymous class hosted by the accessed class (a hidden nestmate on JDK 17+), so
+ * it may access private members, and each access is a {@code tableswitch} over plain {@code getfield},
+ * {@code putfield}, {@code invokevirtual} or {@code invokestatic} instructions that the JIT can inline. Member names
+ * are resolved to indexes once, e.g.:
+ *
+ * <pre>
+ * final ClassAccessor&lt;Point&gt; accessor = ClassAccessor.of(Point.class);
+ * final int x = accessor.getFieldIndex("x");
+ * accessor.set(point, x, accessor.get(point, x));
+ * </pre>
+ *
+ * Members the generated class cannot reach, i.e. final fields to set and members whose types are not accessible
+ * from the accessed class, go through a {@link FieldAccessor} or an {@link Invoker} instead.
+ */
+@SuppressWarnings("unchecked")
+public final class ClassAccessor<T> {
+    private static final Logger logger = Logger.getLogger(ClassAccessor.class.getName());
+
+    private static final String OBJECT = "java/lang/Object";
+    private static final String GET_DESCRIPTOR = "(Ljava/lang/Object;I)Ljava/lang/Object;";
+    private static final String SET_DESCRIPTOR = "(Ljava/lang/Object;ILjava/lang/Object;)V";
+    private static final String INVOKE_DESCRIPTOR = "(Ljava/lang/Object;I[Ljava/lang/Object;)Ljava/lang/Object;";
+
+    private static final ClassCache<ClassAccessor<?>> accessors = new ClassCache<ClassAccessor<?>>() {
+        @Override
+        ClassAccessor<?> compute(final Class<?> cls) {
+            return new ClassAccessor<>(cls);
+        }
+    };
+
+    private final Class<T> cls;
+    private final Field[] fields;
+    private final Method[] methods;
+    private final boolean[] generatedSetters;
+    private final boolean[] generatedInvokers;
+    private final MethodHandle getter;
+    private final MethodHandle setter;
+    private final MethodHandle invoker;
+
+    private ClassAccessor(final Class<T> cls) {
+        this.cls = cls;
+        this.fields = ReflectionDriver.getDeclaredFields(cls);
+        this.methods = ReflectionDriver.getDeclaredMethods(cls);
+        this.generatedSetters = new boolean[fields.length];
+        this.generatedInvokers = new boolean[methods.length];
+        MethodHandle getter = null;
+        MethodHandle setter = null;
+        MethodHandle invoker = null;
+        if (cls.getName().indexOf('/') < 0 && !cls.isArray() && !cls.isPrimitive()) {
+            try {
+                final Class<?> accessorClass = ReflectionDriver.defineAnonymousClass(cls, generate(), null);
+                final MethodHandles.Lookup consulter = ReflectionDriver.getConsulter(accessorClass);
+                getter = consulter.findStatic(accessorClass, "get",
+                        MethodType.methodType(Object.class, Object.class, int.class));
+                setter = consulter.findStatic(accessorClass, "set",
+                        MethodType.methodType(void.class, Object.class, int.class, Object.class));
+                invoker = consulter.findStatic(accessorClass, "invoke",
+                        MethodType.methodType(Object.class, Object.class, int.class, Object[].class));
+            } catch (final Throwable exc) {
+                logger.log(Level.FINE, "Could not generate accessor for " + cls.getName(), exc);
+                getter = setter = invoker = null;
+                Arrays.fill(generatedSetters, false);
+                Arrays.fill(generatedInvokers, false);
+            }
+        }
+        this.getter = getter;
+        this.setter = setter;
+        this.invoker = invoker;
+    }
+
+    /** Returns the accessor of the class, generating it on first use. */
+    public static <T> ClassAccessor<T> of(final Class<T> cls) {
+        return (ClassAccessor<T>) accessors.get(cls);
+    }
+
+    public Class<T> getAccessedClass() {
+        return cls;
+    }
+
+    public int getFieldCount() {
+        return fields.length;
+    }
+
+    public Field getField(final int index) {
+        return fields[index];
+    }
+
+    public int getMethodCount() {
+        return methods.length;
+    }
+
+    public Method getMethod(final int index) {
+        return methods[index];
+    }
+
+    /** Returns the index of the declared field with the given name. */
+    public int getFieldIndex(final String name) {
+        for (int i = 0; i < fields.length; i++) {
+            if (fields[i].getName().equals(name)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Field " + name + " not found in class " + cls.getName());
+    }
+
+    /** Returns the index of the only declared method with the given name. */
+    public int getMethodIndex(final String name) {
+        int index = -1;
+        for (int i = 0; i < methods.length; i++) {
+            if (methods[i].getName().equals(name)) {
+                if (index >= 0) {
+                    throw new IllegalArgumentException("Method " + name + " is overloaded in class " + cls.getName());
+                }
+                index = i;
+            }
+        }
+        if (index < 0) {
+            throw new IllegalArgumentException("Method " + name + " not found in class " + cls.getName());
+        }
+        return index;
+    }
+
+    /** Returns the index of the declared method with the given name and parameter types. */
+    public int getMethodIndex(final String name, final Class<?>... parameterTypes) {
+        final Method method = ReflectionDriver.getDeclaredMethod(cls, name, parameterTypes);
+        for (int i = 0; method != null && i < methods.length; i++) {
+            if (methods[i] == method) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Method " + name + Arrays.toString(parameterTypes) + " not found in class "
+                + cls.getName());
+    }
+
+    /** Returns the value of the field with the given index, boxed if primitive. Static fields ignore the target. */
+    public Object get(final Object target, final int index) {
+        final Field field = fields[index];
+        checkTarget(field.getModifiers(), target);
+        if (getter == null) {
+            return FieldAccessor.of(field).get(target);
+        }
+        try {
+            return (Object) getter.invokeExact(target, index);
+        } catch (final RuntimeException | Error exc) {
+            throw exc;
+        } catch (final Throwable exc) {
+            throw new RuntimeException(exc);
+        }
+    }
+
+    /** Sets the field with the given index, unboxing primitive values. The target of static fields is ignored. */
+    public void set(final Object target, final int index, final Object value) {
+        final Field field = fields[index];
+        checkTarget(field.getModifiers(), target);
+        if (!generatedSetters[index]) {
+            FieldAccessor.of(field).set(target, value);
+            return;
+        }
+        try {
+            setter.invokeExact(target, index, value);
+        } catch (final RuntimeException | Error exc) {
+            throw exc;
+        } catch (final Throwable exc) {
+            throw new RuntimeException(exc);
+        }
+    }
+
+    /**
+     * Invokes the method with the given index, with the arguments unboxed where primitive, and returns its result
+     * boxed, or null for void methods. The target of static methods is ignored. Exceptions thrown by the method are
+     * thrown as is.
+     */
+    public Object invoke(final Object target, final int index, final Object... arguments) throws Throwable {
+        final Method method = methods[index];
+        final int parameterCount = Members.of(cls).getParameterTypes(method).length;
+        if ((arguments == null ? 0 : arguments.length) != parameterCount) {
+            throw new IllegalArgumentException("Wrong number of arguments for " + method);
+        }
+        checkTarget(method.getModifiers(), target);
+        if (!generatedInvokers[index]) {
+            return Invoker.of(method).invokeWithArguments(target, arguments);
+        }
+        return (Object) invoker.invokeExact(target, index, arguments);
+    }
+
+    /**
+     * Checks the target of an instance member, so that a wrong target fails the same way whether the access goes
+     * through the generated class or not.
+     */
+    private void checkTarget(final int modifiers, final Object target) {
+        if (!Modifier.isStatic(modifiers) && !cls.isInstance(target)) {
+            throw new IllegalArgumentException("Target " + target + " is not an instance of " + cls.getName());
+        }
+    }
+
+    private byte[] generate() {
+        final String owner = ClassFileWriter.internalName(cls);
+        final ClassFileWriter writer = new ClassFileWriter(owner + "$$Accessor");
+        final ClassFileWriter.Code defaultCase = new ClassFileWriter.Code().op(ClassFileWriter.Code.ACONST_NULL)
+                .op(ClassFileWriter.Code.ATHROW);
+        final int access = ClassFileWriter.ACC_PUBLIC | ClassFileWriter.ACC_STATIC;
+
+        final ClassFileWriter.Code[] getCases = new ClassFileWriter.Code[fields.length];
+        final ClassFileWriter.Code[] setCases = new ClassFileWriter.Code[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            final Field field = fields[i];
+            final boolean isStatic = Modifier.isStatic(field.getModifiers());
+            final int fieldRef = writer.fieldConstant(owner, field.getName(),
+                    ClassFileWriter.descriptor(field.getType()));
+            final ClassFileWriter.Code get = new ClassFileWriter.Code();
+            if (isStatic) {
+                get.op(ClassFileWriter.Code.GETSTATIC, fieldRef);
+            } else {
+                get.op(ClassFileWriter.Code.ALOAD_0).op(ClassFileWriter.Code.CHECKCAST, writer.classConstant(owner))
+                        .op(ClassFileWriter.Code.GETFIELD, fieldRef);
+            }
+            box(writer, get, field.getType());
+            getCases[i] = get.op(ClassFileWriter.Code.ARETURN);
+            if (!Modifier.isFinal(field.getModifiers()) && isAccessible(field.getType())) {
+                final ClassFileWriter.Code set = new ClassFileWriter.Code();
+                if (!isStatic) {
+                    set.op(ClassFileWriter.Code.ALOAD_0).op(ClassFileWriter.Code.CHECKCAST,
+                            writer.classConstant(owner));
+                }
+                set.op(ClassFileWriter.Code.ALOAD_2);
+                unbox(writer, set, field.getType());
+                set.op(isStatic ? ClassFileWriter.Code.PUTSTATIC : ClassFileWriter.Code.PUTFIELD, fieldRef);
+                setCases[i] = set.op(ClassFileWriter.Code.RETURN);
+                generatedSetters[i] = true;
+            }
+        }
+        writer.addMethod(access, "get", GET_DESCRIPTOR, new ClassFileWriter.Code().op(ClassFileWriter.Code.ILOAD_1)
+                .tableSwitch(getCases, defaultCase), 4, 2);
+        writer.addMethod(access, "set", SET_DESCRIPTOR, new ClassFileWriter.Code().op(ClassFileWriter.Code.ILOAD_1)
+                .tableSwitch(setCases, defaultCase), 4, 3);
+
+        final ClassFileWriter.Code[] invokeCases = new ClassFileWriter.Code[methods.length];
+        int maxStack = 4;
+        for (int i = 0; i < methods.length; i++) {
+            final Method method = methods[i];
+            final int modifiers = method.getModifiers();
+            final boolean isStatic = Modifier.isStatic(modifiers);
+            final Class<?>[] parameterTypes = Members.of(cls).getParameterTypes(method);
+            if (cls.isInterface() && (isStatic || Modifier.isPrivate(modifiers))
+                    || !isAccessible(parameterTypes)) {
+                continue;
+            }
+            final ClassFileWriter.Code invoke = new ClassFileWriter.Code();
+            if (!isStatic) {
+                invoke.op(ClassFileWriter.Code.ALOAD_0).op(ClassFileWriter.Code.CHECKCAST,
+                        writer.classConstant(owner));
+            }
+            int argumentSlots = 0;
+            for (int j = 0; j < parameterTypes.length; j++) {
+                invoke.op(ClassFileWriter.Code.ALOAD_2).pushInt(writer, j).op(ClassFileWriter.Code.AALOAD);
+                unbox(writer, invoke, parameterTypes[j]);
+                argumentSlots += parameterTypes[j] == long.class || parameterTypes[j] == double.class ? 2 : 1;
+            }
+            final String methodDescriptor = ClassFileWriter.descriptor(parameterTypes, method.getReturnType());
+            if (isStatic) {
+                invoke.op(ClassFileWriter.Code.INVOKESTATIC,
+                        writer.methodConstant(owner, method.getName(), methodDescriptor, false));
+            } else if (cls.isInterface()) {
+                invoke.invokeInterface(writer.methodConstant(owner, method.getName(), methodDescriptor, true),
+                        argumentSlots);
+            } else {
+                invoke.op(ClassFileWriter.Code.INVOKEVIRTUAL,
+                        writer.methodConstant(owner, method.getName(), methodDescriptor, false));
+            }
+            if (method.getReturnType() == void.class) {
+                invoke.op(ClassFileWriter.Code.ACONST_NULL);
+            } else {
+                box(writer, invoke, method.getReturnType());
+            }
+            invokeCases[i] = invoke.op(ClassFileWriter.Code.ARETURN);
+            generatedInvokers[i] = true;
+            maxStack = Math.max(maxStack, argumentSlots + 4);
+        }
+        writer.addMethod(access, "invoke", INVOKE_DESCRIPTOR,
+                new ClassFileWriter.Code().op(ClassFileWriter.Code.ILOAD_1).tableSwitch(invokeCases, defaultCase),
+                maxStack, 3);
+        return writer.toByteArray();
+    }
+
+    /** Returns whether the generated class, which shares the package and loader of the class, can name the types. */
+    private boolean isAccessible(final Class<?>... types) {
+        for (Class<?> type : types) {
+            while (type.isArray()) {
+                type = type.getComponentType();
+            }
+            final int modifiers = type.getModifiers();
+            if (!type.isPrimitive() && !Modifier.isPublic(modifiers) && !Modifier.isProtected(modifiers)
+                    && (type.getClassLoader() != cls.getClassLoader() || !packageName(type).equals(packageName(cls)))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String packageName(final Class<?> cls) {
+        final String name = cls.getName();
+        final int lastDot = name.lastIndexOf('.');
+        return lastDot < 0 ? "" : name.substring(0, lastDot);
+    }
+
+    private static String wrapperName(final Class<?> type) {
+        if (type == int.class) {
+            return "java/lang/Integer";
+        } else if (type == char.class) {
+            return "java/lang/Character";
+        } else {
+            final String name = type.getName();
+            return "java/lang/" + Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        }
+    }
+
+    private static void box(final ClassFileWriter writer, final ClassFileWriter.Code code, final Class<?> type) {
+        if (type.isPrimitive()) {
+            final String wrapper = wrapperName(type);
+            code.op(ClassFileWriter.Code.INVOKESTATIC, writer.methodConstant(wrapper, "valueOf",
+                    "(" + ClassFileWriter.descriptor(type) + ")L" + wrapper + ";", false));
+        }
+    }
+
+    /** Casts the reference on top of the stack to the type, unboxing it if the type is primitive. */
+    private static void unbox(final ClassFileWriter writer, final ClassFileWriter.Code code, final Class<?> type) {
+        if (type.isPrimitive()) {
+            final String wrapper = wrapperName(type);
+            code.op(ClassFileWriter.Code.CHECKCAST, writer.classConstant(wrapper)).op(
+                    ClassFileWriter.Code.INVOKEVIRTUAL, writer.methodConstant(wrapper, type.getName() + "Value",
+                            "()" + ClassFileWriter.descriptor(type), false));
+        } else if (type != Object.class) {
+            code.op(ClassFileWriter.Code.CHECKCAST, writer.classConstant(ClassFileWriter.internalName(type)));
+        }
+    }
+}
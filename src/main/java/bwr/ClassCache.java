@@ -0,0 +1,86 @@
+/*
+ * This file is derived from Burningwave Core.
+ *
+ * Author: Roberto Gentili
+ * 
+ * Hosted at: https://github.com/burningwave/core
+ * 
+ * Modified by: Luke Hutchison
+ *
+ * Modifications hosted at:  https://github.com/lukehutch/burningwave-reflection
+ *
+ * --
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Roberto Gentili
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT
+ * LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO
+ * EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package bwr;
+
+import java.lang.ref.SoftReference;
+
+/**
+ * Per-class cache backed by {@link ClassValue}. Values computed for classes that are not visible from the class
+ * loader of this library are only softly reachable, so that caching members of e.g. JDK classes cannot pin the
+ * class loader of this library in memory.
+ */
+@SuppressWarnings("unchecked")
+abstract class ClassCache<V> {
+    private static final ClassLoader driverClassLoader = ClassCache.class.getClassLoader();
+
+    private final ClassValue<Object> values = new ClassValue<Object>() {
+        @Override
+        protected Object computeValue(final Class<?> cls) {
+            final V value = compute(cls);
+            return isOwnedByDriverClassLoader(cls) ? value : new SoftReference<V>(value);
+        }
+    };
+
+    abstract V compute(Class<?> cls);
+
+    V get(final Class<?> cls) {
+        for (;;) {
+            final Object value = values.get(cls);
+            if (!(value instanceof SoftReference)) {
+                return (V) value;
+            }
+            final V referent = ((SoftReference<V>) value).get();
+            if (referent != null) {
+                return referent;
+            }
+            values.remove(cls);
+        }
+    }
+
+    void remove(final Class<?> cls) {
+        values.remove(cls);
+    }
+
+    private static boolean isOwnedByDriverClassLoader(final Class<?> cls) {
+        if (driverClassLoader == null) {
+            return true;
+        }
+        for (ClassLoader classLoader = cls.getClassLoader(); classLoader != null; classLoader = classLoader
+                .getParent()) {
+            if (classLoader == driverClassLoader) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,357 @@
+/*
+ * This file is derived from Burningwave Core.
+ *
+ * Author: Roberto Gentili
+ * 
+ * Hosted at: https://github.com/burningwave/core
+ * 
+ * Modified by: Luke Hutchison
+ *
+ * Modifications hosted at:  https://github.com/lukehutch/burningwave-reflection
+ *
+ * --
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Roberto Gentili
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT
+ * LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO
+ * EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package bwr;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal writer of class files containing only static methods. Class files are written in version 49, which
+ * the verifier checks by type inference, so no stack map frames have to be computed. Branches are limited to
+ * {@code tableswitch} instructions whose cases are laid out after the switch, which is all the generated
+ * accessors need.
+ */
+final class ClassFileWriter {
+    static final int ACC_PUBLIC = 0x0001;
+    static final int ACC_STATIC = 0x0008;
+    static final int ACC_FINAL = 0x0010;
+    static final int ACC_SUPER = 0x0020;
+
+    private static final int MAX_CODE_LENGTH = 65535;
+
+    private final ByteVector constantPool = new ByteVector();
+    private final Map<String, Integer> constants = new HashMap<>();
+    private int constantCount = 1;
+    private final List<byte[]> methods = new ArrayList<>();
+    private final int thisClass;
+    private final int superClass;
+
+    ClassFileWriter(final String internalName) {
+        this.thisClass = classConstant(internalName);
+        this.superClass = classConstant("java/lang/Object");
+    }
+
+    int utf8Constant(final String value) {
+        final String key = "U" + value;
+        Integer index = constants.get(key);
+        if (index == null) {
+            constantPool.u1(1).utf8(value);
+            index = addConstant(key, 1);
+        }
+        return index;
+    }
+
+    int intConstant(final int value) {
+        final String key = "I" + value;
+        Integer index = constants.get(key);
+        if (index == null) {
+            constantPool.u1(3).u4(value);
+            index = addConstant(key, 1);
+        }
+        return index;
+    }
+
+    int classConstant(final String internalName) {
+        final String key = "C" + internalName;
+        Integer index = constants.get(key);
+        if (index == null) {
+            final int name = utf8Constant(internalName);
+            constantPool.u1(7).u2(name);
+            index = addConstant(key, 1);
+        }
+        return index;
+    }
+
+    int fieldConstant(final String owner, final String name, final String descriptor) {
+        return memberConstant(9, owner, name, descriptor);
+    }
+
+    int methodConstant(final String owner, final String name, final String descriptor, final boolean isInterface) {
+        return memberConstant(isInterface ? 11 : 10, owner, name, descriptor);
+    }
+
+    private int memberConstant(final int tag, final String owner, final String name, final String descriptor) {
+        final String key = tag + owner + '.' + name + ':' + descriptor;
+        Integer index = constants.get(key);
+        if (index == null) {
+            final int ownerIndex = classConstant(owner);
+            final int nameAndType = nameAndTypeConstant(name, descriptor);
+            constantPool.u1(tag).u2(ownerIndex).u2(nameAndType);
+            index = addConstant(key, 1);
+        }
+        return index;
+    }
+
+    private int nameAndTypeConstant(final String name, final String descriptor) {
+        final String key = "N" + name + ':' + descriptor;
+        Integer index = constants.get(key);
+        if (index == null) {
+            final int nameIndex = utf8Constant(name);
+            final int descriptorIndex = utf8Constant(descriptor);
+            constantPool.u1(12).u2(nameIndex).u2(descriptorIndex);
+            index = addConstant(key, 1);
+        }
+        return index;
+    }
+
+    private int addConstant(final String key, final int slots) {
+        final int index = constantCount;
+        constantCount += slots;
+        constants.put(key, index);
+        return index;
+    }
+
+    void addMethod(final int access, final String name, final String descriptor, final Code code,
+            final int maxStack, final int maxLocals) {
+        if (code.length() > MAX_CODE_LENGTH) {
+            throw new IllegalStateException("Code of method " + name + " is too large");
+        }
+        final ByteVector method = new ByteVector();
+        method.u2(access).u2(utf8Constant(name)).u2(utf8Constant(descriptor)).u2(1);
+        method.u2(utf8Constant("Code")).u4(12 + code.length()).u2(maxStack).u2(maxLocals).u4(code.length());
+        method.bytes(code.bytes.toByteArray()).u2(0).u2(0);
+        methods.add(method.toByteArray());
+    }
+
+    byte[] toByteArray() {
+        final ByteVector classFile = new ByteVector();
+        classFile.u4(0xCAFEBABE).u2(0).u2(49);
+        classFile.u2(constantCount).bytes(constantPool.toByteArray());
+        classFile.u2(ACC_FINAL | ACC_SUPER).u2(thisClass).u2(superClass);
+        classFile.u2(0).u2(0).u2(methods.size());
+        for (final byte[] method : methods) {
+            classFile.bytes(method);
+        }
+        return classFile.u2(0).toByteArray();
+    }
+
+    /** Returns the internal name of a class, or the descriptor of an array class. */
+    static String internalName(final Class<?> cls) {
+        return cls.getName().replace('.', '/');
+    }
+
+    static String descriptor(final Class<?> type) {
+        if (type.isArray()) {
+            return internalName(type);
+        } else if (!type.isPrimitive()) {
+            return "L" + internalName(type) + ";";
+        } else if (type == int.class) {
+            return "I";
+        } else if (type == long.class) {
+            return "J";
+        } else if (type == double.class) {
+            return "D";
+        } else if (type == float.class) {
+            return "F";
+        } else if (type == boolean.class) {
+            return "Z";
+        } else if (type == byte.class) {
+            return "B";
+        } else if (type == char.class) {
+            return "C";
+        } else if (type == short.class) {
+            return "S";
+        } else {
+            return "V";
+        }
+    }
+
+    /** Returns the descriptor of a method with the given parameter and return types. */
+    static String descriptor(final Class<?>[] parameterTypes, final Class<?> returnType) {
+        final StringBuilder descriptor = new StringBuilder("(");
+        for (final Class<?> parameterType : parameterTypes) {
+            descriptor.append(descriptor(parameterType));
+        }
+        return descriptor.append(')').append(descriptor(returnType)).toString();
+    }
+
+    /** Bytecode of a method body, or of a branch-free case of a switch. */
+    static final class Code {
+        static final int ACONST_NULL = 0x01;
+        static final int ALOAD_0 = 0x2a;
+        static final int ALOAD_2 = 0x2c;
+        static final int ILOAD_1 = 0x1b;
+        static final int AALOAD = 0x32;
+        static final int ARETURN = 0xb0;
+        static final int RETURN = 0xb1;
+        static final int ATHROW = 0xbf;
+        static final int GETSTATIC = 0xb2;
+        static final int PUTSTATIC = 0xb3;
+        static final int GETFIELD = 0xb4;
+        static final int PUTFIELD = 0xb5;
+        static final int INVOKEVIRTUAL = 0xb6;
+        static final int INVOKESTATIC = 0xb8;
+        static final int INVOKEINTERFACE = 0xb9;
+        static final int CHECKCAST = 0xc0;
+        private static final int ICONST_0 = 0x03;
+        private static final int BIPUSH = 0x10;
+        private static final int SIPUSH = 0x11;
+        private static final int LDC_W = 0x13;
+        private static final int POP = 0x57;
+        private static final int TABLESWITCH = 0xaa;
+
+        private final ByteVector bytes = new ByteVector();
+
+        int length() {
+            return bytes.length;
+        }
+
+        Code op(final int opcode) {
+            bytes.u1(opcode);
+            return this;
+        }
+
+        /** Emits an instruction with a two-byte constant pool operand. */
+        Code op(final int opcode, final int constant) {
+            bytes.u1(opcode).u2(constant);
+            return this;
+        }
+
+        Code invokeInterface(final int constant, final int argumentSlots) {
+            bytes.u1(INVOKEINTERFACE).u2(constant).u1(argumentSlots + 1).u1(0);
+            return this;
+        }
+
+        Code pushInt(final ClassFileWriter writer, final int value) {
+            if (value >= -1 && value <= 5) {
+                bytes.u1(ICONST_0 + value);
+            } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+                bytes.u1(BIPUSH).u1(value);
+            } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+                bytes.u1(SIPUSH).u2(value);
+            } else {
+                bytes.u1(LDC_W).u2(writer.intConstant(value));
+            }
+            return this;
+        }
+
+        /**
+         * Emits a {@code tableswitch} on the int on top of the stack, over the indexes 0 to the number of cases
+         * minus one, followed by the default case and the cases. Each case must end with a return or a throw, and
+         * null cases branch to the default case.
+         */
+        Code tableSwitch(final Code[] cases, final Code defaultCase) {
+            if (cases.length == 0) {
+                bytes.u1(POP).bytes(defaultCase.bytes.toByteArray());
+                return this;
+            }
+            final int switchOffset = bytes.length;
+            bytes.u1(TABLESWITCH);
+            while (bytes.length % 4 != 0) {
+                bytes.u1(0);
+            }
+            final int defaultOffset = bytes.length + 12 + 4 * cases.length - switchOffset;
+            bytes.u4(defaultOffset).u4(0).u4(cases.length - 1);
+            int caseOffset = defaultOffset + defaultCase.length();
+            for (final Code code : cases) {
+                if (code == null) {
+                    bytes.u4(defaultOffset);
+                } else {
+                    bytes.u4(caseOffset);
+                    caseOffset += code.length();
+                }
+            }
+            bytes.bytes(defaultCase.bytes.toByteArray());
+            for (final Code code : cases) {
+                if (code != null) {
+                    bytes.bytes(code.bytes.toByteArray());
+                }
+            }
+            return this;
+        }
+    }
+
+    /** Growable big-endian byte array. */
+    private static final class ByteVector {
+        private byte[] data = new byte[64];
+        private int length;
+
+        private void ensureCapacity(final int extra) {
+            if (length + extra > data.length) {
+                data = Arrays.copyOf(data, Math.max(data.length * 2, length + extra));
+            }
+        }
+
+        ByteVector u1(final int value) {
+            ensureCapacity(1);
+            data[length++] = (byte) value;
+            return this;
+        }
+
+        ByteVector u2(final int value) {
+            ensureCapacity(2);
+            data[length++] = (byte) (value >>> 8);
+            data[length++] = (byte) value;
+            return this;
+        }
+
+        ByteVector u4(final int value) {
+            ensureCapacity(4);
+            data[length++] = (byte) (value >>> 24);
+            data[length++] = (byte) (value >>> 16);
+            data[length++] = (byte) (value >>> 8);
+            data[length++] = (byte) value;
+            return this;
+        }
+
+        ByteVector bytes(final byte[] bytes) {
+            ensureCapacity(bytes.length);
+            System.arraycopy(bytes, 0, data, length, bytes.length);
+            length += bytes.length;
+            return this;
+        }
+
+        /** Writes a string in the modified UTF-8 encoding of class files, preceded by its length. */
+        ByteVector utf8(final String value) {
+            final ByteVector encoded = new ByteVector();
+            for (int i = 0; i < value.length(); i++) {
+                final char c = value.charAt(i);
+                if (c >= 0x0001 && c <= 0x007F) {
+                    encoded.u1(c);
+                } else if (c <= 0x07FF) {
+                    encoded.u1(0xC0 | (c >> 6)).u1(0x80 | (c & 0x3F));
+                } else {
+                    encoded.u1(0xE0 | (c >> 12)).u1(0x80 | ((c >> 6) & 0x3F)).u1(0x80 | (c & 0x3F));
+                }
+            }
+            return u2(encoded.length).bytes(encoded.toByteArray());
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(data, length);
+        }
+    }
+}
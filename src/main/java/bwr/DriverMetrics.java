@@ -0,0 +1,425 @@
+/*
+ * This file is derived from Burningwave Core.
+ *
+ * Author: Roberto Gentili
+ * 
+ * Hosted at: https://github.com/burningwave/core
+ * 
+ * Modified by: Luke Hutchison
+ *
+ * Modifications hosted at:  https://github.com/lukehutch/burningwave-reflection
+ *
+ * --
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Roberto Gentili
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT
+ * LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO
+ * EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package bwr;
+
+import java.lang.management.ManagementFactory;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Optional counters and latency histograms for the operations of {@link ReflectionDriver}, in total and per target
+ * class. Metrics are disabled by default, or enabled from startup with {@code -Dbwr.metrics.enabled=true}. While
+ * disabled, an instrumented operation costs one volatile read. While enabled, every operation is counted and one in
+ * {@link #getSampleInterval()} operations is timed.
+ */
+public final class DriverMetrics {
+    /** The instrumented operations. */
+    public enum Operation {
+        INVOKE, NEW_INSTANCE, GET_FIELD_VALUE, SET_FIELD_VALUE, GET_DECLARED_MEMBERS
+    }
+
+    /** The name under which classes beyond the tracked maximum are aggregated. */
+    public static final String OTHER_CLASSES = "<other>";
+
+    static final long DISABLED = Long.MIN_VALUE;
+    static final long NOT_SAMPLED = Long.MIN_VALUE + 1;
+
+    private static final Operation[] OPERATIONS = Operation.values();
+    private static final int BUCKETS = 64;
+
+    private static volatile boolean enabled = Boolean.getBoolean("bwr.metrics.enabled");
+    private static volatile int sampleMask = 63;
+    private static volatile int maxTrackedClasses = 256;
+    private static volatile Recorders recorders = new Recorders();
+
+    private DriverMetrics() {
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(final boolean enabled) {
+        DriverMetrics.enabled = enabled;
+    }
+
+    public static int getSampleInterval() {
+        return sampleMask + 1;
+    }
+
+    /** Sets how many operations are counted for each one that is timed. The interval must be a power of two. */
+    public static void setSampleInterval(final int sampleInterval) {
+        if (sampleInterval <= 0 || Integer.bitCount(sampleInterval) != 1) {
+            throw new IllegalArgumentException("Sample interval must be a power of two: " + sampleInterval);
+        }
+        sampleMask = sampleInterval - 1;
+    }
+
+    public static int getMaxTrackedClasses() {
+        return maxTrackedClasses;
+    }
+
+    /** Sets how many target classes are tracked separately, the others are aggregated as {@link #OTHER_CLASSES}. */
+    public static void setMaxTrackedClasses(final int maxTrackedClasses) {
+        if (maxTrackedClasses < 0) {
+            throw new IllegalArgumentException("Negative maximum: " + maxTrackedClasses);
+        }
+        DriverMetrics.maxTrackedClasses = maxTrackedClasses;
+    }
+
+    /** Discards all the metrics recorded so far. */
+    public static void reset() {
+        recorders = new Recorders();
+    }
+
+    public static Snapshot snapshot() {
+        return new Snapshot(recorders);
+    }
+
+    /**
+     * Registers the {@link DriverMetricsMXBean} in the platform MBean server, if not registered yet, and returns its
+     * name.
+     */
+    public static ObjectName registerMBean() {
+        try {
+            final ObjectName name = new ObjectName("bwr:type=DriverMetrics");
+            final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (!server.isRegistered(name)) {
+                try {
+                    server.registerMBean(new MXBeanImpl(), name);
+                } catch (final InstanceAlreadyExistsException exc) {
+                    // Registered concurrently
+                }
+            }
+            return name;
+        } catch (final Throwable exc) {
+            throw new RuntimeException(exc);
+        }
+    }
+
+    /** Returns the start time of an operation, or a marker if the operation is not timed. */
+    static long start() {
+        if (!enabled) {
+            return DISABLED;
+        }
+        return (ThreadLocalRandom.current().nextInt() & sampleMask) == 0 ? System.nanoTime() : NOT_SAMPLED;
+    }
+
+    /** Records an operation on the target class started at the given time. */
+    static void stop(final Operation operation, final Class<?> cls, final long startTime) {
+        if (startTime != DISABLED) {
+            recorders.record(operation, cls, startTime == NOT_SAMPLED ? -1 : System.nanoTime() - startTime);
+        }
+    }
+
+    /** Counters and histograms of every operation, in total and per target class. */
+    private static final class Recorders {
+        final Recorder[] total = newRecorders();
+        final ConcurrentMap<String, Recorder[]> classes = new ConcurrentHashMap<>();
+        final Recorder[] otherClasses = newRecorders();
+
+        void record(final Operation operation, final Class<?> cls, final long nanos) {
+            total[operation.ordinal()].record(nanos);
+            getClassRecorders(cls)[operation.ordinal()].record(nanos);
+        }
+
+        private Recorder[] getClassRecorders(final Class<?> cls) {
+            final String name = cls.getName();
+            Recorder[] recorders = classes.get(name);
+            if (recorders == null) {
+                if (classes.size() >= maxTrackedClasses) {
+                    return otherClasses;
+                }
+                final Recorder[] newRecorders = newRecorders();
+                recorders = classes.putIfAbsent(name, newRecorders);
+                if (recorders == null) {
+                    recorders = newRecorders;
+                }
+            }
+            return recorders;
+        }
+
+        private static Recorder[] newRecorders() {
+            final Recorder[] recorders = new Recorder[OPERATIONS.length];
+            for (int i = 0; i < recorders.length; i++) {
+                recorders[i] = new Recorder();
+            }
+            return recorders;
+        }
+    }
+
+    /** A counter with a histogram of sampled latencies, in power of two buckets of nanoseconds. */
+    private static final class Recorder {
+        final LongAdder count = new LongAdder();
+        final LongAdder sampledNanos = new LongAdder();
+        final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+
+        void record(final long nanos) {
+            count.increment();
+            if (nanos >= 0) {
+                sampledNanos.add(nanos);
+                histogram.incrementAndGet(Math.max(0, BUCKETS - 1 - Long.numberOfLeadingZeros(nanos)));
+            }
+        }
+    }
+
+    /** The metrics of all the operations, in total and per target class, at a point in time. */
+    public static final class Snapshot {
+        private final Map<Operation, OperationSnapshot> operations;
+        private final Map<String, Map<Operation, OperationSnapshot>> classes;
+
+        private Snapshot(final Recorders recorders) {
+            this.operations = snapshot(recorders.total);
+            final Map<String, Map<Operation, OperationSnapshot>> classes = new TreeMap<>();
+            for (final Map.Entry<String, Recorder[]> entry : recorders.classes.entrySet()) {
+                classes.put(entry.getKey(), snapshot(entry.getValue()));
+            }
+            final Map<Operation, OperationSnapshot> otherClasses = snapshot(recorders.otherClasses);
+            if (!otherClasses.isEmpty()) {
+                classes.put(OTHER_CLASSES, otherClasses);
+            }
+            this.classes = Collections.unmodifiableMap(classes);
+        }
+
+        private static Map<Operation, OperationSnapshot> snapshot(final Recorder[] recorders) {
+            final Map<Operation, OperationSnapshot> snapshots = new EnumMap<>(Operation.class);
+            for (final Operation operation : OPERATIONS) {
+                final OperationSnapshot snapshot = new OperationSnapshot(recorders[operation.ordinal()]);
+                if (snapshot.count > 0) {
+                    snapshots.put(operation, snapshot);
+                }
+            }
+            return Collections.unmodifiableMap(snapshots);
+        }
+
+        /** Returns the totals of the operations performed at least once. */
+        public Map<Operation, OperationSnapshot> getOperations() {
+            return operations;
+        }
+
+        /** Returns the metrics of the operations performed at least once, by target class name. */
+        public Map<String, Map<Operation, OperationSnapshot>> getClasses() {
+            return classes;
+        }
+
+        /** Returns the names of the target classes with the most operations, in decreasing order. */
+        public List<String> getHottestClasses(final int limit) {
+            final List<Map.Entry<String, Long>> counts = new ArrayList<>();
+            for (final Map.Entry<String, Map<Operation, OperationSnapshot>> entry : classes.entrySet()) {
+                long count = 0;
+                for (final OperationSnapshot snapshot : entry.getValue().values()) {
+                    count += snapshot.count;
+                }
+                counts.add(new AbstractMap.SimpleEntry<>(entry.getKey(), count));
+            }
+            Collections.sort(counts, new Comparator<Map.Entry<String, Long>>() {
+                @Override
+                public int compare(final Map.Entry<String, Long> entry0, final Map.Entry<String, Long> entry1) {
+                    return Long.compare(entry1.getValue(), entry0.getValue());
+                }
+            });
+            final List<String> names = new ArrayList<>();
+            for (int i = 0; i < counts.size() && i < limit; i++) {
+                names.add(counts.get(i).getKey());
+            }
+            return names;
+        }
+    }
+
+    /** The count and the sampled latencies of an operation at a point in time. */
+    public static final class OperationSnapshot {
+        private final long count;
+        private final long sampledNanos;
+        private final long[] histogram = new long[BUCKETS];
+        private final long sampledCount;
+
+        private OperationSnapshot(final Recorder recorder) {
+            long sampledCount = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                sampledCount += histogram[i] = recorder.histogram.get(i);
+            }
+            this.sampledCount = sampledCount;
+            this.sampledNanos = recorder.sampledNanos.sum();
+            this.count = recorder.count.sum();
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getSampledCount() {
+            return sampledCount;
+        }
+
+        /** Returns the mean of the sampled latencies, or 0 if none was sampled. */
+        public double getMeanNanos() {
+            return sampledCount == 0 ? 0 : (double) sampledNanos / sampledCount;
+        }
+
+        /**
+         * Returns an upper bound of the given percentile of the sampled latencies, within a factor of two, or 0 if
+         * none was sampled.
+         */
+        public long getPercentileNanos(final double percentile) {
+            if (percentile < 0 || percentile > 100) {
+                throw new IllegalArgumentException("Percentile out of range: " + percentile);
+            }
+            final long rank = (long) Math.ceil(sampledCount * percentile / 100);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += histogram[i];
+                if (seen >= rank && seen > 0) {
+                    return i == BUCKETS - 1 ? Long.MAX_VALUE : (1L << i + 1) - 1;
+                }
+            }
+            return 0;
+        }
+
+        /** Returns the number of sampled latencies per bucket, bucket i counting latencies below 2^(i+1) ns. */
+        public long[] getHistogram() {
+            return histogram.clone();
+        }
+
+        @Override
+        public String toString() {
+            return "count=" + count + ", mean=" + Math.round(getMeanNanos()) + "ns, p50<=" + getPercentileNanos(50)
+                    + "ns, p99<=" + getPercentileNanos(99) + "ns";
+        }
+    }
+
+    /** The management interface of the metrics, with operations keyed by name. */
+    public interface DriverMetricsMXBean {
+        boolean isEnabled();
+
+        void setEnabled(boolean enabled);
+
+        int getSampleInterval();
+
+        void setSampleInterval(int sampleInterval);
+
+        Map<String, Long> getOperationCounts();
+
+        Map<String, Double> getOperationMeanNanos();
+
+        Map<String, Long> getOperation99thPercentileNanos();
+
+        /** Returns the operation counts of the 20 hottest target classes. */
+        Map<String, Long> getHottestClassCounts();
+
+        void reset();
+    }
+
+    private static final class MXBeanImpl implements DriverMetricsMXBean {
+        @Override
+        public boolean isEnabled() {
+            return DriverMetrics.isEnabled();
+        }
+
+        @Override
+        public void setEnabled(final boolean enabled) {
+            DriverMetrics.setEnabled(enabled);
+        }
+
+        @Override
+        public int getSampleInterval() {
+            return DriverMetrics.getSampleInterval();
+        }
+
+        @Override
+        public void setSampleInterval(final int sampleInterval) {
+            DriverMetrics.setSampleInterval(sampleInterval);
+        }
+
+        @Override
+        public Map<String, Long> getOperationCounts() {
+            final Map<String, Long> counts = new LinkedHashMap<>();
+            for (final Map.Entry<Operation, OperationSnapshot> entry : snapshot().getOperations().entrySet()) {
+                counts.put(entry.getKey().name(), entry.getValue().getCount());
+            }
+            return counts;
+        }
+
+        @Override
+        public Map<String, Double> getOperationMeanNanos() {
+            final Map<String, Double> means = new LinkedHashMap<>();
+            for (final Map.Entry<Operation, OperationSnapshot> entry : snapshot().getOperations().entrySet()) {
+                means.put(entry.getKey().name(), entry.getValue().getMeanNanos());
+            }
+            return means;
+        }
+
+        @Override
+        public Map<String, Long> getOperation99thPercentileNanos() {
+            final Map<String, Long> percentiles = new LinkedHashMap<>();
+            for (final Map.Entry<Operation, OperationSnapshot> entry : snapshot().getOperations().entrySet()) {
+                percentiles.put(entry.getKey().name(), entry.getValue().getPercentileNanos(99));
+            }
+            return percentiles;
+        }
+
+        @Override
+        public Map<String, Long> getHottestClassCounts() {
+            final Snapshot snapshot = snapshot();
+            final Map<String, Long> counts = new LinkedHashMap<>();
+            for (final String name : snapshot.getHottestClasses(20)) {
+                long count = 0;
+                for (final OperationSnapshot operation : snapshot.getClasses().get(name).values()) {
+                    count += operation.getCount();
+                }
+                counts.put(name, count);
+            }
+            return counts;
+        }
+
+        @Override
+        public void reset() {
+            DriverMetrics.reset();
+        }
+    }
+}
@@ -0,0 +1,976 @@
+/*
+ * This file is derived from Burningwave Core.
+ *
+ * Author: Roberto Gentili
+ * 
+ * Hosted at: https://github.com/burningwave/core
+ * 
+ * Modified by: Luke Hutchison
+ *
+ * Modifications hosted at:  https://github.com/lukehutch/burningwave-reflection
+ *
+ * --
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Roberto Gentili
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT
+ * LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO
+ * EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package bwr;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
+import sun.misc.Unsafe;
+
+/**
+ * Accessor for a single field, resolved once into an implementation specialized for the type and volatility of
+ * the field, with the field offset (and, for static fields, the base object) already fixed. Int, long and
+ * reference fields also support access with an explicit memory order and atomic updates, without the access and
+ * target class checks of the {@code Atomic*FieldUpdater} classes.
+ */
+public abstract class FieldAccessor {
+    static final Unsafe unsafe = ReflectionDriver.unsafe;
+
+    final Class<?> declaringClass;
+    final String name;
+    final Class<?> type;
+    final long offset;
+    final Object staticBase;
+    // Null until requested if the accessor was built from cached metadata
+    private volatile Field field;
+
+    FieldAccessor(final FieldInfo info) {
+        this.declaringClass = info.declaringClass;
+        this.name = info.name;
+        this.type = info.type;
+        this.offset = info.offset;
+        this.staticBase = info.staticBase;
+        this.field = info.field;
+    }
+
+    static FieldAccessor of(final Field field) {
+        return Members.of(field.getDeclaringClass()).getFieldAccessor(field);
+    }
+
+    static FieldAccessor create(final Field field) {
+        return create(new FieldInfo(field));
+    }
+
+    static FieldAccessor create(final FieldInfo info) {
+        final Class<?> type = info.type;
+        final boolean isVolatile = Modifier.isVolatile(info.modifiers);
+        if (!type.isPrimitive()) {
+            return isVolatile ? new VolatileObjectAccessor(info) : new PlainObjectAccessor(info);
+        } else if (type == boolean.class) {
+            return isVolatile ? new VolatileBooleanAccessor(info) : new PlainBooleanAccessor(info);
+        } else if (type == byte.class) {
+            return isVolatile ? new VolatileByteAccessor(info) : new PlainByteAccessor(info);
+        } else if (type == char.class) {
+            return isVolatile ? new VolatileCharAccessor(info) : new PlainCharAccessor(info);
+        } else if (type == short.class) {
+            return isVolatile ? new VolatileShortAccessor(info) : new PlainShortAccessor(info);
+        } else if (type == int.class) {
+            return isVolatile ? new VolatileIntAccessor(info) : new PlainIntAccessor(info);
+        } else if (type == long.class) {
+            return isVolatile ? new VolatileLongAccessor(info) : new PlainLongAccessor(info);
+        } else if (type == float.class) {
+            return isVolatile ? new VolatileFloatAccessor(info) : new PlainFloatAccessor(info);
+        } else if (type == double.class) {
+            return isVolatile ? new VolatileDoubleAccessor(info) : new PlainDoubleAccessor(info);
+        } else {
+            throw new IllegalArgumentException("Unsupported field type " + type);
+        }
+    }
+
+    public Field getField() {
+        Field field = this.field;
+        if (field == null) {
+            this.field = field = Members.of(declaringClass).getDeclaredField(name);
+        }
+        return field;
+    }
+
+    public abstract Object get(Object target);
+
+    public abstract void set(Object target, Object value);
+
+    public boolean getBoolean(final Object target) {
+        throw notOfType(boolean.class);
+    }
+
+    public void setBoolean(final Object target, final boolean value) {
+        throw notOfType(boolean.class);
+    }
+
+    public byte getByte(final Object target) {
+        throw notOfType(byte.class);
+    }
+
+    public void setByte(final Object target, final byte value) {
+        throw notOfType(byte.class);
+    }
+
+    public char getChar(final Object target) {
+        throw notOfType(char.class);
+    }
+
+    public void setChar(final Object target, final char value) {
+        throw notOfType(char.class);
+    }
+
+    public short getShort(final Object target) {
+        throw notOfType(short.class);
+    }
+
+    public void setShort(final Object target, final short value) {
+        throw notOfType(short.class);
+    }
+
+    public int getInt(final Object target) {
+        throw notOfType(int.class);
+    }
+
+    public void setInt(final Object target, final int value) {
+        throw notOfType(int.class);
+    }
+
+    public long getLong(final Object target) {
+        throw notOfType(long.class);
+    }
+
+    public void setLong(final Object target, final long value) {
+        throw notOfType(long.class);
+    }
+
+    public float getFloat(final Object target) {
+        throw notOfType(float.class);
+    }
+
+    public void setFloat(final Object target, final float value) {
+        throw notOfType(float.class);
+    }
+
+    public double getDouble(final Object target) {
+        throw notOfType(double.class);
+    }
+
+    public void setDouble(final Object target, final double value) {
+        throw notOfType(double.class);
+    }
+
+    // Explicit memory orders, independent of the volatile modifier of the field. Opaque and acquire reads are
+    // volatile reads, and opaque and release writes are ordered writes, as Unsafe has nothing weaker.
+
+    public int getIntOpaque(final Object target) {
+        throw notOfType(int.class);
+    }
+
+    public int getIntAcquire(final Object target) {
+        throw notOfType(int.class);
+    }
+
+    public int getIntVolatile(final Object target) {
+        throw notOfType(int.class);
+    }
+
+    public void setIntOpaque(final Object target, final int value) {
+        throw notOfType(int.class);
+    }
+
+    public void setIntRelease(final Object target, final int value) {
+        throw notOfType(int.class);
+    }
+
+    public void setIntVolatile(final Object target, final int value) {
+        throw notOfType(int.class);
+    }
+
+    public boolean compareAndSetInt(final Object target, final int expected, final int value) {
+        throw notOfType(int.class);
+    }
+
+    public int getAndSetInt(final Object target, final int value) {
+        throw notOfType(int.class);
+    }
+
+    public int getAndAddInt(final Object target, final int delta) {
+        throw notOfType(int.class);
+    }
+
+    public long getLongOpaque(final Object target) {
+        throw notOfType(long.class);
+    }
+
+    public long getLongAcquire(final Object target) {
+        throw notOfType(long.class);
+    }
+
+    public long getLongVolatile(final Object target) {
+        throw notOfType(long.class);
+    }
+
+    public void setLongOpaque(final Object target, final long value) {
+        throw notOfType(long.class);
+    }
+
+    public void setLongRelease(final Object target, final long value) {
+        throw notOfType(long.class);
+    }
+
+    public void setLongVolatile(final Object target, final long value) {
+        throw notOfType(long.class);
+    }
+
+    public boolean compareAndSetLong(final Object target, final long expected, final long value) {
+        throw notOfType(long.class);
+    }
+
+    public long getAndSetLong(final Object target, final long value) {
+        throw notOfType(long.class);
+    }
+
+    public long getAndAddLong(final Object target, final long delta) {
+        throw notOfType(long.class);
+    }
+
+    public Object getObjectOpaque(final Object target) {
+        throw notOfType(Object.class);
+    }
+
+    public Object getObjectAcquire(final Object target) {
+        throw notOfType(Object.class);
+    }
+
+    public Object getObjectVolatile(final Object target) {
+        throw notOfType(Object.class);
+    }
+
+    public void setObjectOpaque(final Object target, final Object value) {
+        throw notOfType(Object.class);
+    }
+
+    public void setObjectRelease(final Object target, final Object value) {
+        throw notOfType(Object.class);
+    }
+
+    public void setObjectVolatile(final Object target, final Object value) {
+        throw notOfType(Object.class);
+    }
+
+    public boolean compareAndSetObject(final Object target, final Object expected, final Object value) {
+        throw notOfType(Object.class);
+    }
+
+    public Object getAndSetObject(final Object target, final Object value) {
+        throw notOfType(Object.class);
+    }
+
+    final Object base(final Object target) {
+        return staticBase != null ? staticBase : target;
+    }
+
+    final RuntimeException notAssignable(final Object value) {
+        return new RuntimeException("Value " + value + " is not assignable to " + name);
+    }
+
+    final RuntimeException notOfType(final Class<?> requestedType) {
+        return new RuntimeException("Field " + name + " of type " + type.getName() + " is not of type "
+                + requestedType.getName());
+    }
+
+    /** The declaring class, name, type, modifiers and location of a field, from reflection or cached metadata. */
+    static final class FieldInfo {
+        final Class<?> declaringClass;
+        final String name;
+        final Class<?> type;
+        final int modifiers;
+        final long offset;
+        final Object staticBase;
+        final Field field;
+
+        FieldInfo(final Field field) {
+            this.declaringClass = field.getDeclaringClass();
+            this.name = field.getName();
+            this.type = field.getType();
+            this.modifiers = field.getModifiers();
+            this.field = field;
+            if (Modifier.isStatic(modifiers)) {
+                this.staticBase = FieldOffsets.staticFieldBase(field);
+                this.offset = FieldOffsets.staticFieldOffset(field);
+            } else {
+                this.staticBase = null;
+                this.offset = FieldOffsets.objectFieldOffset(field);
+            }
+        }
+
+        /** Describes an instance field whose offset is already known. */
+        FieldInfo(final Class<?> declaringClass, final String name, final Class<?> type, final int modifiers,
+                final long offset) {
+            this.declaringClass = declaringClass;
+            this.name = name;
+            this.type = type;
+            this.modifiers = modifiers;
+            this.offset = offset;
+            this.staticBase = null;
+            this.field = null;
+        }
+    }
+
+    abstract static class ObjectAccessor extends FieldAccessor {
+        ObjectAccessor(final FieldInfo info) {
+            super(info);
+        }
+
+        @Override
+        public final void set(final Object target, final Object value) {
+            checkAssignable(value);
+            setObject(target, value);
+        }
+
+        @Override
+        public final Object getObjectOpaque(final Object target) {
+            return unsafe.getObjectVolatile(base(target), offset);
+        }
+
+        @Override
+        public final Object getObjectAcquire(final Object target) {
+            return unsafe.getObjectVolatile(base(target), offset);
+        }
+
+        @Override
+        public final Object getObjectVolatile(final Object target) {
+            return unsafe.getObjectVolatile(base(target), offset);
+        }
+
+        @Override
+        public final void setObjectOpaque(final Object target, final Object value) {
+            checkAssignable(value);
+            unsafe.putOrderedObject(base(target), offset, value);
+        }
+
+        @Override
+        public final void setObjectRelease(final Object target, final Object value) {
+            checkAssignable(value);
+            unsafe.putOrderedObject(base(target), offset, value);
+        }
+
+        @Override
+        public final void setObjectVolatile(final Object target, final Object value) {
+            checkAssignable(value);
+            unsafe.putObjectVolatile(base(target), offset, value);
+        }
+
+        @Override
+        public final boolean compareAndSetObject(final Object target, final Object expected, final Object value) {
+            checkAssignable(value);
+            return unsafe.compareAndSwapObject(base(target), offset, expected, value);
+        }
+
+        @Override
+        public final Object getAndSetObject(final Object target, final Object value) {
+            checkAssignable(value);
+            return unsafe.getAndSetObject(base(target), offset, value);
+        }
+
+        private void checkAssignable(final Object value) {
+            if (value != null && !type.isInstance(value)) {
+                throw notAssignable(value);
+            }
+        }
+
+        abstract void setObject(Object target, Object value);
+    }
+
+    static final class PlainObjectAccessor extends ObjectAccessor {
+        PlainObjectAccessor(final FieldInfo info) {
+            super(info);
+        }
+
+        @Override
+        public Object get(final Object target) {
+            return unsafe.getObject(base(target), offset);
+        }
+
+        @Override
+        void setObject(final Object target, final Object value) {
+            unsafe.putObject(base(target), offset, value);
+        }
+    }
+
+    static final class VolatileObjectAccessor extends ObjectAccessor {
+        VolatileObjectAccessor(final FieldInfo info) {
+            super(info);
+        }
+
+        @Override
+        public Object get(final Object target) {
+            return unsafe.getObjectVolatile(base(target), offset);
+        }
+
+        @Override
+        void setObject(final Object target, final Object value) {
+            unsafe.putObjectVolatile(base(target), offset, value);
+        }
+    }
+
+    abstract static class BooleanAccessor extends FieldAccessor {
+        BooleanAccessor(final FieldInfo info) {
+            super(info);
+        }
+
+        @Override
+        public final Object get(final Object target) {
+            return Boolean.valueOf(getBoolean(target));
+        }
+
+        @Override
+        public final void set(final Object target, final Object value) {
+            if (!(value instanceof Boolean)) {
+                throw notAssignable(value);
+            }
+            setBoolean(target, ((Boolean) value).booleanValue());
+        }
+
+        @Override
+        public abstract boolean getBoolean(Object target);
+
+        @Override
+        public abstract void setBoolean(Object target, boolean value);
+    }
+
+    static final class PlainBooleanAccessor extends BooleanAccessor {
+        PlainBooleanAccessor(final FieldInfo info) {
+            super(info);
+        }
+
+        @Override
+        public boolean getBoolean(final Object target) {
+            return unsafe.getBoolean(base(target), offset);
+        }
+
+        @Override
+        public void setBoolean(final Object target, final boolean value) {
+            unsafe.putBoolean(base(target), offset, value);
+        }
+    }
+
+    static final class VolatileBooleanAccessor extends BooleanAccessor {
+        VolatileBooleanAccessor(final FieldInfo info) {
+            super(info);
+        }
+
+        @Override
+        public boolean getBoolean(final Object target) {
+            return unsafe.getBooleanVolatile(base(target), offset);
+        }
+
+        @Override
+        public void setBoolean(final Object target, final boolean value) {
+            unsafe.putBooleanVolatile(base(target), offset, value);
+        }
+    }
+
+    abstract static class ByteAccessor extends FieldAccessor {
+        ByteAccessor(final FieldInfo info) {
+            super(info);
+        }
+
+        @Override
+        public final Object get(final Object target) {
+            return Byte.valueOf(getByte(target));
+        }
+
+        @Override
+        public final void set(final Object target, final Object value) {
+            if (!(value instanceof Byte)) {
+                throw notAssignable(value);
+            }
+            setByte(target, ((Byte) value).byteValue());
+        }
+
+        @Override
+        public abstract byte getByte(Object target);
+
+        @Override
+        public abstract void setByte(Object target, byte value);
+    }
+
+    static final class PlainByteAccessor extends ByteAccessor {
+        PlainByteAccessor(final FieldInfo info) {
+            super(info);
+        }
+
+        @Override
+        public byte getByte(final Object target) {
+            return unsafe.getByte(base(target), offset);
+        }
+
+        @Override
+        public void setByte(final Object target, final byte value) {
+            unsafe.putByte(base(target), offset, value);
+        }
+    }
+
+    static final class VolatileByteAccessor extends ByteAccessor {
+        VolatileByteAccessor(final FieldInfo info) {
+            super(info);
+        }
+
+        @Override
+        public byte getByte(final Object target) {
+            return unsafe.getByteVolatile(base(target), offset);
+        }
+
+        @Override
+        public void setByte(final Object target, final byte value) {
+            unsafe.putByteVolatile(base(target), offset, value);
+        }
+    }
+
+    abstract static class CharAccessor extends FieldAccessor {
+        CharAccessor(final FieldInfo info) {
+            super(info);
+        }
+
+        @Override
+        public final Object get(final Object target) {
+            return Character.valueOf(getChar(target));
+        }
+
+        @Override
+        public final void set(final Object target, final Object value) {
+            if (!(value instanceof Character)) {
+                throw notAssignable(value);
+            }
+            setChar(target, ((Character) value).charValue());
+        }
+
+        @Override
+        public abstract char getChar(Object target);
+
+        @Override
+        public abstract void setChar(Object target, char value);
+    }
+
+    static final class PlainCharAccessor extends CharAccessor {
+        PlainCharAccessor(final FieldInfo info) {
+            super(info);
+        }
+
+        @Override
+        public char getChar(final Object target) {
+            return unsafe.getChar(base(target), offset);
+        }
+
+        @Override
+        public void setChar(final Object target, final char value) {
+            unsafe.putChar(base(target), offset, value);
+        }
+    }
+
+    static final class VolatileCharAccessor extends CharAccessor {
+        VolatileCharAccessor(final FieldInfo info) {
+            super(info);
+        }
+
+        @Override
+        public char getChar(final Object target) {
+            return unsafe.getCharVolatile(base(target), offset);
+        }
+
+        @Override
+        public void setChar(final Object target, final char value) {
+            unsafe.putCharVolatile(base(target), offset, value);
+        }
+    }
+
+    abstract static class ShortAccessor extends FieldAccessor {
+        ShortAccessor(final FieldInfo info) {
+            super(info);
+        }
+
+        @Override
+        public final Object get(final Object target) {
+            return Short.valueOf(getShort(target));
+        }
+
+        @Override
+        public final void set(final Object target, final Object value) {
+            if (!(value instanceof Short)) {
+                throw notAssignable(value);
+            }
+            setShort(target, ((Short) value).shortValue());
+        }
+
+        @Override
+        public abstract short getShort(Object target);
+
+        @Override
+        public abstract void setShort(Object target, short value);
+    }
+
+    static final class PlainShortAccessor extends ShortAccessor {
+        PlainShortAccessor(final FieldInfo info) {
+            super(info);
+        }
+
+        @Override
+        public short getShort(final Object target) {
+            return unsafe.getShort(base(target), offset);
+        }
+
+        @Override
+        public void setShort(final Object target, final short value) {
+            unsafe.putShort(base(target), offset, value);
+        }
+    }
+
+    static final class VolatileShortAccessor extends ShortAccessor {
+        VolatileShortAccessor(final FieldInfo info) {
+            super(info);
+        }
+
+        @Override
+        public short getShort(final Object target) {
+            return unsafe.getShortVolatile(base(target), offset);
+        }
+
+        @Override
+        public void setShort(final Object target, final short value) {
+            unsafe.putShortVolatile(base(target), offset, value);
+        }
+    }
+
+    abstract static class IntAccessor extends FieldAccessor {
+        IntAccessor(final FieldInfo info) {
+            super(info);
+        }
+
+        @Override
+        public final Object get(final Object target) {
+            return Integer.valueOf(getInt(target));
+        }
+
+        @Override
+        public final void set(final Object target, final Object value) {
+            if (!(value instanceof Integer)) {
+                throw notAssignable(value);
+            }
+            setInt(target, ((Integer) value).intValue());
+        }
+
+        @Override
+        public abstract int getInt(Object target);
+
+        @Override
+        public abstract void setInt(Object target, int value);
+
+        @Override
+        public final int getIntOpaque(final Object target) {
+            return unsafe.getIntVolatile(base(target), offset);
+        }
+
+        @Override
+        public final int getIntAcquire(final Object target) {
+            return unsafe.getIntVolatile(base(target), offset);
+        }
+
+        @Override
+        public final int getIntVolatile(final Object target) {
+            return unsafe.getIntVolatile(base(target), offset);
+        }
+
+        @Override
+        public final void setIntOpaque(final Object target, final int value) {
+            unsafe.putOrderedInt(base(target), offset, value);
+        }
+
+        @Override
+        public final void setIntRelease(final Object target, final int value) {
+            unsafe.putOrderedInt(base(target), offset, value);
+        }
+
+        @Override
+        public final void setIntVolatile(final Object target, final int value) {
+            unsafe.putIntVolatile(base(target), offset, value);
+        }
+
+        @Override
+        public final boolean compareAndSetInt(final Object target, final int expected, final int value) {
+            return unsafe.compareAndSwapInt(base(target), offset, expected, value);
+        }
+
+        @Override
+        public final int getAndSetInt(final Object target, final int value) {
+            return unsafe.getAndSetInt(base(target), offset, value);
+        }
+
+        @Override
+        public final int getAndAddInt(final Object target, final int delta) {
+            return unsafe.getAndAddInt(base(target), offset, delta);
+        }
+    }
+
+    static final class PlainIntAccessor extends IntAccessor {
+        PlainIntAccessor(final FieldInfo info) {
+            super(info);
+        }
+
+        @Override
+        public int getInt(final Object target) {
+            return unsafe.getInt(base(target), offset);
+        }
+
+        @Override
+        public void setInt(final Object target, final int value) {
+            unsafe.putInt(base(target), offset, value);
+        }
+    }
+
+    static final class VolatileIntAccessor extends IntAccessor {
+        VolatileIntAccessor(final FieldInfo info) {
+            super(info);
+        }
+
+        @Override
+        public int getInt(final Object target) {
+            return unsafe.getIntVolatile(base(target), offset);
+        }
+
+        @Override
+        public void setInt(final Object target, final int value) {
+            unsafe.putIntVolatile(base(target), offset, value);
+        }
+    }
+
+    abstract static class LongAccessor extends FieldAccessor {
+        LongAccessor(final FieldInfo info) {
+            super(info);
+        }
+
+        @Override
+        public final Object get(final Object target) {
+            return Long.valueOf(getLong(target));
+        }
+
+        @Override
+        public final void set(final Object target, final Object value) {
+            if (!(value instanceof Long)) {
+                throw notAssignable(value);
+            }
+            setLong(target, ((Long) value).longValue());
+        }
+
+        @Override
+        public abstract long getLong(Object target);
+
+        @Override
+        public abstract void setLong(Object target, long value);
+
+        @Override
+        public final long getLongOpaque(final Object target) {
+            return unsafe.getLongVolatile(base(target), offset);
+        }
+
+        @Override
+        public final long getLongAcquire(final Object target) {
+            return unsafe.getLongVolatile(base(target), offset);
+        }
+
+        @Override
+        public final long getLongVolatile(final Object target) {
+            return unsafe.getLongVolatile(base(target), offset);
+        }
+
+        @Override
+        public final void setLongOpaque(final Object target, final long value) {
+            unsafe.putOrderedLong(base(target), offset, value);
+        }
+
+        @Override
+        public final void setLongRelease(final Object target, final long value) {
+            unsafe.putOrderedLong(base(target), offset, value);
+        }
+
+        @Override
+        public final void setLongVolatile(final Object target, final long value) {
+            unsafe.putLongVolatile(base(target), offset, value);
+        }
+
+        @Override
+        public final boolean compareAndSetLong(final Object target, final long expected, final long value) {
+            return unsafe.compareAndSwapLong(base(target), offset, expected, value);
+        }
+
+        @Override
+        public final long getAndSetLong(final Object target, final long value) {
+            return unsafe.getAndSetLong(base(target), offset, value);
+        }
+
+        @Override
+        public final long getAndAddLong(final Object target, final long delta) {
+            return unsafe.getAndAddLong(base(target), offset, delta);
+        }
+    }
+
+    static final class PlainLongAccessor extends LongAccessor {
+        PlainLongAccessor(final FieldInfo info) {
+            super(info);
+        }
+
+        @Override
+        public long getLong(final Object target) {
+            return unsafe.getLong(base(target), offset);
+        }
+
+        @Override
+        public void setLong(final Object target, final long value) {
+            unsafe.putLong(base(target), offset, value);
+        }
+    }
+
+    static final class VolatileLongAccessor extends LongAccessor {
+        VolatileLongAccessor(final FieldInfo info) {
+            super(info);
+        }
+
+        @Override
+        public long getLong(final Object target) {
+            return unsafe.getLongVolatile(base(target), offset);
+        }
+
+        @Override
+        public void setLong(final Object target, final long value) {
+            unsafe.putLongVolatile(base(target), offset, value);
+        }
+    }
+
+    abstract static class FloatAccessor extends FieldAccessor {
+        FloatAccessor(final FieldInfo info) {
+            super(info);
+        }
+
+        @Override
+        public final Object get(final Object target) {
+            return Float.valueOf(getFloat(target));
+        }
+
+        @Override
+        public final void set(final Object target, final Object value) {
+            if (!(value instanceof Float)) {
+                throw notAssignable(value);
+            }
+            setFloat(target, ((Float) value).floatValue());
+        }
+
+        @Override
+        public abstract float getFloat(Object target);
+
+        @Override
+        public abstract void setFloat(Object target, float value);
+    }
+
+    static final class PlainFloatAccessor extends FloatAccessor {
+        PlainFloatAccessor(final FieldInfo info) {
+            super(info);
+        }
+
+        @Override
+        public float getFloat(final Object target) {
+            return unsafe.getFloat(base(target), offset);
+        }
+
+        @Override
+        public void setFloat(final Object target, final float value) {
+            unsafe.putFloat(base(target), offset, value);
+        }
+    }
+
+    static final class VolatileFloatAccessor extends FloatAccessor {
+        VolatileFloatAccessor(final FieldInfo info) {
+            super(info);
+        }
+
+        @Override
+        public float getFloat(final Object target) {
+            return unsafe.getFloatVolatile(base(target), offset);
+        }
+
+        @Override
+        public void setFloat(final Object target, final float value) {
+            unsafe.putFloatVolatile(base(target), offset, value);
+        }
+    }
+
+    abstract static class DoubleAccessor extends FieldAccessor {
+        DoubleAccessor(final FieldInfo info) {
+            super(info);
+        }
+
+        @Override
+        public final Object get(final Object target) {
+            return Double.valueOf(getDouble(target));
+        }
+
+        @Override
+        public final void set(final Object target, final Object value) {
+            if (!(value instanceof Double)) {
+                throw notAssignable(value);
+            }
+            setDouble(target, ((Double) value).doubleValue());
+        }
+
+        @Override
+        public abstract double getDouble(Object target);
+
+        @Override
+        public abstract void setDouble(Object target, double value);
+    }
+
+    static final class PlainDoubleAccessor extends DoubleAccessor {
+        PlainDoubleAccessor(final FieldInfo info) {
+            super(info);
+        }
+
+        @Override
+        public double getDouble(final Object target) {
+            return unsafe.getDouble(base(target), offset);
+        }
+
+        @Override
+        public void setDouble(final Object target, final double value) {
+            unsafe.putDouble(base(target), offset, value);
+        }
+    }
+
+    static final class VolatileDoubleAccessor extends DoubleAccessor {
+        VolatileDoubleAccessor(final FieldInfo info) {
+            super(info);
+        }
+
+        @Override
+        public double getDouble(final Object target) {
+            return unsafe.getDoubleVolatile(base(target), offset);
+        }
+
+        @Override
+        public void setDouble(final Object target, final double value) {
+            unsafe.putDoubleVolatile(base(target), offset, value);
+        }
+    }
+}
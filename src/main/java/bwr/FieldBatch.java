@@ -0,0 +1,618 @@
+/*
+ * This file is derived from Burningwave Core.
+ *
+ * Author: Roberto Gentili
+ * 
+ * Hosted at: https://github.com/burningwave/core
+ * 
+ * Modified by: Luke Hutchison
+ *
+ * Modifications hosted at:  https://github.com/lukehutch/burningwave-reflection
+ *
+ * --
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Roberto Gentili
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT
+ * LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO
+ * EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package bwr;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.Buffer;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import sun.misc.Unsafe;
+
+/**
+ * Reads or writes a fixed set of primitive fields across many objects in one pass, either one field at a time
+ * into (or from) a primitive array, or all fields at once as fixed-size records in a {@link ByteBuffer}. Field
+ * offsets are resolved once, when the batch is created, and values are never boxed. Every target is checked to be
+ * an instance of the class declaring the fields. Fields are read and written with plain memory accesses, even if
+ * they are volatile.
+ *
+ * <p>
+ * A {@link #parallel()} batch splits large operations into ranges processed by the common fork/join pool.
+ * Operations taking a list of targets copy it to an array first.
+ */
+public final class FieldBatch {
+    private static final Unsafe unsafe = ReflectionDriver.unsafe;
+
+    /** Number of targets below which a parallel batch does not split an operation. */
+    private static final int PARALLEL_THRESHOLD = 1 << 14;
+
+    private static final int BOOLEAN = 0;
+    private static final int BYTE = 1;
+    private static final int CHAR = 2;
+    private static final int SHORT = 3;
+    private static final int INT = 4;
+    private static final int LONG = 5;
+    private static final int FLOAT = 6;
+    private static final int DOUBLE = 7;
+
+    private final Field[] fields;
+    private final Class<?>[] types;
+    private final int[] kinds;
+    private final long[] offsets;
+    private final int[] recordOffsets;
+    private final int recordSize;
+    private final Class<?> targetClass;
+    private final boolean parallel;
+
+    private FieldBatch(final Field[] fields, final Class<?>[] types, final int[] kinds, final long[] offsets,
+            final int[] recordOffsets, final int recordSize, final Class<?> targetClass, final boolean parallel) {
+        this.fields = fields;
+        this.types = types;
+        this.kinds = kinds;
+        this.offsets = offsets;
+        this.recordOffsets = recordOffsets;
+        this.recordSize = recordSize;
+        this.targetClass = targetClass;
+        this.parallel = parallel;
+    }
+
+    /**
+     * Returns a batch over the given primitive instance fields, which must all be declared by one class or its
+     * superclasses. Fields of records and hidden classes are supported too.
+     */
+    public static FieldBatch of(final Field... fields) {
+        final Field[] batchFields = fields.clone();
+        final Class<?>[] types = new Class<?>[batchFields.length];
+        final int[] kinds = new int[batchFields.length];
+        final long[] offsets = new long[batchFields.length];
+        final int[] recordOffsets = new int[batchFields.length];
+        int recordSize = 0;
+        Class<?> targetClass = Object.class;
+        for (int i = 0; i < batchFields.length; i++) {
+            final Field field = batchFields[i];
+            if (Modifier.isStatic(field.getModifiers()) || !field.getType().isPrimitive()) {
+                throw new IllegalArgumentException("Field " + field + " is not a primitive instance field");
+            }
+            final Class<?> declaringClass = field.getDeclaringClass();
+            if (targetClass.isAssignableFrom(declaringClass)) {
+                targetClass = declaringClass;
+            } else if (!declaringClass.isAssignableFrom(targetClass)) {
+                throw new IllegalArgumentException("Fields are declared by unrelated classes " + targetClass.getName()
+                        + " and " + declaringClass.getName());
+            }
+            types[i] = field.getType();
+            kinds[i] = kindOf(types[i]);
+            offsets[i] = FieldOffsets.objectFieldOffset(field);
+            recordOffsets[i] = recordSize;
+            recordSize += sizeOf(types[i]);
+        }
+        return new FieldBatch(batchFields, types, kinds, offsets, recordOffsets, recordSize, targetClass, false);
+    }
+
+    /** Returns a view of this batch that processes large operations on several cores. */
+    public FieldBatch parallel() {
+        return parallel ? this
+                : new FieldBatch(fields, types, kinds, offsets, recordOffsets, recordSize, targetClass, true);
+    }
+
+    /** Returns the number of bytes each target takes in a buffer, i.e. the sum of the sizes of the fields. */
+    public int getRecordSize() {
+        return recordSize;
+    }
+
+    /** Returns the field at the given index of this batch. */
+    public Field getField(final int index) {
+        return fields[index];
+    }
+
+    /** Reads the boolean field with the given index in this batch of each target into the corresponding value. */
+    public void getBooleans(final int field, final Object[] targets, final boolean[] values) {
+        final long offset = offsetOf(field, boolean.class, targets.length, values.length);
+        run(targets.length, new Range() {
+            @Override
+            void apply(final int from, final int to) {
+                for (int i = from; i < to; i++) {
+                    values[i] = unsafe.getBoolean(check(targets[i]), offset);
+                }
+            }
+        });
+    }
+
+    public void getBooleans(final int field, final List<?> targets, final boolean[] values) {
+        getBooleans(field, targets.toArray(), values);
+    }
+
+    /** Writes each value into the boolean field with the given index in this batch of the corresponding target. */
+    public void setBooleans(final int field, final Object[] targets, final boolean[] values) {
+        final long offset = offsetOf(field, boolean.class, targets.length, values.length);
+        run(targets.length, new Range() {
+            @Override
+            void apply(final int from, final int to) {
+                for (int i = from; i < to; i++) {
+                    unsafe.putBoolean(check(targets[i]), offset, values[i]);
+                }
+            }
+        });
+    }
+
+    public void setBooleans(final int field, final List<?> targets, final boolean[] values) {
+        setBooleans(field, targets.toArray(), values);
+    }
+
+    /** Reads the byte field with the given index in this batch of each target into the corresponding value. */
+    public void getBytes(final int field, final Object[] targets, final byte[] values) {
+        final long offset = offsetOf(field, byte.class, targets.length, values.length);
+        run(targets.length, new Range() {
+            @Override
+            void apply(final int from, final int to) {
+                for (int i = from; i < to; i++) {
+                    values[i] = unsafe.getByte(check(targets[i]), offset);
+                }
+            }
+        });
+    }
+
+    public void getBytes(final int field, final List<?> targets, final byte[] values) {
+        getBytes(field, targets.toArray(), values);
+    }
+
+    /** Writes each value into the byte field with the given index in this batch of the corresponding target. */
+    public void setBytes(final int field, final Object[] targets, final byte[] values) {
+        final long offset = offsetOf(field, byte.class, targets.length, values.length);
+        run(targets.length, new Range() {
+            @Override
+            void apply(final int from, final int to) {
+                for (int i = from; i < to; i++) {
+                    unsafe.putByte(check(targets[i]), offset, values[i]);
+                }
+            }
+        });
+    }
+
+    public void setBytes(final int field, final List<?> targets, final byte[] values) {
+        setBytes(field, targets.toArray(), values);
+    }
+
+    /** Reads the char field with the given index in this batch of each target into the corresponding value. */
+    public void getChars(final int field, final Object[] targets, final char[] values) {
+        final long offset = offsetOf(field, char.class, targets.length, values.length);
+        run(targets.length, new Range() {
+            @Override
+            void apply(final int from, final int to) {
+                for (int i = from; i < to; i++) {
+                    values[i] = unsafe.getChar(check(targets[i]), offset);
+                }
+            }
+        });
+    }
+
+    public void getChars(final int field, final List<?> targets, final char[] values) {
+        getChars(field, targets.toArray(), values);
+    }
+
+    /** Writes each value into the char field with the given index in this batch of the corresponding target. */
+    public void setChars(final int field, final Object[] targets, final char[] values) {
+        final long offset = offsetOf(field, char.class, targets.length, values.length);
+        run(targets.length, new Range() {
+            @Override
+            void apply(final int from, final int to) {
+                for (int i = from; i < to; i++) {
+                    unsafe.putChar(check(targets[i]), offset, values[i]);
+                }
+            }
+        });
+    }
+
+    public void setChars(final int field, final List<?> targets, final char[] values) {
+        setChars(field, targets.toArray(), values);
+    }
+
+    /** Reads the short field with the given index in this batch of each target into the corresponding value. */
+    public void getShorts(final int field, final Object[] targets, final short[] values) {
+        final long offset = offsetOf(field, short.class, targets.length, values.length);
+        run(targets.length, new Range() {
+            @Override
+            void apply(final int from, final int to) {
+                for (int i = from; i < to; i++) {
+                    values[i] = unsafe.getShort(check(targets[i]), offset);
+                }
+            }
+        });
+    }
+
+    public void getShorts(final int field, final List<?> targets, final short[] values) {
+        getShorts(field, targets.toArray(), values);
+    }
+
+    /** Writes each value into the short field with the given index in this batch of the corresponding target. */
+    public void setShorts(final int field, final Object[] targets, final short[] values) {
+        final long offset = offsetOf(field, short.class, targets.length, values.length);
+        run(targets.length, new Range() {
+            @Override
+            void apply(final int from, final int to) {
+                for (int i = from; i < to; i++) {
+                    unsafe.putShort(check(targets[i]), offset, values[i]);
+                }
+            }
+        });
+    }
+
+    public void setShorts(final int field, final List<?> targets, final short[] values) {
+        setShorts(field, targets.toArray(), values);
+    }
+
+    /** Reads the int field with the given index in this batch of each target into the corresponding value. */
+    public void getInts(final int field, final Object[] targets, final int[] values) {
+        final long offset = offsetOf(field, int.class, targets.length, values.length);
+        run(targets.length, new Range() {
+            @Override
+            void apply(final int from, final int to) {
+                for (int i = from; i < to; i++) {
+                    values[i] = unsafe.getInt(check(targets[i]), offset);
+                }
+            }
+        });
+    }
+
+    public void getInts(final int field, final List<?> targets, final int[] values) {
+        getInts(field, targets.toArray(), values);
+    }
+
+    /** Writes each value into the int field with the given index in this batch of the corresponding target. */
+    public void setInts(final int field, final Object[] targets, final int[] values) {
+        final long offset = offsetOf(field, int.class, targets.length, values.length);
+        run(targets.length, new Range() {
+            @Override
+            void apply(final int from, final int to) {
+                for (int i = from; i < to; i++) {
+                    unsafe.putInt(check(targets[i]), offset, values[i]);
+                }
+            }
+        });
+    }
+
+    public void setInts(final int field, final List<?> targets, final int[] values) {
+        setInts(field, targets.toArray(), values);
+    }
+
+    /** Reads the long field with the given index in this batch of each target into the corresponding value. */
+    public void getLongs(final int field, final Object[] targets, final long[] values) {
+        final long offset = offsetOf(field, long.class, targets.length, values.length);
+        run(targets.length, new Range() {
+            @Override
+            void apply(final int from, final int to) {
+                for (int i = from; i < to; i++) {
+                    values[i] = unsafe.getLong(check(targets[i]), offset);
+                }
+            }
+        });
+    }
+
+    public void getLongs(final int field, final List<?> targets, final long[] values) {
+        getLongs(field, targets.toArray(), values);
+    }
+
+    /** Writes each value into the long field with the given index in this batch of the corresponding target. */
+    public void setLongs(final int field, final Object[] targets, final long[] values) {
+        final long offset = offsetOf(field, long.class, targets.length, values.length);
+        run(targets.length, new Range() {
+            @Override
+            void apply(final int from, final int to) {
+                for (int i = from; i < to; i++) {
+                    unsafe.putLong(check(targets[i]), offset, values[i]);
+                }
+            }
+        });
+    }
+
+    public void setLongs(final int field, final List<?> targets, final long[] values) {
+        setLongs(field, targets.toArray(), values);
+    }
+
+    /** Reads the float field with the given index in this batch of each target into the corresponding value. */
+    public void getFloats(final int field, final Object[] targets, final float[] values) {
+        final long offset = offsetOf(field, float.class, targets.length, values.length);
+        run(targets.length, new Range() {
+            @Override
+            void apply(final int from, final int to) {
+                for (int i = from; i < to; i++) {
+                    values[i] = unsafe.getFloat(check(targets[i]), offset);
+                }
+            }
+        });
+    }
+
+    public void getFloats(final int field, final List<?> targets, final float[] values) {
+        getFloats(field, targets.toArray(), values);
+    }
+
+    /** Writes each value into the float field with the given index in this batch of the corresponding target. */
+    public void setFloats(final int field, final Object[] targets, final float[] values) {
+        final long offset = offsetOf(field, float.class, targets.length, values.length);
+        run(targets.length, new Range() {
+            @Override
+            void apply(final int from, final int to) {
+                for (int i = from; i < to; i++) {
+                    unsafe.putFloat(check(targets[i]), offset, values[i]);
+                }
+            }
+        });
+    }
+
+    public void setFloats(final int field, final List<?> targets, final float[] values) {
+        setFloats(field, targets.toArray(), values);
+    }
+
+    /** Reads the double field with the given index in this batch of each target into the corresponding value. */
+    public void getDoubles(final int field, final Object[] targets, final double[] values) {
+        final long offset = offsetOf(field, double.class, targets.length, values.length);
+        run(targets.length, new Range() {
+            @Override
+            void apply(final int from, final int to) {
+                for (int i = from; i < to; i++) {
+                    values[i] = unsafe.getDouble(check(targets[i]), offset);
+                }
+            }
+        });
+    }
+
+    public void getDoubles(final int field, final List<?> targets, final double[] values) {
+        getDoubles(field, targets.toArray(), values);
+    }
+
+    /** Writes each value into the double field with the given index in this batch of the corresponding target. */
+    public void setDoubles(final int field, final Object[] targets, final double[] values) {
+        final long offset = offsetOf(field, double.class, targets.length, values.length);
+        run(targets.length, new Range() {
+            @Override
+            void apply(final int from, final int to) {
+                for (int i = from; i < to; i++) {
+                    unsafe.putDouble(check(targets[i]), offset, values[i]);
+                }
+            }
+        });
+    }
+
+    public void setDoubles(final int field, final List<?> targets, final double[] values) {
+        setDoubles(field, targets.toArray(), values);
+    }
+
+    /**
+     * Writes all fields of each target as consecutive records, in field order and in the byte order of the buffer,
+     * starting at the position of the buffer, and advances the position past the last record. Booleans are written
+     * as a single byte.
+     */
+    public void gather(final Object[] targets, final ByteBuffer buffer) {
+        final int start = buffer.position();
+        final long length = (long) targets.length * recordSize;
+        if (length > buffer.remaining()) {
+            throw new BufferOverflowException();
+        }
+        run(targets.length, new Range() {
+            @Override
+            void apply(final int from, final int to) {
+                for (int i = from; i < to; i++) {
+                    write(check(targets[i]), buffer, start + i * recordSize);
+                }
+            }
+        });
+        ((Buffer) buffer).position(start + (int) length);
+    }
+
+    public void gather(final List<?> targets, final ByteBuffer buffer) {
+        gather(targets.toArray(), buffer);
+    }
+
+    /**
+     * Reads consecutive records written by {@link #gather(Object[], ByteBuffer)} into the fields of each target,
+     * starting at the position of the buffer, and advances the position past the last record.
+     */
+    public void scatter(final ByteBuffer buffer, final Object[] targets) {
+        final int start = buffer.position();
+        final long length = (long) targets.length * recordSize;
+        if (length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        run(targets.length, new Range() {
+            @Override
+            void apply(final int from, final int to) {
+                for (int i = from; i < to; i++) {
+                    read(buffer, start + i * recordSize, check(targets[i]));
+                }
+            }
+        });
+        ((Buffer) buffer).position(start + (int) length);
+    }
+
+    public void scatter(final ByteBuffer buffer, final List<?> targets) {
+        scatter(buffer, targets.toArray());
+    }
+
+    private void write(final Object target, final ByteBuffer buffer, final int position) {
+        for (int j = 0; j < kinds.length; j++) {
+            final int index = position + recordOffsets[j];
+            final long offset = offsets[j];
+            switch (kinds[j]) {
+            case BOOLEAN:
+                buffer.put(index, unsafe.getBoolean(target, offset) ? (byte) 1 : (byte) 0);
+                break;
+            case BYTE:
+                buffer.put(index, unsafe.getByte(target, offset));
+                break;
+            case CHAR:
+                buffer.putChar(index, unsafe.getChar(target, offset));
+                break;
+            case SHORT:
+                buffer.putShort(index, unsafe.getShort(target, offset));
+                break;
+            case INT:
+                buffer.putInt(index, unsafe.getInt(target, offset));
+                break;
+            case LONG:
+                buffer.putLong(index, unsafe.getLong(target, offset));
+                break;
+            case FLOAT:
+                buffer.putFloat(index, unsafe.getFloat(target, offset));
+                break;
+            default:
+                buffer.putDouble(index, unsafe.getDouble(target, offset));
+                break;
+            }
+        }
+    }
+
+    private void read(final ByteBuffer buffer, final int position, final Object target) {
+        for (int j = 0; j < kinds.length; j++) {
+            final int index = position + recordOffsets[j];
+            final long offset = offsets[j];
+            switch (kinds[j]) {
+            case BOOLEAN:
+                unsafe.putBoolean(target, offset, buffer.get(index) != 0);
+                break;
+            case BYTE:
+                unsafe.putByte(target, offset, buffer.get(index));
+                break;
+            case CHAR:
+                unsafe.putChar(target, offset, buffer.getChar(index));
+                break;
+            case SHORT:
+                unsafe.putShort(target, offset, buffer.getShort(index));
+                break;
+            case INT:
+                unsafe.putInt(target, offset, buffer.getInt(index));
+                break;
+            case LONG:
+                unsafe.putLong(target, offset, buffer.getLong(index));
+                break;
+            case FLOAT:
+                unsafe.putFloat(target, offset, buffer.getFloat(index));
+                break;
+            default:
+                unsafe.putDouble(target, offset, buffer.getDouble(index));
+                break;
+            }
+        }
+    }
+
+    private long offsetOf(final int field, final Class<?> type, final int targetCount, final int valueCount) {
+        if (types[field] != type) {
+            throw new IllegalArgumentException("Field " + fields[field].getName() + " of type "
+                    + types[field].getName() + " is not of type " + type.getName());
+        }
+        if (valueCount < targetCount) {
+            throw new IllegalArgumentException("Array of " + valueCount + " values is too short for " + targetCount
+                    + " targets");
+        }
+        return offsets[field];
+    }
+
+    private Object check(final Object target) {
+        if (!targetClass.isInstance(target)) {
+            throw new IllegalArgumentException("Target " + target + " is not an instance of " + targetClass.getName());
+        }
+        return target;
+    }
+
+    private void run(final int length, final Range range) {
+        if (parallel && length >= PARALLEL_THRESHOLD) {
+            ForkJoinPool.commonPool().invoke(new RangeTask(range, 0, length));
+        } else {
+            range.apply(0, length);
+        }
+    }
+
+    private static int kindOf(final Class<?> type) {
+        if (type == boolean.class) {
+            return BOOLEAN;
+        } else if (type == byte.class) {
+            return BYTE;
+        } else if (type == char.class) {
+            return CHAR;
+        } else if (type == short.class) {
+            return SHORT;
+        } else if (type == int.class) {
+            return INT;
+        } else if (type == long.class) {
+            return LONG;
+        } else if (type == float.class) {
+            return FLOAT;
+        } else {
+            return DOUBLE;
+        }
+    }
+
+    static int sizeOf(final Class<?> type) {
+        if (type == long.class || type == double.class) {
+            return 8;
+        } else if (type == int.class || type == float.class) {
+            return 4;
+        } else if (type == short.class || type == char.class) {
+            return 2;
+        } else {
+            return 1;
+        }
+    }
+
+    private abstract static class Range {
+        abstract void apply(int from, int to);
+    }
+
+    private static final class RangeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Range range;
+        private final int from;
+        private final int to;
+
+        RangeTask(final Range range, final int from, final int to) {
+            this.range = range;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from < PARALLEL_THRESHOLD) {
+                range.apply(from, to);
+            } else {
+                final int middle = (from + to) >>> 1;
+                invokeAll(new RangeTask(range, from, middle), new RangeTask(range, middle, to));
+            }
+        }
+    }
+}
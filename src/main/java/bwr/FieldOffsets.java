@@ -0,0 +1,123 @@
+/*
+ * This file is derived from Burningwave Core.
+ *
+ * Author: Roberto Gentili
+ * 
+ * Hosted at: https://github.com/burningwave/core
+ * 
+ * Modified by: Luke Hutchison
+ *
+ * Modifications hosted at:  https://github.com/lukehutch/burningwave-reflection
+ *
+ * --
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Roberto Gentili
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT
+ * LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO
+ * EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package bwr;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+
+import sun.misc.Unsafe;
+
+/**
+ * Field offsets from the public {@link Unsafe}, falling back to the internal one of JDK 9+ for the fields it
+ * refuses, i.e. those of records and hidden classes.
+ */
+final class FieldOffsets {
+    private static final Unsafe unsafe = ReflectionDriver.unsafe;
+
+    private FieldOffsets() {
+    }
+
+    /**
+     * @throws UnsupportedOperationException
+     *             if neither Unsafe gives the offset of the field
+     */
+    static long objectFieldOffset(final Field field) {
+        try {
+            return unsafe.objectFieldOffset(field);
+        } catch (final UnsupportedOperationException exc) {
+            return (long) invoke(InternalUnsafeHolder.objectFieldOffsetRetriever, field, exc);
+        }
+    }
+
+    static long staticFieldOffset(final Field field) {
+        try {
+            return unsafe.staticFieldOffset(field);
+        } catch (final UnsupportedOperationException exc) {
+            return (long) invoke(InternalUnsafeHolder.staticFieldOffsetRetriever, field, exc);
+        }
+    }
+
+    static Object staticFieldBase(final Field field) {
+        try {
+            return unsafe.staticFieldBase(field);
+        } catch (final UnsupportedOperationException exc) {
+            return invoke(InternalUnsafeHolder.staticFieldBaseRetriever, field, exc);
+        }
+    }
+
+    private static Object invoke(final MethodHandle retriever, final Field field,
+            final UnsupportedOperationException refusal) {
+        if (retriever == null) {
+            throw refusal;
+        }
+        try {
+            return retriever.invoke(field);
+        } catch (final Throwable exc) {
+            throw refusal;
+        }
+    }
+
+    // Only resolved once the public Unsafe refuses a field
+    private static final class InternalUnsafeHolder {
+        static final MethodHandle objectFieldOffsetRetriever;
+        static final MethodHandle staticFieldOffsetRetriever;
+        static final MethodHandle staticFieldBaseRetriever;
+
+        static {
+            MethodHandle objectFieldOffset = null;
+            MethodHandle staticFieldOffset = null;
+            MethodHandle staticFieldBase = null;
+            try {
+                final Class<?> internalUnsafeClass = Class.forName("jdk.internal.misc.Unsafe");
+                final MethodHandles.Lookup consulter = ReflectionDriver.getConsulter(internalUnsafeClass);
+                final Object internalUnsafe = consulter
+                        .findStatic(internalUnsafeClass, "getUnsafe", MethodType.methodType(internalUnsafeClass))
+                        .invoke();
+                final MethodType offsetType = MethodType.methodType(long.class, Field.class);
+                objectFieldOffset = consulter.findVirtual(internalUnsafeClass, "objectFieldOffset", offsetType)
+                        .bindTo(internalUnsafe);
+                staticFieldOffset = consulter.findVirtual(internalUnsafeClass, "staticFieldOffset", offsetType)
+                        .bindTo(internalUnsafe);
+                staticFieldBase = consulter.findVirtual(internalUnsafeClass, "staticFieldBase",
+                        MethodType.methodType(Object.class, Field.class)).bindTo(internalUnsafe);
+            } catch (final Throwable exc) {
+                // JDK 8, where every field can be addressed through the public Unsafe
+            }
+            objectFieldOffsetRetriever = objectFieldOffset;
+            staticFieldOffsetRetriever = staticFieldOffset;
+            staticFieldBaseRetriever = staticFieldBase;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * This file is derived from Burningwave Core.
+ *
+ * Author: Roberto Gentili
+ * 
+ * Hosted at: https://github.com/burningwave/core
+ * 
+ * Modified by: Luke Hutchison
+ *
+ * Modifications hosted at:  https://github.com/lukehutch/burningwave-reflection
+ *
+ * --
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Roberto Gentili
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT
+ * LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO
+ * EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package bwr;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import sun.misc.Unsafe;
+
+abstract class Initializer {
+    static final Logger logger = Logger.getLogger(ReflectionDriver.class.getName());
+
+    abstract void initConsulterRetriever();
+
+    abstract void initAccessibleSetter();
+
+    abstract void initPackageRetriever();
+
+    void initClassLoaderClasses() {
+        // No specific class loader classes by default
+    }
+
+    void initPackagesMapField() {
+        try {
+            ReflectionDriver.loadedPackagesMapMemoryOffset = ReflectionDriver.unsafe
+                    .objectFieldOffset(ReflectionDriver.getDeclaredField(ClassLoader.class, "packages"));
+        } catch (final Throwable exc) {
+            logger.log(Level.SEVERE, "Could not initialize field memory offset of loaded classes vector");
+            throw new RuntimeException(exc);
+        }
+    }
+
+    void initClassesVectorField() {
+        try {
+            ReflectionDriver.loadedClassesVectorMemoryOffset = ReflectionDriver.unsafe
+                    .objectFieldOffset(ReflectionDriver.getDeclaredField(ClassLoader.class, "classes"));
+        } catch (final Throwable exc) {
+            logger.log(Level.SEVERE, "Could not initialize field memory offset of packages map");
+            throw new RuntimeException(exc);
+        }
+    }
+
+    void initMembersRetrievers() {
+        try {
+            final MethodHandles.Lookup consulter = ReflectionDriver.getConsulter(Class.class);
+            ReflectionDriver.getDeclaredFieldsRetriever = consulter.findSpecial(Class.class,
+                    "getDeclaredFields0", MethodType.methodType(Field[].class, boolean.class), Class.class);
+
+            ReflectionDriver.getDeclaredMethodsRetriever = consulter.findSpecial(Class.class,
+                    "getDeclaredMethods0", MethodType.methodType(Method[].class, boolean.class), Class.class);
+
+            ReflectionDriver.getDeclaredConstructorsRetriever = consulter.findSpecial(Class.class,
+                    "getDeclaredConstructors0", MethodType.methodType(Constructor[].class, boolean.class),
+                    Class.class);
+        } catch (final Throwable exc) {
+            throw new RuntimeException(exc);
+        }
+    }
+
+    Class<?> defineAnonymousClass(final Class<?> outerClass, final byte[] byteCode,
+            final Object[] constantPoolPatches) {
+        try {
+            return (Class<?>) AnonymousClassDefinerHolder.anonymousClassDefiner.invokeExact(ReflectionDriver.unsafe,
+                    outerClass, byteCode, constantPoolPatches);
+        } catch (final Throwable exc) {
+            throw new RuntimeException(exc);
+        }
+    }
+
+    static byte[] readAllBytes(final InputStream inputStream) throws IOException {
+        final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        final byte[] data = new byte[8192];
+        for (int nRead; (nRead = inputStream.read(data, 0, data.length)) != -1;) {
+            buffer.write(data, 0, nRead);
+        }
+        buffer.flush();
+        final byte[] byteArray = buffer.toByteArray();
+        return byteArray;
+    }
+
+    // Unsafe.defineAnonymousClass is not part of the API of every JDK the driver is compiled with
+    private static class AnonymousClassDefinerHolder {
+        static final MethodHandle anonymousClassDefiner;
+
+        static {
+            try {
+                anonymousClassDefiner = MethodHandles.lookup().findVirtual(Unsafe.class, "defineAnonymousClass",
+                        MethodType.methodType(Class.class, Class.class, byte[].class, Object[].class));
+            } catch (final Throwable exc) {
+                logger.log(Level.SEVERE, "Could not initialize anonymous class definer");
+                throw new RuntimeException(exc);
+            }
+        }
+    }
+}
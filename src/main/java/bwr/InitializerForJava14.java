@@ -0,0 +1,67 @@
+/*
+ * This file is derived from Burningwave Core.
+ *
+ * Author: Roberto Gentili
+ * 
+ * Hosted at: https://github.com/burningwave/core
+ * 
+ * Modified by: Luke Hutchison
+ *
+ * Modifications hosted at:  https://github.com/lukehutch/burningwave-reflection
+ *
+ * --
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Roberto Gentili
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT
+ * LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO
+ * EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package bwr;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodHandles.Lookup;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.util.function.Function;
+
+class InitializerForJava14 extends InitializerForJava9 {
+    @Override
+    void initDeepConsulterRetriever() throws Throwable {
+        final Constructor<?> lookupCtor = MethodHandles.Lookup.class.getDeclaredConstructor(Class.class,
+                Class.class, int.class);
+        final Field fullPowerModeConstant = MethodHandles.Lookup.class.getDeclaredField("FULL_POWER_MODES");
+        makeAccessible(lookupCtor, fullPowerModeConstant);
+        final int fullPowerModeConstantValue = fullPowerModeConstant.getInt(null);
+        final MethodHandle methodHandle = ((MethodHandles.Lookup) lookupCtor
+                .newInstance(MethodHandles.Lookup.class, null, fullPowerModeConstantValue)).findConstructor(
+                        MethodHandles.Lookup.class,
+                        MethodType.methodType(void.class, Class.class, Class.class, int.class));
+        ReflectionDriver.consulterRetriever = new Function<Class<?>, Lookup>() {
+            @Override
+            public Lookup apply(final Class<?> cls) {
+                try {
+                    return (MethodHandles.Lookup) methodHandle.invokeExact(cls, (Class<?>) null,
+                            fullPowerModeConstantValue);
+                } catch (final Throwable exc) {
+                    throw new RuntimeException(exc);
+                }
+            }
+        };
+    }
+}
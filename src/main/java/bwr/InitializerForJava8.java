@@ -0,0 +1,103 @@
+/*
+ * This file is derived from Burningwave Core.
+ *
+ * Author: Roberto Gentili
+ * 
+ * Hosted at: https://github.com/burningwave/core
+ * 
+ * Modified by: Luke Hutchison
+ *
+ * Modifications hosted at:  https://github.com/lukehutch/burningwave-reflection
+ *
+ * --
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Roberto Gentili
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT
+ * LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO
+ * EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package bwr;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodHandles.Lookup;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.logging.Level;
+
+import bwr.ReflectionDriver.TriFunction;
+
+class InitializerForJava8 extends Initializer {
+    @Override
+    void initConsulterRetriever() {
+        try {
+            final Constructor<Lookup> lookupCtor = Lookup.class.getDeclaredConstructor(Class.class, int.class);
+            lookupCtor.setAccessible(true);
+            final MethodHandle methodHandle = MethodHandles.lookup().unreflectConstructor(lookupCtor);
+            ReflectionDriver.consulterRetriever = new Function<Class<?>, Lookup>() {
+                @Override
+                public Lookup apply(final Class<?> cls) {
+                    try {
+                        return (Lookup) methodHandle.invokeExact(cls, -1);
+                    } catch (final Throwable exc) {
+                        throw new RuntimeException(exc);
+                    }
+                }
+            };
+        } catch (final Throwable exc) {
+            logger.log(Level.SEVERE, "Could not initialize consulter retriever");
+            throw new RuntimeException(exc);
+        }
+    }
+
+    @Override
+    void initAccessibleSetter() {
+        try {
+            final Method accessibleSetterMethod = AccessibleObject.class.getDeclaredMethod("setAccessible0",
+                    AccessibleObject.class, boolean.class);
+            final MethodHandle accessibleSetterMethodHandle = ReflectionDriver
+                    .getConsulter(AccessibleObject.class).unreflect(accessibleSetterMethod);
+            ReflectionDriver.accessibleSetter = new BiConsumer<AccessibleObject, Boolean>() {
+                @Override
+                public void accept(final AccessibleObject accessibleObject, final Boolean flag) {
+                    try {
+                        accessibleSetterMethodHandle.invoke(accessibleObject, flag);
+                    } catch (final Throwable exc) {
+                        throw new RuntimeException(exc);
+                    }
+                }
+            };
+        } catch (final Throwable exc) {
+            logger.log(Level.SEVERE, "Could not initialize accessible setter");
+            throw new RuntimeException(exc);
+        }
+    }
+
+    @Override
+    void initPackageRetriever() {
+        ReflectionDriver.packageRetriever = new TriFunction<ClassLoader, Object, String, Package>() {
+            @Override
+            public Package apply(final ClassLoader classLoader, final Object object,
+                    final String packageName) {
+                return (Package) object;
+            }
+        };
+    }
+}
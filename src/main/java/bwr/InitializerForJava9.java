@@ -0,0 +1,205 @@
+/*
+ * This file is derived from Burningwave Core.
+ *
+ * Author: Roberto Gentili
+ * 
+ * Hosted at: https://github.com/burningwave/core
+ * 
+ * Modified by: Luke Hutchison
+ *
+ * Modifications hosted at:  https://github.com/lukehutch/burningwave-reflection
+ *
+ * --
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Roberto Gentili
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT
+ * LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO
+ * EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package bwr;
+
+import java.io.InputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodHandles.Lookup;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.logging.Level;
+
+import bwr.ReflectionDriver.TriFunction;
+
+@SuppressWarnings("unchecked")
+class InitializerForJava9 extends Initializer {
+    InitializerForJava9() {
+        try {
+            final Class<?> cls = Class.forName("jdk.internal.module.IllegalAccessLogger");
+            final Field logger = cls.getDeclaredField("logger");
+            final long loggerFieldOffset = ReflectionDriver.unsafe.staticFieldOffset(logger);
+            final Object illegalAccessLogger = ReflectionDriver.unsafe.getObjectVolatile(cls,
+                    loggerFieldOffset);
+            ReflectionDriver.illegalAccessLoggerDisabler = new Runnable() {
+                @Override
+                public void run() {
+                    ReflectionDriver.unsafe.putObjectVolatile(cls, loggerFieldOffset, null);
+                }
+            };
+            ReflectionDriver.illegalAccessLoggerEnabler = new Runnable() {
+                @Override
+                public void run() {
+                    ReflectionDriver.unsafe.putObjectVolatile(cls, loggerFieldOffset, illegalAccessLogger);
+                }
+            };
+            ReflectionDriver.disableIllegalAccessLogger();
+        } catch (final Throwable e) {
+
+        }
+    }
+
+    @Override
+    void initConsulterRetriever() {
+        try (InputStream inputStream = ReflectionDriver.class.getClassLoader()
+                .getResourceAsStream(this.getClass().getPackage().getName().replace(".", "/")
+                        + "/ConsulterRetrieverForJDK9.bwc")) {
+            final Class<?> methodHandleWrapperClass = ReflectionDriver.defineAnonymousClass(Class.class,
+                    readAllBytes(inputStream), null);
+            final MethodHandles.Lookup consulter = MethodHandles.lookup();
+            final MethodHandle methodHandle = consulter.findStatic(MethodHandles.class, "privateLookupIn",
+                    MethodType.methodType(MethodHandles.Lookup.class, Class.class,
+                            MethodHandles.Lookup.class));
+            ReflectionDriver.unsafe
+                    .putObject(methodHandleWrapperClass,
+                            ReflectionDriver.unsafe.staticFieldOffset(
+                                    methodHandleWrapperClass.getDeclaredField("consulterRetriever")),
+                            methodHandle);
+            ReflectionDriver.consulterRetriever = (Function<Class<?>, MethodHandles.Lookup>) ReflectionDriver.unsafe
+                    .allocateInstance(methodHandleWrapperClass);
+        } catch (final Throwable exc) {
+            logger.log(Level.SEVERE, "Could not initialize consulter retriever");
+            throw new RuntimeException(exc);
+        }
+        try {
+            initDeepConsulterRetriever();
+        } catch (final Throwable exc) {
+            logger.log(Level.INFO, "Could not initialize deep consulter retriever");
+            throw new RuntimeException(exc);
+        }
+    }
+
+    @Override
+    void initAccessibleSetter() {
+        try (InputStream inputStream = ReflectionDriver.class.getClassLoader()
+                .getResourceAsStream(this.getClass().getPackage().getName().replace(".", "/")
+                        + "/AccessibleSetterInvokerForJDK9.bwc");) {
+            final Class<?> methodHandleWrapperClass = ReflectionDriver
+                    .defineAnonymousClass(AccessibleObject.class, readAllBytes(inputStream), null);
+            ReflectionDriver.unsafe.putObject(methodHandleWrapperClass,
+                    ReflectionDriver.unsafe.staticFieldOffset(
+                            methodHandleWrapperClass.getDeclaredField("methodHandleRetriever")),
+                    ReflectionDriver.getConsulter(methodHandleWrapperClass));
+            ReflectionDriver.accessibleSetter = (BiConsumer<AccessibleObject, Boolean>) ReflectionDriver.unsafe
+                    .allocateInstance(methodHandleWrapperClass);
+        } catch (final Throwable exc) {
+            logger.log(Level.SEVERE, "Could not initialize accessible setter");
+            throw new RuntimeException(exc);
+        }
+    }
+
+    @Override
+    void initPackageRetriever() {
+        try {
+            final MethodHandles.Lookup classLoaderConsulter = ReflectionDriver
+                    .getConsulter(ClassLoader.class);
+            final MethodType methodType = MethodType.methodType(Package.class, String.class);
+            final MethodHandle methodHandle = classLoaderConsulter.findSpecial(ClassLoader.class,
+                    "getDefinedPackage", methodType, ClassLoader.class);
+            ReflectionDriver.packageRetriever = new TriFunction<ClassLoader, Object, String, Package>() {
+                @Override
+                public Package apply(final ClassLoader classLoader, final Object object,
+                        final String packageName) {
+                    try {
+                        return (Package) methodHandle.invokeExact(classLoader, packageName);
+                    } catch (final Throwable exc) {
+                        throw new RuntimeException(exc);
+                    }
+                }
+            };
+        } catch (final Throwable exc) {
+            logger.log(Level.SEVERE, "Could not initialize package retriever");
+            throw new RuntimeException(exc);
+        }
+    }
+
+    @Override
+    void initClassLoaderClasses() {
+        try {
+            ReflectionDriver.builtinClassLoaderClass = Class
+                    .forName("jdk.internal.loader.BuiltinClassLoader");
+        } catch (final Throwable exc) {
+            logger.log(Level.SEVERE, "Could not initialize builtin class loader class");
+            throw new RuntimeException(exc);
+        }
+        try (InputStream inputStream = ReflectionDriver.class.getClassLoader()
+                .getResourceAsStream(this.getClass().getPackage().getName().replace('.', '/')
+                        + "/ClassLoaderDelegateForJDK9.bwc")) {
+            ReflectionDriver.classLoaderDelegateClass = ReflectionDriver.defineAnonymousClass(
+                    ReflectionDriver.builtinClassLoaderClass, readAllBytes(inputStream), null);
+        } catch (final Throwable exc) {
+            logger.log(Level.SEVERE, "Could not initialize class loader delegate class");
+            throw new RuntimeException(exc);
+        }
+    }
+
+    /**
+     * Makes the objects accessible through the shallow consulter retriever. {@link ReflectionDriver#setAccessible}
+     * cannot be used while the deep consulter retriever is initialized, as the accessible setter is itself
+     * initialized with a consulter, and two threads initializing each of them would deadlock.
+     */
+    static void makeAccessible(final AccessibleObject... objects) throws Throwable {
+        final MethodHandle accessibleSetter = ReflectionDriver.consulterRetriever.apply(AccessibleObject.class)
+                .findVirtual(AccessibleObject.class, "setAccessible0",
+                        MethodType.methodType(boolean.class, boolean.class));
+        for (final AccessibleObject object : objects) {
+            accessibleSetter.invoke(object, true);
+        }
+    }
+
+    void initDeepConsulterRetriever() throws Throwable {
+        final Constructor<MethodHandles.Lookup> lookupCtor = MethodHandles.Lookup.class
+                .getDeclaredConstructor(Class.class, int.class);
+        final Field fullPowerModeConstant = MethodHandles.Lookup.class.getDeclaredField("FULL_POWER_MODES");
+        makeAccessible(lookupCtor, fullPowerModeConstant);
+        final int fullPowerModeConstantValue = fullPowerModeConstant.getInt(null);
+        final MethodHandle methodHandle = lookupCtor
+                .newInstance(MethodHandles.Lookup.class, fullPowerModeConstantValue)
+                .findConstructor(MethodHandles.Lookup.class,
+                        MethodType.methodType(void.class, Class.class, int.class));
+        ReflectionDriver.consulterRetriever = new Function<Class<?>, Lookup>() {
+            @Override
+            public Lookup apply(final Class<?> cls) {
+                try {
+                    return (MethodHandles.Lookup) methodHandle.invokeExact(cls, fullPowerModeConstantValue);
+                } catch (final Throwable exc) {
+                    throw new RuntimeException(exc);
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * This file is derived from Burningwave Core.
+ *
+ * Author: Roberto Gentili
+ * 
+ * Hosted at: https://github.com/burningwave/core
+ * 
+ * Modified by: Luke Hutchison
+ *
+ * Modifications hosted at:  https://github.com/lukehutch/burningwave-reflection
+ *
+ * --
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Roberto Gentili
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT
+ * LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO
+ * EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package bwr;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodHandles.Lookup;
+import java.lang.reflect.Method;
+
+/**
+ * Selects the initializer for the running JVM. The multi-release JAR of the driver contains a version of this
+ * class for each JDK line, which returns its initializer directly. This base version is used on JDK 8 and when the
+ * driver is not loaded as a multi-release JAR, e.g. from a directory of classes or a shaded JAR, in which case the
+ * Java version is detected at runtime and initializers compiled for a later JDK are defined from their versioned
+ * directory.
+ */
+final class Initializers {
+    private Initializers() {
+    }
+
+    static Initializer forCurrentJVM() {
+        // Get Java major version
+        String jvmVersionStr = System.getProperty("java.version");
+        int startIdx = 0;
+        while (startIdx < jvmVersionStr.length() && !Character.isDigit(jvmVersionStr.charAt(startIdx))) {
+            startIdx++;
+        }
+        if (startIdx > 0) {
+            jvmVersionStr = jvmVersionStr.substring(startIdx);
+        }
+        if (jvmVersionStr.startsWith("1.")) {
+            jvmVersionStr = jvmVersionStr.substring(2);
+        }
+        int endIdx = 1;
+        while (endIdx < jvmVersionStr.length() && Character.isDigit(jvmVersionStr.charAt(endIdx))) {
+            endIdx++;
+        }
+        int jvmMajorVersion = 0;
+        try {
+            jvmMajorVersion = Integer.parseInt(jvmVersionStr.substring(0, endIdx));
+        } catch (final NumberFormatException e) {
+            // Ignore
+        }
+
+        if (jvmMajorVersion <= 8) {
+            return new InitializerForJava8();
+        } else if (jvmMajorVersion <= 13) {
+            return new InitializerForJava9();
+        } else if (jvmMajorVersion <= 16) {
+            return new InitializerForJava14();
+        } else {
+            return loadVersionedInitializer(17, "InitializerForJava17");
+        }
+    }
+
+    /**
+     * Loads an initializer from META-INF/versions/{version}, defining it and its anonymous classes in the package
+     * of this class if the class loader does not find it.
+     */
+    private static Initializer loadVersionedInitializer(final int version, final String simpleName) {
+        final String className = Initializers.class.getName().substring(0,
+                Initializers.class.getName().lastIndexOf('.') + 1) + simpleName;
+        final ClassLoader classLoader = Initializers.class.getClassLoader();
+        try {
+            Class<?> cls;
+            try {
+                cls = Class.forName(className, false, classLoader);
+            } catch (final ClassNotFoundException exc) {
+                final String resourcePrefix = "META-INF/versions/" + version + "/" + className.replace('.', '/');
+                final byte[] byteCode = readResource(classLoader, resourcePrefix + ".class");
+                if (byteCode == null) {
+                    throw new IllegalStateException("Java " + version + "+ requires the classes of the driver in "
+                            + "META-INF/versions/" + version + ", which were not found", exc);
+                }
+                final Lookup lookup = MethodHandles.lookup();
+                // Lookup.defineClass is only available from JDK 9, the base classes are compiled for JDK 8
+                final Method defineClass = Lookup.class.getMethod("defineClass", byte[].class);
+                cls = (Class<?>) defineClass.invoke(lookup, (Object) byteCode);
+                byte[] nestedByteCode;
+                for (int i = 1; (nestedByteCode = readResource(classLoader, resourcePrefix + "$" + i
+                        + ".class")) != null; i++) {
+                    defineClass.invoke(lookup, (Object) nestedByteCode);
+                }
+            }
+            return (Initializer) cls.getDeclaredConstructor().newInstance();
+        } catch (final RuntimeException exc) {
+            throw exc;
+        } catch (final Throwable exc) {
+            throw new RuntimeException("Could not load " + className, exc);
+        }
+    }
+
+    private static byte[] readResource(final ClassLoader classLoader, final String name) throws IOException {
+        try (InputStream inputStream = classLoader == null ? ClassLoader.getSystemResourceAsStream(name)
+                : classLoader.getResourceAsStream(name)) {
+            if (inputStream == null) {
+                return null;
+            }
+            final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[8192];
+            for (int read; (read = inputStream.read(buffer)) > 0;) {
+                outputStream.write(buffer, 0, read);
+            }
+            return outputStream.toByteArray();
+        }
+    }
+}
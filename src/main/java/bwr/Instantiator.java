@@ -0,0 +1,286 @@
+/*
+ * This file is derived from Burningwave Core.
+ *
+ * Author: Roberto Gentili
+ * 
+ * Hosted at: https://github.com/burningwave/core
+ * 
+ * Modified by: Luke Hutchison
+ *
+ * Modifications hosted at:  https://github.com/lukehutch/burningwave-reflection
+ *
+ * --
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Roberto Gentili
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT
+ * LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO
+ * EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package bwr;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+
+/**
+ * Creates instances of a class, either through a cached constructor handle obtained with the full-power consulter
+ * of the class, or, for deserialization use cases, by allocating instances without running any constructor. The
+ * fixed-arity newInstance methods do not allocate anything besides the new instance, and exceptions thrown by the
+ * constructor are propagated as they are.
+ */
+@SuppressWarnings("unchecked")
+public abstract class Instantiator<T> {
+    final Class<T> cls;
+
+    Instantiator(final Class<T> cls) {
+        this.cls = cls;
+    }
+
+    static <T> Instantiator<T> of(final Constructor<T> constructor) {
+        return Members.of(constructor.getDeclaringClass()).getInstantiator(constructor);
+    }
+
+    static <T> Instantiator<T> create(final Constructor<T> constructor) {
+        final MethodHandle methodHandle;
+        try {
+            methodHandle = ReflectionDriver.getConsulter(constructor.getDeclaringClass())
+                    .unreflectConstructor(constructor);
+        } catch (final IllegalAccessException exc) {
+            throw new RuntimeException(exc);
+        }
+        final int arity = constructor.getParameterTypes().length;
+        switch (arity) {
+        case 0:
+            return new Instantiator0<>(constructor, methodHandle.asType(MethodType.genericMethodType(0)));
+        case 1:
+            return new Instantiator1<>(constructor, methodHandle.asType(MethodType.genericMethodType(1)));
+        case 2:
+            return new Instantiator2<>(constructor, methodHandle.asType(MethodType.genericMethodType(2)));
+        case 3:
+            return new Instantiator3<>(constructor, methodHandle.asType(MethodType.genericMethodType(3)));
+        case 4:
+            return new Instantiator4<>(constructor, methodHandle.asType(MethodType.genericMethodType(4)));
+        case 5:
+            return new Instantiator5<>(constructor, methodHandle.asType(MethodType.genericMethodType(5)));
+        default:
+            return new InstantiatorN<>(constructor, methodHandle.asSpreader(Object[].class, arity)
+                    .asType(MethodType.genericMethodType(0, true)));
+        }
+    }
+
+    public Class<T> getInstantiatedClass() {
+        return cls;
+    }
+
+    public T newInstance() throws Throwable {
+        throw wrongNumberOfArguments(0);
+    }
+
+    public T newInstance(final Object arg0) throws Throwable {
+        throw wrongNumberOfArguments(1);
+    }
+
+    public T newInstance(final Object arg0, final Object arg1) throws Throwable {
+        throw wrongNumberOfArguments(2);
+    }
+
+    public T newInstance(final Object arg0, final Object arg1, final Object arg2) throws Throwable {
+        throw wrongNumberOfArguments(3);
+    }
+
+    public T newInstance(final Object arg0, final Object arg1, final Object arg2, final Object arg3) throws Throwable {
+        throw wrongNumberOfArguments(4);
+    }
+
+    public T newInstance(final Object arg0, final Object arg1, final Object arg2, final Object arg3,
+            final Object arg4) throws Throwable {
+        throw wrongNumberOfArguments(5);
+    }
+
+    public abstract T newInstanceWithArguments(Object[] arguments) throws Throwable;
+
+    final IllegalArgumentException wrongNumberOfArguments(final int count) {
+        return new IllegalArgumentException("Wrong number of arguments for instantiating " + cls.getName() + ": "
+                + count);
+    }
+
+    static int argumentCount(final Object[] arguments) {
+        return arguments != null ? arguments.length : 0;
+    }
+
+    abstract static class ConstructorInstantiator<T> extends Instantiator<T> {
+        final MethodHandle methodHandle;
+
+        ConstructorInstantiator(final Constructor<T> constructor, final MethodHandle methodHandle) {
+            super(constructor.getDeclaringClass());
+            this.methodHandle = methodHandle;
+        }
+    }
+
+    static final class Instantiator0<T> extends ConstructorInstantiator<T> {
+        Instantiator0(final Constructor<T> constructor, final MethodHandle methodHandle) {
+            super(constructor, methodHandle);
+        }
+
+        @Override
+        public T newInstance() throws Throwable {
+            return (T) methodHandle.invokeExact();
+        }
+
+        @Override
+        public T newInstanceWithArguments(final Object[] arguments) throws Throwable {
+            if (argumentCount(arguments) != 0) {
+                throw wrongNumberOfArguments(argumentCount(arguments));
+            }
+            return (T) methodHandle.invokeExact();
+        }
+    }
+
+    static final class Instantiator1<T> extends ConstructorInstantiator<T> {
+        Instantiator1(final Constructor<T> constructor, final MethodHandle methodHandle) {
+            super(constructor, methodHandle);
+        }
+
+        @Override
+        public T newInstance(final Object arg0) throws Throwable {
+            return (T) methodHandle.invokeExact(arg0);
+        }
+
+        @Override
+        public T newInstanceWithArguments(final Object[] arguments) throws Throwable {
+            if (argumentCount(arguments) != 1) {
+                throw wrongNumberOfArguments(argumentCount(arguments));
+            }
+            return (T) methodHandle.invokeExact(arguments[0]);
+        }
+    }
+
+    static final class Instantiator2<T> extends ConstructorInstantiator<T> {
+        Instantiator2(final Constructor<T> constructor, final MethodHandle methodHandle) {
+            super(constructor, methodHandle);
+        }
+
+        @Override
+        public T newInstance(final Object arg0, final Object arg1) throws Throwable {
+            return (T) methodHandle.invokeExact(arg0, arg1);
+        }
+
+        @Override
+        public T newInstanceWithArguments(final Object[] arguments) throws Throwable {
+            if (argumentCount(arguments) != 2) {
+                throw wrongNumberOfArguments(argumentCount(arguments));
+            }
+            return (T) methodHandle.invokeExact(arguments[0], arguments[1]);
+        }
+    }
+
+    static final class Instantiator3<T> extends ConstructorInstantiator<T> {
+        Instantiator3(final Constructor<T> constructor, final MethodHandle methodHandle) {
+            super(constructor, methodHandle);
+        }
+
+        @Override
+        public T newInstance(final Object arg0, final Object arg1, final Object arg2) throws Throwable {
+            return (T) methodHandle.invokeExact(arg0, arg1, arg2);
+        }
+
+        @Override
+        public T newInstanceWithArguments(final Object[] arguments) throws Throwable {
+            if (argumentCount(arguments) != 3) {
+                throw wrongNumberOfArguments(argumentCount(arguments));
+            }
+            return (T) methodHandle.invokeExact(arguments[0], arguments[1], arguments[2]);
+        }
+    }
+
+    static final class Instantiator4<T> extends ConstructorInstantiator<T> {
+        Instantiator4(final Constructor<T> constructor, final MethodHandle methodHandle) {
+            super(constructor, methodHandle);
+        }
+
+        @Override
+        public T newInstance(final Object arg0, final Object arg1, final Object arg2, final Object arg3)
+                throws Throwable {
+            return (T) methodHandle.invokeExact(arg0, arg1, arg2, arg3);
+        }
+
+        @Override
+        public T newInstanceWithArguments(final Object[] arguments) throws Throwable {
+            if (argumentCount(arguments) != 4) {
+                throw wrongNumberOfArguments(argumentCount(arguments));
+            }
+            return (T) methodHandle.invokeExact(arguments[0], arguments[1], arguments[2], arguments[3]);
+        }
+    }
+
+    static final class Instantiator5<T> extends ConstructorInstantiator<T> {
+        Instantiator5(final Constructor<T> constructor, final MethodHandle methodHandle) {
+            super(constructor, methodHandle);
+        }
+
+        @Override
+        public T newInstance(final Object arg0, final Object arg1, final Object arg2, final Object arg3,
+                final Object arg4) throws Throwable {
+            return (T) methodHandle.invokeExact(arg0, arg1, arg2, arg3, arg4);
+        }
+
+        @Override
+        public T newInstanceWithArguments(final Object[] arguments) throws Throwable {
+            if (argumentCount(arguments) != 5) {
+                throw wrongNumberOfArguments(argumentCount(arguments));
+            }
+            return (T) methodHandle.invokeExact(arguments[0], arguments[1], arguments[2], arguments[3], arguments[4]);
+        }
+    }
+
+    static final class InstantiatorN<T> extends ConstructorInstantiator<T> {
+        private final int arity;
+
+        InstantiatorN(final Constructor<T> constructor, final MethodHandle methodHandle) {
+            super(constructor, methodHandle);
+            this.arity = constructor.getParameterTypes().length;
+        }
+
+        @Override
+        public T newInstanceWithArguments(final Object[] arguments) throws Throwable {
+            if (argumentCount(arguments) != arity) {
+                throw wrongNumberOfArguments(argumentCount(arguments));
+            }
+            return (T) methodHandle.invokeExact(arguments);
+        }
+    }
+
+    /** Allocates instances without running any constructor, leaving all instance fields at their default value. */
+    static final class AllocatingInstantiator<T> extends Instantiator<T> {
+        AllocatingInstantiator(final Class<T> cls) {
+            super(cls);
+        }
+
+        @Override
+        public T newInstance() throws Throwable {
+            return (T) ReflectionDriver.unsafe.allocateInstance(cls);
+        }
+
+        @Override
+        public T newInstanceWithArguments(final Object[] arguments) throws Throwable {
+            if (argumentCount(arguments) != 0) {
+                throw wrongNumberOfArguments(argumentCount(arguments));
+            }
+            return (T) ReflectionDriver.unsafe.allocateInstance(cls);
+        }
+    }
+}
@@ -0,0 +1,266 @@
+/*
+ * This file is derived from Burningwave Core.
+ *
+ * Author: Roberto Gentili
+ * 
+ * Hosted at: https://github.com/burningwave/core
+ * 
+ * Modified by: Luke Hutchison
+ *
+ * Modifications hosted at:  https://github.com/lukehutch/burningwave-reflection
+ *
+ * --
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Roberto Gentili
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT
+ * LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO
+ * EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package bwr;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * Invoker for a single method, backed by a method handle obtained through the full-power consulter of the
+ * declaring class. The fixed-arity invoke methods do not allocate, and exceptions thrown by the invoked method are
+ * propagated as they are. For static methods the target is ignored.
+ */
+public abstract class Invoker {
+    static final int MAX_SPECIALIZED_ARITY = 5;
+
+    final Method method;
+    final MethodHandle methodHandle;
+
+    Invoker(final Method method, final MethodHandle methodHandle) {
+        this.method = method;
+        this.methodHandle = methodHandle;
+    }
+
+    static Invoker of(final Method method) {
+        return Members.of(method.getDeclaringClass()).getInvoker(method);
+    }
+
+    static Invoker create(final Method method) {
+        MethodHandle methodHandle;
+        try {
+            methodHandle = ReflectionDriver.getConsulter(method.getDeclaringClass()).unreflect(method);
+        } catch (final IllegalAccessException exc) {
+            throw new RuntimeException(exc);
+        }
+        if (Modifier.isStatic(method.getModifiers())) {
+            methodHandle = MethodHandles.dropArguments(methodHandle, 0, Object.class);
+        }
+        final int arity = method.getParameterTypes().length;
+        switch (arity) {
+        case 0:
+            return new Invoker0(method, methodHandle.asType(MethodType.genericMethodType(1)));
+        case 1:
+            return new Invoker1(method, methodHandle.asType(MethodType.genericMethodType(2)));
+        case 2:
+            return new Invoker2(method, methodHandle.asType(MethodType.genericMethodType(3)));
+        case 3:
+            return new Invoker3(method, methodHandle.asType(MethodType.genericMethodType(4)));
+        case 4:
+            return new Invoker4(method, methodHandle.asType(MethodType.genericMethodType(5)));
+        case 5:
+            return new Invoker5(method, methodHandle.asType(MethodType.genericMethodType(6)));
+        default:
+            return new InvokerN(method, methodHandle.asSpreader(Object[].class, arity)
+                    .asType(MethodType.genericMethodType(1, true)));
+        }
+    }
+
+    public Method getMethod() {
+        return method;
+    }
+
+    public Object invoke(final Object target) throws Throwable {
+        throw wrongNumberOfArguments(0);
+    }
+
+    public Object invoke(final Object target, final Object arg0) throws Throwable {
+        throw wrongNumberOfArguments(1);
+    }
+
+    public Object invoke(final Object target, final Object arg0, final Object arg1) throws Throwable {
+        throw wrongNumberOfArguments(2);
+    }
+
+    public Object invoke(final Object target, final Object arg0, final Object arg1, final Object arg2)
+            throws Throwable {
+        throw wrongNumberOfArguments(3);
+    }
+
+    public Object invoke(final Object target, final Object arg0, final Object arg1, final Object arg2,
+            final Object arg3) throws Throwable {
+        throw wrongNumberOfArguments(4);
+    }
+
+    public Object invoke(final Object target, final Object arg0, final Object arg1, final Object arg2,
+            final Object arg3, final Object arg4) throws Throwable {
+        throw wrongNumberOfArguments(5);
+    }
+
+    public abstract Object invokeWithArguments(Object target, Object[] arguments) throws Throwable;
+
+    final IllegalArgumentException wrongNumberOfArguments(final int count) {
+        return new IllegalArgumentException("Wrong number of arguments for " + method + ": " + count);
+    }
+
+    static int argumentCount(final Object[] arguments) {
+        return arguments != null ? arguments.length : 0;
+    }
+
+    static final class Invoker0 extends Invoker {
+        Invoker0(final Method method, final MethodHandle methodHandle) {
+            super(method, methodHandle);
+        }
+
+        @Override
+        public Object invoke(final Object target) throws Throwable {
+            return methodHandle.invokeExact(target);
+        }
+
+        @Override
+        public Object invokeWithArguments(final Object target, final Object[] arguments) throws Throwable {
+            if (argumentCount(arguments) != 0) {
+                throw wrongNumberOfArguments(argumentCount(arguments));
+            }
+            return methodHandle.invokeExact(target);
+        }
+    }
+
+    static final class Invoker1 extends Invoker {
+        Invoker1(final Method method, final MethodHandle methodHandle) {
+            super(method, methodHandle);
+        }
+
+        @Override
+        public Object invoke(final Object target, final Object arg0) throws Throwable {
+            return methodHandle.invokeExact(target, arg0);
+        }
+
+        @Override
+        public Object invokeWithArguments(final Object target, final Object[] arguments) throws Throwable {
+            if (argumentCount(arguments) != 1) {
+                throw wrongNumberOfArguments(argumentCount(arguments));
+            }
+            return methodHandle.invokeExact(target, arguments[0]);
+        }
+    }
+
+    static final class Invoker2 extends Invoker {
+        Invoker2(final Method method, final MethodHandle methodHandle) {
+            super(method, methodHandle);
+        }
+
+        @Override
+        public Object invoke(final Object target, final Object arg0, final Object arg1) throws Throwable {
+            return methodHandle.invokeExact(target, arg0, arg1);
+        }
+
+        @Override
+        public Object invokeWithArguments(final Object target, final Object[] arguments) throws Throwable {
+            if (argumentCount(arguments) != 2) {
+                throw wrongNumberOfArguments(argumentCount(arguments));
+            }
+            return methodHandle.invokeExact(target, arguments[0], arguments[1]);
+        }
+    }
+
+    static final class Invoker3 extends Invoker {
+        Invoker3(final Method method, final MethodHandle methodHandle) {
+            super(method, methodHandle);
+        }
+
+        @Override
+        public Object invoke(final Object target, final Object arg0, final Object arg1, final Object arg2)
+                throws Throwable {
+            return methodHandle.invokeExact(target, arg0, arg1, arg2);
+        }
+
+        @Override
+        public Object invokeWithArguments(final Object target, final Object[] arguments) throws Throwable {
+            if (argumentCount(arguments) != 3) {
+                throw wrongNumberOfArguments(argumentCount(arguments));
+            }
+            return methodHandle.invokeExact(target, arguments[0], arguments[1], arguments[2]);
+        }
+    }
+
+    static final class Invoker4 extends Invoker {
+        Invoker4(final Method method, final MethodHandle methodHandle) {
+            super(method, methodHandle);
+        }
+
+        @Override
+        public Object invoke(final Object target, final Object arg0, final Object arg1, final Object arg2,
+                final Object arg3) throws Throwable {
+            return methodHandle.invokeExact(target, arg0, arg1, arg2, arg3);
+        }
+
+        @Override
+        public Object invokeWithArguments(final Object target, final Object[] arguments) throws Throwable {
+            if (argumentCount(arguments) != 4) {
+                throw wrongNumberOfArguments(argumentCount(arguments));
+            }
+            return methodHandle.invokeExact(target, arguments[0], arguments[1], arguments[2], arguments[3]);
+        }
+    }
+
+    static final class Invoker5 extends Invoker {
+        Invoker5(final Method method, final MethodHandle methodHandle) {
+            super(method, methodHandle);
+        }
+
+        @Override
+        public Object invoke(final Object target, final Object arg0, final Object arg1, final Object arg2,
+                final Object arg3, final Object arg4) throws Throwable {
+            return methodHandle.invokeExact(target, arg0, arg1, arg2, arg3, arg4);
+        }
+
+        @Override
+        public Object invokeWithArguments(final Object target, final Object[] arguments) throws Throwable {
+            if (argumentCount(arguments) != 5) {
+                throw wrongNumberOfArguments(argumentCount(arguments));
+            }
+            return methodHandle.invokeExact(target, arguments[0], arguments[1], arguments[2], arguments[3],
+                    arguments[4]);
+        }
+    }
+
+    static final class InvokerN extends Invoker {
+        private final int arity;
+
+        InvokerN(final Method method, final MethodHandle methodHandle) {
+            super(method, methodHandle);
+            this.arity = method.getParameterTypes().length;
+        }
+
+        @Override
+        public Object invokeWithArguments(final Object target, final Object[] arguments) throws Throwable {
+            if (argumentCount(arguments) != arity) {
+                throw wrongNumberOfArguments(argumentCount(arguments));
+            }
+            return methodHandle.invokeExact(target, arguments);
+        }
+    }
+}
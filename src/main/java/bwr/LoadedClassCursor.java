@@ -0,0 +1,140 @@
+/*
+ * This file is derived from Burningwave Core.
+ *
+ * Author: Roberto Gentili
+ * 
+ * Hosted at: https://github.com/burningwave/core
+ * 
+ * Modified by: Luke Hutchison
+ *
+ * Modifications hosted at:  https://github.com/lukehutch/burningwave-reflection
+ *
+ * --
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Roberto Gentili
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT
+ * LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO
+ * EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package bwr;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Tracks the classes loaded by a set of class loaders. Each call to {@link #poll()} returns the classes that
+ * were loaded since the previous call, so pollers only pay for what is new. Class loaders only ever append to
+ * their list of loaded classes, so the cursor is simply a position in each list. Class loaders are weakly
+ * referenced, and dropped from the cursor once they have been collected.
+ */
+public final class LoadedClassCursor {
+    private final List<Position> positions = new ArrayList<>();
+
+    LoadedClassCursor() {
+    }
+
+    /**
+     * Starts tracking a class loader, if not already tracked. The classes it has already loaded are returned by
+     * the next poll.
+     */
+    public synchronized void addClassLoader(final ClassLoader classLoader) {
+        if (classLoader == null) {
+            // The bootstrap class loader has no list of loaded classes
+            return;
+        }
+        for (final Position position : positions) {
+            if (position.classLoader.get() == classLoader) {
+                return;
+            }
+        }
+        positions.add(new Position(classLoader));
+    }
+
+    /** Starts tracking a class loader and all of its parents. */
+    public void addClassLoaderHierarchy(final ClassLoader classLoader) {
+        for (ClassLoader loader = classLoader; loader != null; loader = loader.getParent()) {
+            addClassLoader(loader);
+        }
+    }
+
+    /** Returns the classes loaded by the tracked class loaders since the previous poll, and advances the cursor. */
+    public synchronized List<Class<?>> poll() {
+        final List<Class<?>> loadedClasses = new ArrayList<>();
+        for (final Iterator<Position> iterator = positions.iterator(); iterator.hasNext();) {
+            final Position position = iterator.next();
+            final ClassLoader classLoader = position.classLoader.get();
+            if (classLoader == null) {
+                iterator.remove();
+            } else {
+                position.index = copy(ReflectionDriver.retrieveLoadedClasses(classLoader), position.index,
+                        loadedClasses);
+            }
+        }
+        return loadedClasses;
+    }
+
+    /** Returns all classes currently loaded by the tracked class loaders, without moving the cursor. */
+    public synchronized List<Class<?>> snapshot() {
+        final List<Class<?>> loadedClasses = new ArrayList<>();
+        for (final Position position : positions) {
+            final ClassLoader classLoader = position.classLoader.get();
+            if (classLoader != null) {
+                copy(ReflectionDriver.retrieveLoadedClasses(classLoader), 0, loadedClasses);
+            }
+        }
+        return loadedClasses;
+    }
+
+    /**
+     * Copies the classes past the given index while holding the monitor the class loader itself synchronizes on
+     * when recording a class, and returns the new index.
+     */
+    static int copy(final Collection<Class<?>> classes, final int fromIndex, final List<Class<?>> into) {
+        synchronized (classes) {
+            final int size = classes.size();
+            if (size <= fromIndex) {
+                return size;
+            }
+            if (classes instanceof List) {
+                final List<Class<?>> classList = (List<Class<?>>) classes;
+                for (int i = fromIndex; i < size; i++) {
+                    into.add(classList.get(i));
+                }
+            } else {
+                int i = 0;
+                for (final Class<?> cls : classes) {
+                    if (i++ >= fromIndex) {
+                        into.add(cls);
+                    }
+                }
+            }
+            return size;
+        }
+    }
+
+    private static final class Position {
+        final WeakReference<ClassLoader> classLoader;
+        int index;
+
+        Position(final ClassLoader classLoader) {
+            this.classLoader = new WeakReference<>(classLoader);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * This file is derived from Burningwave Core.
+ *
+ * Author: Roberto Gentili
+ * 
+ * Hosted at: https://github.com/burningwave/core
+ * 
+ * Modified by: Luke Hutchison
+ *
+ * Modifications hosted at:  https://github.com/lukehutch/burningwave-reflection
+ *
+ * --
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Roberto Gentili
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT
+ * LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO
+ * EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package bwr;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Index by name of the classes loaded by a set of class loaders, kept up to date incrementally through a
+ * {@link LoadedClassCursor}. Lookups never scan the loaded classes, and a lookup that misses first picks up any
+ * classes loaded since the last refresh. Classes are weakly referenced, so the index does not keep class loaders
+ * alive.
+ */
+public final class LoadedClassIndex {
+    private final LoadedClassCursor cursor = new LoadedClassCursor();
+    private final ConcurrentMap<String, Entry> classesByName = new ConcurrentHashMap<>();
+
+    LoadedClassIndex() {
+    }
+
+    /** Starts indexing a class loader, if not already indexed. */
+    public void addClassLoader(final ClassLoader classLoader) {
+        cursor.addClassLoader(classLoader);
+    }
+
+    /** Starts indexing a class loader and all of its parents. */
+    public void addClassLoaderHierarchy(final ClassLoader classLoader) {
+        cursor.addClassLoaderHierarchy(classLoader);
+    }
+
+    /** Adds the classes loaded since the last refresh to the index, and returns them. */
+    public List<Class<?>> refresh() {
+        synchronized (cursor) {
+            final List<Class<?>> loadedClasses = cursor.poll();
+            for (final Class<?> cls : loadedClasses) {
+                final String name = cls.getName();
+                classesByName.put(name, new Entry(cls, prune(classesByName.get(name))));
+            }
+            return loadedClasses;
+        }
+    }
+
+    /**
+     * Returns a loaded class with the given name, or null if none of the indexed class loaders has loaded it. If
+     * several class loaders have loaded a class with this name, the most recently indexed one is returned.
+     */
+    public Class<?> findClass(final String name) {
+        Class<?> cls = find(classesByName.get(name));
+        if (cls == null) {
+            refresh();
+            cls = find(classesByName.get(name));
+        }
+        return cls;
+    }
+
+    /** Returns all loaded classes with the given name, most recently indexed first. */
+    public List<Class<?>> findClasses(final String name) {
+        Entry entry = classesByName.get(name);
+        if (find(entry) == null) {
+            refresh();
+            entry = classesByName.get(name);
+        }
+        final List<Class<?>> classes = new ArrayList<>(1);
+        for (; entry != null; entry = entry.next) {
+            final Class<?> cls = entry.get();
+            if (cls != null) {
+                classes.add(cls);
+            }
+        }
+        return classes;
+    }
+
+    private static Class<?> find(Entry entry) {
+        for (; entry != null; entry = entry.next) {
+            final Class<?> cls = entry.get();
+            if (cls != null) {
+                return cls;
+            }
+        }
+        return null;
+    }
+
+    /** Drops the entries of collected classes from the head of a chain. */
+    private static Entry prune(Entry entry) {
+        while (entry != null && entry.get() == null) {
+            entry = entry.next;
+        }
+        return entry;
+    }
+
+    /** Immutable chain of the classes sharing a name. */
+    private static final class Entry extends WeakReference<Class<?>> {
+        final Entry next;
+
+        Entry(final Class<?> cls, final Entry next) {
+            super(cls);
+            this.next = next;
+        }
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ * This file is derived from Burningwave Core.
+ *
+ * Author: Roberto Gentili
+ * 
+ * Hosted at: https://github.com/burningwave/core
+ * 
+ * Modified by: Luke Hutchison
+ *
+ * Modifications hosted at:  https://github.com/lukehutch/burningwave-reflection
+ *
+ * --
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Roberto Gentili
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT
+ * LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO
+ * EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package bwr;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Resolves fields and methods by name across the superclasses and superinterfaces of a class. Results are
+ * memoized per class, and each level of the hierarchy reuses the memoized results of its supertypes, so a
+ * name is only ever looked up once per class.
+ *
+ * <p>
+ * Unlike {@link Class#getField(String)} and {@link Class#getMethod(String, Class...)}, non-public members are
+ * found too, including private fields of superclasses. Private and static methods of supertypes are not, as
+ * they are not inherited.
+ */
+final class MemberResolver {
+    private static final Object NOT_FOUND = new Object();
+    private static final Members.Overloads NO_OVERLOADS = new Members.Overloads(Members.NO_METHODS,
+            new Class<?>[0][]);
+
+    private static final ClassCache<MemberResolver> cache = new ClassCache<MemberResolver>() {
+        @Override
+        MemberResolver compute(final Class<?> cls) {
+            return new MemberResolver(cls);
+        }
+    };
+
+    private final Class<?> cls;
+    private final ConcurrentMap<String, Object> fields = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Members.Overloads> methods = new ConcurrentHashMap<>();
+
+    private MemberResolver(final Class<?> cls) {
+        this.cls = cls;
+    }
+
+    static MemberResolver of(final Class<?> cls) {
+        return cache.get(cls);
+    }
+
+    /**
+     * Returns the field with the given name, searching the class itself, then its superinterfaces, then its
+     * superclass, as the JLS does. Fields of subclasses shadow fields of the same name in supertypes.
+     */
+    Field findField(final String name) {
+        Object field = fields.get(name);
+        if (field == null) {
+            field = resolveField(name);
+            fields.putIfAbsent(name, field != null ? field : NOT_FOUND);
+        }
+        return field != NOT_FOUND ? (Field) field : null;
+    }
+
+    private Field resolveField(final String name) {
+        Field field = Members.of(cls).getDeclaredField(name);
+        if (field != null) {
+            return field;
+        }
+        for (final Class<?> iface : cls.getInterfaces()) {
+            if ((field = of(iface).findField(name)) != null) {
+                return field;
+            }
+        }
+        final Class<?> superclass = cls.getSuperclass();
+        return superclass != null ? of(superclass).findField(name) : null;
+    }
+
+    /**
+     * Returns the methods with the given name that are visible from this class, one per parameter list. The
+     * returned array is shared and must not be modified.
+     */
+    Method[] findMethods(final String name) {
+        return getOverloads(name).methods;
+    }
+
+    /** Returns the method with the given name and parameter types that is visible from this class, or null. */
+    Method findMethod(final String name, final Class<?>[] parameterTypes) {
+        return getOverloads(name).find(parameterTypes);
+    }
+
+    private Members.Overloads getOverloads(final String name) {
+        Members.Overloads overloads = methods.get(name);
+        if (overloads == null) {
+            overloads = resolveMethods(name);
+            final Members.Overloads existing = methods.putIfAbsent(name, overloads);
+            if (existing != null) {
+                overloads = existing;
+            }
+        }
+        return overloads;
+    }
+
+    private Members.Overloads resolveMethods(final String name) {
+        final List<Method> methods = new ArrayList<>();
+        final List<Class<?>[]> parameterTypes = new ArrayList<>();
+        final Members.Overloads declared = Members.of(cls).getDeclaredOverloads(name);
+        if (declared != null) {
+            for (int i = 0; i < declared.methods.length; i++) {
+                merge(methods, parameterTypes, declared.methods[i], declared.parameterTypes[i]);
+            }
+        }
+        final Class<?> superclass = cls.getSuperclass();
+        if (superclass != null) {
+            mergeInherited(methods, parameterTypes, of(superclass).getOverloads(name));
+        }
+        for (final Class<?> iface : cls.getInterfaces()) {
+            mergeInherited(methods, parameterTypes, of(iface).getOverloads(name));
+        }
+        removeBridges(methods, parameterTypes);
+        if (methods.isEmpty()) {
+            return NO_OVERLOADS;
+        }
+        return new Members.Overloads(methods.toArray(Members.NO_METHODS),
+                parameterTypes.toArray(new Class<?>[parameterTypes.size()][]));
+    }
+
+    private static void mergeInherited(final List<Method> methods, final List<Class<?>[]> parameterTypes,
+            final Members.Overloads inherited) {
+        for (int i = 0; i < inherited.methods.length; i++) {
+            // Static and private methods are not inherited
+            if ((inherited.methods[i].getModifiers() & (Modifier.STATIC | Modifier.PRIVATE)) == 0) {
+                merge(methods, parameterTypes, inherited.methods[i], inherited.parameterTypes[i]);
+            }
+        }
+    }
+
+    /**
+     * Removes the bridge methods generated for a method of the same class with the same name and number of
+     * parameters, e.g. compareTo(Object) for compareTo(Foo). They are only merged in the first place so that they
+     * hide the methods of the supertypes they override.
+     */
+    private static void removeBridges(final List<Method> methods, final List<Class<?>[]> parameterTypes) {
+        for (int i = methods.size() - 1; i >= 0; i--) {
+            final Method bridge = methods.get(i);
+            if (bridge.isBridge()) {
+                for (final Method method : methods) {
+                    if (!method.isBridge() && method.getDeclaringClass() == bridge.getDeclaringClass()
+                            && method.getParameterCount() == bridge.getParameterCount()) {
+                        methods.remove(i);
+                        parameterTypes.remove(i);
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds a candidate unless a method with the same parameter types is already present. Candidates are merged
+     * from the most specific type outwards, so an existing method overrides the candidate, except that within a
+     * single class a non-bridge method beats a bridge method (and the most specific return type wins), and among
+     * interface methods a more specific interface, or a default method, beats an abstract one.
+     */
+    private static void merge(final List<Method> methods, final List<Class<?>[]> parameterTypes,
+            final Method candidate, final Class<?>[] candidateParameterTypes) {
+        for (int i = 0; i < methods.size(); i++) {
+            if (Arrays.equals(parameterTypes.get(i), candidateParameterTypes)) {
+                if (overrides(candidate, methods.get(i))) {
+                    methods.set(i, candidate);
+                    parameterTypes.set(i, candidateParameterTypes);
+                }
+                return;
+            }
+        }
+        methods.add(candidate);
+        parameterTypes.add(candidateParameterTypes);
+    }
+
+    private static boolean overrides(final Method candidate, final Method existing) {
+        final Class<?> existingClass = existing.getDeclaringClass();
+        final Class<?> candidateClass = candidate.getDeclaringClass();
+        if (existingClass == candidateClass) {
+            if (existing.isBridge() != candidate.isBridge()) {
+                return existing.isBridge();
+            }
+            return existing.getReturnType() != candidate.getReturnType()
+                    && existing.getReturnType().isAssignableFrom(candidate.getReturnType());
+        }
+        if (!existingClass.isInterface() || !candidateClass.isInterface()) {
+            return false;
+        }
+        if (existingClass.isAssignableFrom(candidateClass)) {
+            return true;
+        }
+        return !candidateClass.isAssignableFrom(existingClass) && Modifier.isAbstract(existing.getModifiers())
+                && !Modifier.isAbstract(candidate.getModifiers());
+    }
+}
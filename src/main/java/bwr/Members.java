@@ -0,0 +1,375 @@
+/*
+ * This file is derived from Burningwave Core.
+ *
+ * Author: Roberto Gentili
+ * 
+ * Hosted at: https://github.com/burningwave/core
+ * 
+ * Modified by: Luke Hutchison
+ *
+ * Modifications hosted at:  https://github.com/lukehutch/burningwave-reflection
+ *
+ * --
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Roberto Gentili
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT
+ * LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO
+ * EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package bwr;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Lazily populated, per-class table of declared members, indexed by name. The arrays held here are shared
+ * between all callers and must never be modified. Until the members of a kind are retrieved, lookups of missing
+ * members are answered from the installed {@link MetadataCache}, if any.
+ */
+@SuppressWarnings("unchecked")
+final class Members {
+    static final Field[] NO_FIELDS = new Field[0];
+    static final Method[] NO_METHODS = new Method[0];
+
+    private static final ClassCache<Members> cache = new ClassCache<Members>() {
+        @Override
+        Members compute(final Class<?> cls) {
+            return new Members(cls);
+        }
+    };
+
+    private final Class<?> cls;
+
+    private volatile Field[] fields;
+    private volatile ReflectionDriverException fieldsFailure;
+    private volatile Map<String, Field> fieldsByName;
+    private final ConcurrentMap<String, FieldAccessor> fieldAccessors = new ConcurrentHashMap<>();
+
+    private volatile Method[] methods;
+    private volatile ReflectionDriverException methodsFailure;
+    private volatile Map<String, Overloads> methodsByName;
+    private final ConcurrentMap<Method, Invoker> invokers = new ConcurrentHashMap<>();
+
+    private volatile ConstructorTable constructorTable;
+    private volatile ReflectionDriverException constructorsFailure;
+    private final ConcurrentMap<Constructor<?>, Instantiator<?>> instantiators = new ConcurrentHashMap<>();
+    private volatile Instantiator<?> defaultInstantiator;
+    private volatile Instantiator<?> allocatingInstantiator;
+
+    private Members(final Class<?> cls) {
+        this.cls = cls;
+    }
+
+    static Members of(final Class<?> cls) {
+        return cache.get(cls);
+    }
+
+    Field[] getDeclaredFields() {
+        Field[] fields = this.fields;
+        if (fields == null) {
+            if (fieldsFailure != null) {
+                throw fieldsFailure;
+            }
+            try {
+                fields = ReflectionDriver.retrieveDeclaredFields(cls);
+            } catch (final Throwable exc) {
+                // Retrieval fails again for the same class, e.g. when a field type cannot be loaded
+                throw fieldsFailure = new ReflectionDriverException("Could not retrieve the fields of " + cls, exc);
+            }
+            this.fields = fields;
+        }
+        return fields;
+    }
+
+    Field getDeclaredField(final String name) {
+        Map<String, Field> fieldsByName = this.fieldsByName;
+        if (fieldsByName == null) {
+            final MetadataCache.ClassMetadata metadata = fields == null ? MetadataCache.lookup(cls) : null;
+            if (metadata != null && metadata.indexOfField(name) < 0) {
+                return null;
+            }
+            final Field[] fields = getDeclaredFields();
+            fieldsByName = new HashMap<>(fields.length * 2);
+            for (final Field field : fields) {
+                fieldsByName.put(field.getName(), field);
+            }
+            this.fieldsByName = fieldsByName;
+        }
+        return fieldsByName.get(name);
+    }
+
+    /** Returns the accessor of the declared field with the given name, or null if there is none. */
+    FieldAccessor getFieldAccessor(final String name) {
+        FieldAccessor fieldAccessor = fieldAccessors.get(name);
+        if (fieldAccessor == null) {
+            FieldAccessor newFieldAccessor = null;
+            final MetadataCache.ClassMetadata metadata = fields == null ? MetadataCache.lookup(cls) : null;
+            if (metadata != null) {
+                final int index = metadata.indexOfField(name);
+                if (index < 0) {
+                    return null;
+                }
+                // Built from the cached offset, without retrieving the fields of the class
+                final FieldAccessor.FieldInfo info = metadata.isFromFile() ? metadata.getFieldInfo(cls, index)
+                        : null;
+                newFieldAccessor = info != null ? FieldAccessor.create(info) : null;
+            }
+            if (newFieldAccessor == null) {
+                final Field field = getDeclaredField(name);
+                if (field == null) {
+                    return null;
+                }
+                newFieldAccessor = FieldAccessor.create(field);
+            }
+            fieldAccessor = fieldAccessors.putIfAbsent(name, newFieldAccessor);
+            if (fieldAccessor == null) {
+                fieldAccessor = newFieldAccessor;
+            }
+        }
+        return fieldAccessor;
+    }
+
+    FieldAccessor getFieldAccessor(final Field field) {
+        FieldAccessor fieldAccessor = fieldAccessors.get(field.getName());
+        if (fieldAccessor == null) {
+            final FieldAccessor newFieldAccessor = FieldAccessor.create(field);
+            fieldAccessor = fieldAccessors.putIfAbsent(field.getName(), newFieldAccessor);
+            if (fieldAccessor == null) {
+                fieldAccessor = newFieldAccessor;
+            }
+        }
+        return fieldAccessor;
+    }
+
+    Method[] getDeclaredMethods() {
+        Method[] methods = this.methods;
+        if (methods == null) {
+            if (methodsFailure != null) {
+                throw methodsFailure;
+            }
+            try {
+                methods = ReflectionDriver.retrieveDeclaredMethods(cls);
+            } catch (final Throwable exc) {
+                throw methodsFailure = new ReflectionDriverException("Could not retrieve the methods of " + cls,
+                        exc);
+            }
+            this.methods = methods;
+        }
+        return methods;
+    }
+
+    Method[] getDeclaredMethods(final String name) {
+        if (methodsByName == null) {
+            final MetadataCache.ClassMetadata metadata = methods == null ? MetadataCache.lookup(cls) : null;
+            if (metadata != null && !metadata.hasMethod(name)) {
+                return NO_METHODS;
+            }
+        }
+        final Overloads overloads = getOverloads(name);
+        return overloads != null ? overloads.methods : NO_METHODS;
+    }
+
+    /** Returns the declared methods with the given name, or null if there are none. */
+    Overloads getDeclaredOverloads(final String name) {
+        return getOverloads(name);
+    }
+
+    Method getDeclaredMethod(final String name, final Class<?>[] parameterTypes) {
+        if (methodsByName == null) {
+            final MetadataCache.ClassMetadata metadata = methods == null ? MetadataCache.lookup(cls) : null;
+            if (metadata != null && !metadata.hasMethod(name, parameterTypes)) {
+                return null;
+            }
+        }
+        final Overloads overloads = getOverloads(name);
+        return overloads != null ? overloads.find(parameterTypes) : null;
+    }
+
+    Invoker getInvoker(final Method method) {
+        Invoker invoker = invokers.get(method);
+        if (invoker == null) {
+            final Invoker newInvoker = Invoker.create(method);
+            invoker = invokers.putIfAbsent(method, newInvoker);
+            if (invoker == null) {
+                invoker = newInvoker;
+            }
+        }
+        return invoker;
+    }
+
+    /** Returns the shared parameter types of a method declared by this class, without cloning them. */
+    Class<?>[] getParameterTypes(final Method method) {
+        final Overloads overloads = getOverloads(method.getName());
+        if (overloads != null) {
+            for (int i = 0; i < overloads.methods.length; i++) {
+                if (overloads.methods[i] == method) {
+                    return overloads.parameterTypes[i];
+                }
+            }
+        }
+        return method.getParameterTypes();
+    }
+
+    /** Returns the shared parameter types of a constructor declared by this class, without cloning them. */
+    Class<?>[] getParameterTypes(final Constructor<?> constructor) {
+        final ConstructorTable constructorTable = getConstructorTable();
+        for (int i = 0; i < constructorTable.constructors.length; i++) {
+            if (constructorTable.constructors[i] == constructor) {
+                return constructorTable.parameterTypes[i];
+            }
+        }
+        return constructor.getParameterTypes();
+    }
+
+    private Overloads getOverloads(final String name) {
+        Map<String, Overloads> methodsByName = this.methodsByName;
+        if (methodsByName == null) {
+            final Map<String, List<Method>> methodListsByName = new HashMap<>();
+            for (final Method method : getDeclaredMethods()) {
+                List<Method> methodList = methodListsByName.get(method.getName());
+                if (methodList == null) {
+                    methodListsByName.put(method.getName(), methodList = new ArrayList<>(1));
+                }
+                methodList.add(method);
+            }
+            methodsByName = new HashMap<>(methodListsByName.size() * 2);
+            for (final Map.Entry<String, List<Method>> entry : methodListsByName.entrySet()) {
+                methodsByName.put(entry.getKey(), new Overloads(entry.getValue().toArray(NO_METHODS)));
+            }
+            this.methodsByName = methodsByName;
+        }
+        return methodsByName.get(name);
+    }
+
+    <T> Constructor<T>[] getDeclaredConstructors() {
+        return (Constructor<T>[]) getConstructorTable().constructors;
+    }
+
+    <T> Constructor<T> getDeclaredConstructor(final Class<?>[] parameterTypes) {
+        if (this.constructorTable == null) {
+            final MetadataCache.ClassMetadata metadata = MetadataCache.lookup(cls);
+            if (metadata != null && !metadata.hasConstructor(parameterTypes)) {
+                return null;
+            }
+        }
+        final ConstructorTable constructorTable = getConstructorTable();
+        for (int i = 0; i < constructorTable.constructors.length; i++) {
+            if (Arrays.equals(constructorTable.parameterTypes[i], parameterTypes)) {
+                return (Constructor<T>) constructorTable.constructors[i];
+            }
+        }
+        return null;
+    }
+
+    <T> Instantiator<T> getInstantiator(final Constructor<T> constructor) {
+        Instantiator<?> instantiator = instantiators.get(constructor);
+        if (instantiator == null) {
+            final Instantiator<?> newInstantiator = Instantiator.create(constructor);
+            instantiator = instantiators.putIfAbsent(constructor, newInstantiator);
+            if (instantiator == null) {
+                instantiator = newInstantiator;
+            }
+        }
+        return (Instantiator<T>) instantiator;
+    }
+
+    <T> Instantiator<T> getDefaultInstantiator() {
+        Instantiator<?> defaultInstantiator = this.defaultInstantiator;
+        if (defaultInstantiator == null) {
+            final Constructor<?> constructor = getDeclaredConstructor(new Class<?>[0]);
+            if (constructor == null) {
+                return null;
+            }
+            this.defaultInstantiator = defaultInstantiator = getInstantiator(constructor);
+        }
+        return (Instantiator<T>) defaultInstantiator;
+    }
+
+    <T> Instantiator<T> getAllocatingInstantiator() {
+        Instantiator<?> allocatingInstantiator = this.allocatingInstantiator;
+        if (allocatingInstantiator == null) {
+            this.allocatingInstantiator = allocatingInstantiator = new Instantiator.AllocatingInstantiator<>(cls);
+        }
+        return (Instantiator<T>) allocatingInstantiator;
+    }
+
+    private ConstructorTable getConstructorTable() {
+        ConstructorTable constructorTable = this.constructorTable;
+        if (constructorTable == null) {
+            if (constructorsFailure != null) {
+                throw constructorsFailure;
+            }
+            try {
+                this.constructorTable = constructorTable = new ConstructorTable(
+                        ReflectionDriver.retrieveDeclaredConstructors(cls));
+            } catch (final Throwable exc) {
+                throw constructorsFailure = new ReflectionDriverException(
+                        "Could not retrieve the constructors of " + cls, exc);
+            }
+        }
+        return constructorTable;
+    }
+
+    /** Methods sharing a name, with their parameter types held in parallel. */
+    static final class Overloads {
+        final Method[] methods;
+        final Class<?>[][] parameterTypes;
+
+        Overloads(final Method[] methods) {
+            this.methods = methods;
+            this.parameterTypes = new Class<?>[methods.length][];
+            for (int i = 0; i < methods.length; i++) {
+                this.parameterTypes[i] = methods[i].getParameterTypes();
+            }
+        }
+
+        Overloads(final Method[] methods, final Class<?>[][] parameterTypes) {
+            this.methods = methods;
+            this.parameterTypes = parameterTypes;
+        }
+
+        Method find(final Class<?>[] parameterTypes) {
+            for (int i = 0; i < methods.length; i++) {
+                if (Arrays.equals(this.parameterTypes[i], parameterTypes)) {
+                    return methods[i];
+                }
+            }
+            return null;
+        }
+    }
+
+    private static final class ConstructorTable {
+        final Constructor<?>[] constructors;
+        final Class<?>[][] parameterTypes;
+
+        ConstructorTable(final Constructor<?>[] constructors) {
+            this.constructors = constructors;
+            this.parameterTypes = new Class<?>[constructors.length][];
+            for (int i = 0; i < constructors.length; i++) {
+                this.parameterTypes[i] = constructors[i].getParameterTypes();
+            }
+        }
+    }
+}
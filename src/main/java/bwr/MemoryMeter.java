@@ -0,0 +1,468 @@
+/*
+ * This file is derived from Burningwave Core.
+ *
+ * Author: Roberto Gentili
+ * 
+ * Hosted at: https://github.com/burningwave/core
+ * 
+ * Modified by: Luke Hutchison
+ *
+ * Modifications hosted at:  https://github.com/lukehutch/burningwave-reflection
+ *
+ * --
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Roberto Gentili
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT
+ * LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO
+ * EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package bwr;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.sun.management.HotSpotDiagnosticMXBean;
+
+import sun.misc.Unsafe;
+
+/**
+ * Estimates the heap footprint of objects from their field layout. The shallow size of an object is the end of
+ * its last field, or the end of its last element for arrays, rounded up to the object alignment. The deep size
+ * adds the shallow size of every object reachable from it, each counted once. The retained size only counts the
+ * reachable objects that are not also reachable from a given set of other roots, i.e. the memory that would be
+ * freed if the object became unreachable.
+ *
+ * <p>
+ * Class objects, enum constants and class loaders are shared and not traversed unless requested. The fields of
+ * records and hidden classes are located through the internal {@code Unsafe} of the JDK, as the public one refuses
+ * them; objects whose fields cannot be addressed by offset at all are sized from their field types and not
+ * traversed.
+ * Instances are immutable, the {@code with} methods return configured copies.
+ */
+public final class MemoryMeter {
+    private static final Unsafe unsafe = ReflectionDriver.unsafe;
+
+    static final int objectHeaderSize;
+    static final int objectAlignment;
+    static final int referenceSize = Unsafe.ARRAY_OBJECT_INDEX_SCALE;
+
+    private static final int SPLIT_THRESHOLD = 1024;
+    private static final Object[] NO_OBJECTS = new Object[0];
+    private static final Class<?>[] NO_CLASSES = new Class<?>[0];
+
+    private static final ClassCache<Layout> layouts = new ClassCache<Layout>() {
+        @Override
+        Layout compute(final Class<?> cls) {
+            return new Layout(cls);
+        }
+    };
+
+    static {
+        int headerSize;
+        try {
+            headerSize = (int) unsafe.objectFieldOffset(HeaderProbe.class.getDeclaredField("field"));
+        } catch (final Throwable exc) {
+            headerSize = 12;
+        }
+        objectHeaderSize = headerSize;
+        int alignment;
+        try {
+            alignment = Integer.parseInt(ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class)
+                    .getVMOption("ObjectAlignmentInBytes").getValue());
+        } catch (final Throwable exc) {
+            // Not a HotSpot JVM, or the jdk.management module is not present
+            alignment = 8;
+        }
+        objectAlignment = alignment;
+    }
+
+    private static final MemoryMeter DEFAULT = new MemoryMeter(NO_CLASSES, NO_OBJECTS, false, false, 1);
+
+    private final Class<?>[] excludedClasses;
+    private final Object[] excludedObjects;
+    private final boolean includeShared;
+    private final boolean includeStatics;
+    private final int parallelism;
+
+    private MemoryMeter(final Class<?>[] excludedClasses, final Object[] excludedObjects,
+            final boolean includeShared, final boolean includeStatics, final int parallelism) {
+        this.excludedClasses = excludedClasses;
+        this.excludedObjects = excludedObjects;
+        this.includeShared = includeShared;
+        this.includeStatics = includeStatics;
+        this.parallelism = parallelism;
+    }
+
+    /** Returns a meter that traverses no shared objects and no static fields, on the calling thread. */
+    public static MemoryMeter create() {
+        return DEFAULT;
+    }
+
+    /** Returns a copy of this meter that neither counts nor traverses instances of the given classes. */
+    public MemoryMeter withExcludedClasses(final Class<?>... classes) {
+        return new MemoryMeter(concat(excludedClasses, classes), excludedObjects, includeShared, includeStatics,
+                parallelism);
+    }
+
+    /** Returns a copy of this meter that neither counts nor traverses the given objects, compared by identity. */
+    public MemoryMeter withExcludedObjects(final Object... objects) {
+        return new MemoryMeter(excludedClasses, concat(excludedObjects, objects), includeShared, includeStatics,
+                parallelism);
+    }
+
+    /** Returns a copy of this meter that also counts and traverses classes, enum constants and class loaders. */
+    public MemoryMeter withSharedObjects(final boolean includeShared) {
+        return new MemoryMeter(excludedClasses, excludedObjects, includeShared, includeStatics, parallelism);
+    }
+
+    /** Returns a copy of this meter that also traverses the static fields of the classes of reached objects. */
+    public MemoryMeter withStatics(final boolean includeStatics) {
+        return new MemoryMeter(excludedClasses, excludedObjects, includeShared, includeStatics, parallelism);
+    }
+
+    /**
+     * Returns a copy of this meter that traverses object graphs with the given number of threads. Traversal only
+     * fans out once the pending part of the graph grows large, so small graphs are still measured sequentially.
+     */
+    public MemoryMeter withParallelism(final int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1");
+        }
+        return new MemoryMeter(excludedClasses, excludedObjects, includeShared, includeStatics, parallelism);
+    }
+
+    /** Returns the size in bytes of the object itself, not including the objects it references. */
+    public static long shallowSizeOf(final Object object) {
+        if (object == null) {
+            return 0;
+        }
+        final Layout layout = layouts.get(object.getClass());
+        return layout.array ? layout.arraySize(object) : layout.size;
+    }
+
+    /** Returns the size in bytes of the object and of all objects reachable from it. */
+    public long deepSizeOf(final Object object) {
+        if (object == null) {
+            return 0;
+        }
+        final ForkJoinPool pool = createPool();
+        try {
+            final Traversal traversal = new Traversal(true, new Visited(parallelism), pool);
+            traversal.visited.add(object);
+            traversal.run(object);
+            return traversal.size.sum();
+        } finally {
+            shutdown(pool);
+        }
+    }
+
+    /**
+     * Returns the size in bytes of the object and of the objects reachable from it that are not reachable from
+     * any of the given roots without going through the object.
+     */
+    public long retainedSizeOf(final Object object, final Object... roots) {
+        if (object == null) {
+            return 0;
+        }
+        final ForkJoinPool pool = createPool();
+        try {
+            final Traversal marking = new Traversal(false, new Visited(parallelism), pool);
+            marking.visited.add(object);
+            for (final Object root : roots) {
+                if (root != null && marking.visited.add(root)) {
+                    marking.run(root);
+                }
+            }
+            final Traversal traversal = new Traversal(true, marking.visited, pool);
+            traversal.run(object);
+            return traversal.size.sum();
+        } finally {
+            shutdown(pool);
+        }
+    }
+
+    /** Returns the pool shared by the traversals of one measurement, or null if traversal is sequential. */
+    private ForkJoinPool createPool() {
+        return parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+    }
+
+    private static void shutdown(final ForkJoinPool pool) {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    private boolean isExcluded(final Object object, final Layout layout) {
+        if (layout.shared && !includeShared) {
+            return true;
+        }
+        for (final Class<?> excludedClass : excludedClasses) {
+            if (excludedClass.isInstance(object)) {
+                return true;
+            }
+        }
+        for (final Object excludedObject : excludedObjects) {
+            if (excludedObject == object) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static <T> T[] concat(final T[] array, final T[] elements) {
+        final T[] concatenation = Arrays.copyOf(array, array.length + elements.length);
+        System.arraycopy(elements, 0, concatenation, array.length, elements.length);
+        return concatenation;
+    }
+
+    static long align(final long size) {
+        return (size + objectAlignment - 1) & -objectAlignment;
+    }
+
+    private static int sizeOf(final Class<?> type) {
+        if (!type.isPrimitive()) {
+            return referenceSize;
+        } else if (type == long.class || type == double.class) {
+            return 8;
+        } else if (type == int.class || type == float.class) {
+            return 4;
+        } else if (type == short.class || type == char.class) {
+            return 2;
+        } else {
+            return 1;
+        }
+    }
+
+    /** Identity set of reached objects, striped by identity hash code when shared between threads. */
+    private static final class Visited {
+        private final Set<Object>[] stripes;
+        private final boolean concurrent;
+
+        @SuppressWarnings("unchecked")
+        Visited(final int parallelism) {
+            this.concurrent = parallelism > 1;
+            this.stripes = new Set[concurrent ? Integer.highestOneBit(parallelism * 16 - 1) << 1 : 1];
+            for (int i = 0; i < stripes.length; i++) {
+                stripes[i] = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+            }
+        }
+
+        boolean add(final Object object) {
+            if (!concurrent) {
+                return stripes[0].add(object);
+            }
+            final Set<Object> stripe = stripes[System.identityHashCode(object) & (stripes.length - 1)];
+            synchronized (stripe) {
+                return stripe.add(object);
+            }
+        }
+    }
+
+    private final class Traversal {
+        final Visited visited;
+        final LongAdder size = new LongAdder();
+        final boolean counting;
+        private final ForkJoinPool pool;
+
+        Traversal(final boolean counting, final Visited visited, final ForkJoinPool pool) {
+            this.counting = counting;
+            this.visited = visited;
+            this.pool = pool;
+        }
+
+        /** Measures the root, which is counted whether or not it has been reached before. */
+        void run(final Object root) {
+            final Task task = new Task(root);
+            if (pool != null) {
+                pool.invoke(task);
+            } else {
+                task.compute();
+            }
+        }
+
+        /** Schedules a reached object, unless it is excluded or has been reached before. */
+        void reach(final Object object, final ArrayDeque<Object> pending) {
+            if (object != null && !isExcluded(object, layouts.get(object.getClass())) && visited.add(object)) {
+                pending.push(object);
+            }
+        }
+
+        final class Task extends RecursiveAction {
+            private static final long serialVersionUID = 1L;
+
+            private final Object[] objects;
+
+            Task(final Object... objects) {
+                this.objects = objects;
+            }
+
+            @Override
+            protected void compute() {
+                final ArrayDeque<Object> pending = new ArrayDeque<>();
+                for (final Object object : objects) {
+                    pending.push(object);
+                }
+                final List<Task> forkedTasks = new ArrayList<>();
+                long size = 0;
+                for (Object object; (object = pending.poll()) != null;) {
+                    size += visit(object, pending);
+                    if (parallelism > 1 && pending.size() > SPLIT_THRESHOLD) {
+                        final Object[] split = new Object[pending.size() / 2];
+                        for (int i = 0; i < split.length; i++) {
+                            split[i] = pending.pollLast();
+                        }
+                        final Task task = new Task(split);
+                        task.fork();
+                        forkedTasks.add(task);
+                    }
+                }
+                if (counting) {
+                    Traversal.this.size.add(size);
+                }
+                for (final Task task : forkedTasks) {
+                    task.join();
+                }
+            }
+
+            private long visit(final Object object, final ArrayDeque<Object> pending) {
+                final Class<?> cls = object.getClass();
+                final Layout layout = layouts.get(cls);
+                if (includeStatics) {
+                    if (visited.add(cls)) {
+                        pending.push(cls);
+                    }
+                    if (object instanceof Class) {
+                        final Layout classLayout = layouts.get((Class<?>) object);
+                        for (final long offset : classLayout.staticReferenceOffsets) {
+                            reach(unsafe.getObject(classLayout.staticBase, offset), pending);
+                        }
+                        // The class object itself lives mostly outside the heap
+                        return 0;
+                    }
+                }
+                if (!layout.array) {
+                    for (final long offset : layout.referenceOffsets) {
+                        reach(unsafe.getObject(object, offset), pending);
+                    }
+                    return layout.size;
+                }
+                if (layout.referenceArray) {
+                    for (final Object element : (Object[]) object) {
+                        reach(element, pending);
+                    }
+                }
+                return layout.arraySize(object);
+            }
+        }
+    }
+
+    private static final class HeaderProbe {
+        byte field;
+    }
+
+    private static final class Layout {
+        private static final long[] NO_OFFSETS = new long[0];
+
+        final boolean array;
+        final boolean referenceArray;
+        final int arrayBaseOffset;
+        final int arrayIndexScale;
+        final boolean shared;
+        final long size;
+        final long[] referenceOffsets;
+        final Object staticBase;
+        final long[] staticReferenceOffsets;
+
+        Layout(final Class<?> cls) {
+            this.array = cls.isArray();
+            this.referenceArray = array && !cls.getComponentType().isPrimitive();
+            this.arrayBaseOffset = array ? unsafe.arrayBaseOffset(cls) : 0;
+            this.arrayIndexScale = array ? unsafe.arrayIndexScale(cls) : 0;
+            this.shared = cls == Class.class || Enum.class.isAssignableFrom(cls)
+                    || ClassLoader.class.isAssignableFrom(cls);
+            final List<Long> referenceOffsets = new ArrayList<>();
+            long end = objectHeaderSize;
+            long estimatedEnd = objectHeaderSize;
+            boolean addressable = true;
+            for (Class<?> c = cls; c != null && !array; c = c.getSuperclass()) {
+                for (final Field field : ReflectionDriver.getDeclaredFields(c)) {
+                    if (Modifier.isStatic(field.getModifiers())) {
+                        continue;
+                    }
+                    final int fieldSize = sizeOf(field.getType());
+                    estimatedEnd += fieldSize;
+                    if (!addressable) {
+                        continue;
+                    }
+                    try {
+                        final long offset = FieldOffsets.objectFieldOffset(field);
+                        end = Math.max(end, offset + fieldSize);
+                        if (!field.getType().isPrimitive()) {
+                            referenceOffsets.add(offset);
+                        }
+                    } catch (final UnsupportedOperationException exc) {
+                        addressable = false;
+                        referenceOffsets.clear();
+                    }
+                }
+            }
+            this.size = align(addressable ? end : estimatedEnd);
+            this.referenceOffsets = toArray(referenceOffsets);
+            final List<Long> staticReferenceOffsets = new ArrayList<>();
+            Object staticBase = null;
+            try {
+                for (final Field field : ReflectionDriver.getDeclaredFields(cls)) {
+                    if (Modifier.isStatic(field.getModifiers()) && !field.getType().isPrimitive()) {
+                        staticBase = FieldOffsets.staticFieldBase(field);
+                        staticReferenceOffsets.add(FieldOffsets.staticFieldOffset(field));
+                    }
+                }
+            } catch (final UnsupportedOperationException exc) {
+                staticReferenceOffsets.clear();
+            }
+            this.staticBase = staticBase;
+            this.staticReferenceOffsets = toArray(staticReferenceOffsets);
+        }
+
+        long arraySize(final Object array) {
+            return align(arrayBaseOffset + (long) arrayIndexScale * Array.getLength(array));
+        }
+
+        private static long[] toArray(final List<Long> offsets) {
+            if (offsets.isEmpty()) {
+                return NO_OFFSETS;
+            }
+            final long[] array = new long[offsets.size()];
+            for (int i = 0; i < array.length; i++) {
+                array[i] = offsets.get(i);
+            }
+            return array;
+        }
+    }
+}
@@ -0,0 +1,755 @@
+/*
+ * This file is derived from Burningwave Core.
+ *
+ * Author: Roberto Gentili
+ * 
+ * Hosted at: https://github.com/burningwave/core
+ * 
+ * Modified by: Luke Hutchison
+ *
+ * Modifications hosted at:  https://github.com/lukehutch/burningwave-reflection
+ *
+ * --
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Roberto Gentili
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT
+ * LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO
+ * EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package bwr;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.net.URL;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.CodeSource;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+
+import sun.misc.Unsafe;
+
+/**
+ * Persistent cache of the member tables of classes (names, descriptors, modifiers and field offsets), in a file
+ * that is memory-mapped when opened, so that a warm start can answer member queries without reflection. Each
+ * table is keyed by the name of the class and a checksum of its class file, folded with the key of its superclass,
+ * and the whole file by a fingerprint of the JVM and of the field layout it produces. The checksum of a class
+ * loaded from a JAR is read from the central directory of the JAR, without decompressing anything, and that of a
+ * class loaded from a directory is computed from the class file. A file written by a different JVM or layout is
+ * discarded when opened. Classes of the JDK are keyed by name, as the fingerprint covers the version of the JVM,
+ * and classes loaded from anywhere else than a local JAR or directory, such as proxies and generated classes, are
+ * not persisted.
+ *
+ * <p>
+ * Only the header is read when the file is opened. The record index is built on the first lookup, and a record
+ * is only decoded, and its checksum verified, when its class is first looked up. Tables missing from the file are
+ * built by reflection and appended to it. The file is locked while open, so that only one JVM writes it, and a
+ * path can only be opened once at a time within a JVM.
+ *
+ * <p>
+ * Once installed with {@link ReflectionDriver#setMetadataCache}, the driver answers lookups of missing members
+ * from the cache, and {@link ReflectionDriver#getFieldAccessor(Class, String)} builds accessors of instance fields
+ * from their cached offsets, without retrieving the members of the class.
+ */
+public final class MetadataCache implements Closeable {
+    static final Unsafe unsafe = ReflectionDriver.unsafe;
+
+    private static final Logger logger = Logger.getLogger(MetadataCache.class.getName());
+
+    private static final long MAGIC = 0x4257524d45544133L; // "BWRMETA3"
+    private static final int HEADER_SIZE = 16;
+    /** Length, checksum and key preceding the payload of a record. */
+    private static final int RECORD_HEADER_SIZE = 16;
+    private static final long NOT_PERSISTABLE = 0;
+    /** The position of records appended since the file was mapped, which are not read back. */
+    private static final int APPENDED = -1;
+
+    private static final long layoutFingerprint = computeLayoutFingerprint();
+
+    static volatile MetadataCache installed;
+
+    /** Normalized paths of the files opened by this JVM. */
+    private static final Set<Path> openPaths = Collections.newSetFromMap(new ConcurrentHashMap<Path, Boolean>());
+
+    private final Path path;
+    private final FileChannel channel;
+    // Held as a ByteBuffer, as MappedByteBuffer only overrides duplicate() from JDK 13
+    private final ByteBuffer mapped;
+    private Map<Long, Integer> recordPositions;
+    private long end;
+    /** The JARs classes are loaded from, opened to read the checksums of their entries, by path. */
+    private final Map<String, JarChecksums> jars = new HashMap<>();
+
+    private final ClassCache<Long> classKeys = new ClassCache<Long>() {
+        @Override
+        Long compute(final Class<?> cls) {
+            return Long.valueOf(computeClassKey(cls));
+        }
+    };
+
+    private final ClassCache<ClassMetadata> metadata = new ClassCache<ClassMetadata>() {
+        @Override
+        ClassMetadata compute(final Class<?> cls) {
+            return load(cls);
+        }
+    };
+
+    private MetadataCache(final Path path, final FileChannel channel, final ByteBuffer mapped, final long end) {
+        this.path = path;
+        this.channel = channel;
+        this.mapped = mapped;
+        this.end = end;
+    }
+
+    /**
+     * Opens the cache file, creating it, or discarding its contents if they were written for another layout.
+     *
+     * @throws IOException
+     *             if the file cannot be opened, or is locked by another JVM or another open cache
+     */
+    public static MetadataCache open(final Path path) throws IOException {
+        // Closing any channel of a file releases the locks of the whole process on it, so a file locked by this
+        // JVM must not even be opened again
+        final Path normalizedPath = path.toAbsolutePath().normalize();
+        if (!openPaths.add(normalizedPath)) {
+            throw new IOException(path + " is already open in this JVM");
+        }
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            if (channel.tryLock() == null) {
+                throw new IOException(path + " is locked by another JVM");
+            }
+            final long size = channel.size();
+            if (size >= HEADER_SIZE && size <= Integer.MAX_VALUE) {
+                // The header is checked before mapping, as a mapped file must not be truncated
+                final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                while (header.hasRemaining() && channel.read(header, header.position()) >= 0) {
+                    // Read the whole header
+                }
+                if (header.getLong(0) == MAGIC && header.getLong(8) == layoutFingerprint) {
+                    return new MetadataCache(normalizedPath, channel,
+                            channel.map(FileChannel.MapMode.READ_ONLY, 0, size), size);
+                }
+            }
+            channel.truncate(0);
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putLong(MAGIC).putLong(layoutFingerprint);
+            ((Buffer) header).flip();
+            channel.write(header, 0);
+            return new MetadataCache(normalizedPath, channel, null, HEADER_SIZE);
+        } catch (final IOException | RuntimeException exc) {
+            if (channel != null) {
+                channel.close();
+            }
+            openPaths.remove(normalizedPath);
+            throw exc;
+        }
+    }
+
+    /** Returns the fingerprint of the JVM and of the options that affect field layout. */
+    public static long getLayoutFingerprint() {
+        return layoutFingerprint;
+    }
+
+    /**
+     * Returns the member table of the class, from the file if it holds it, else built and appended to the file, or
+     * null if the class cannot be persisted, e.g. a proxy or a class not loaded from a local JAR or directory.
+     */
+    public ClassMetadata get(final Class<?> cls) {
+        return classKeys.get(cls).longValue() != NOT_PERSISTABLE ? metadata.get(cls) : null;
+    }
+
+    /** Returns the member table of the class from the installed cache, or null if there is none or it lacks one. */
+    static ClassMetadata lookup(final Class<?> cls) {
+        final MetadataCache installed = MetadataCache.installed;
+        return installed != null ? installed.get(cls) : null;
+    }
+
+    /** Closes the file and releases its lock. The cache is uninstalled if it was installed. */
+    @Override
+    public synchronized void close() throws IOException {
+        if (installed == this) {
+            installed = null;
+        }
+        if (channel.isOpen()) {
+            channel.close();
+            openPaths.remove(path);
+        }
+        for (final JarChecksums jar : jars.values()) {
+            if (jar != null) {
+                jar.jarFile.close();
+            }
+        }
+        jars.clear();
+    }
+
+    private ClassMetadata load(final Class<?> cls) {
+        final long key = classKeys.get(cls).longValue();
+        synchronized (this) {
+            final Integer position = getRecordPositions().get(Long.valueOf(key));
+            if (position != null && position.intValue() == APPENDED) {
+                return new ClassMetadata(cls, false);
+            } else if (position != null) {
+                try {
+                    final ClassMetadata classMetadata = decode(position.intValue());
+                    if (classMetadata != null && classMetadata.className.equals(cls.getName())) {
+                        return classMetadata;
+                    }
+                } catch (final Throwable exc) {
+                    logger.log(Level.FINE, "Could not decode the cached metadata of " + cls.getName(), exc);
+                }
+            }
+            final ClassMetadata classMetadata = new ClassMetadata(cls, false);
+            if (channel.isOpen()) {
+                try {
+                    append(key, classMetadata);
+                    recordPositions.put(Long.valueOf(key), Integer.valueOf(APPENDED));
+                } catch (final IOException exc) {
+                    logger.log(Level.FINE, "Could not cache the metadata of " + cls.getName(), exc);
+                }
+            }
+            return classMetadata;
+        }
+    }
+
+    /**
+     * Indexes the records of the mapped file by class key, up to the first record whose length runs past the end
+     * of the file. Later records of the same class replace earlier ones.
+     */
+    private Map<Long, Integer> getRecordPositions() {
+        if (recordPositions == null) {
+            recordPositions = new HashMap<>();
+            if (mapped != null) {
+                int position = HEADER_SIZE;
+                while (position + RECORD_HEADER_SIZE <= mapped.limit()) {
+                    final int length = mapped.getInt(position);
+                    if (length < RECORD_HEADER_SIZE - 4 || length > mapped.limit() - position - 4) {
+                        break;
+                    }
+                    recordPositions.put(Long.valueOf(mapped.getLong(position + 8)), Integer.valueOf(position));
+                    position += 4 + length;
+                }
+                end = position;
+            }
+        }
+        return recordPositions;
+    }
+
+    /** Decodes the record at the position, or returns null if its checksum shows that it is torn or corrupt. */
+    private ClassMetadata decode(final int position) throws IOException {
+        final byte[] bytes = new byte[mapped.getInt(position) - 4];
+        final ByteBuffer record = mapped.duplicate();
+        ((Buffer) record).position(position + 8);
+        record.get(bytes);
+        final CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length);
+        if ((int) crc.getValue() != mapped.getInt(position + 4)) {
+            return null;
+        }
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, 8, bytes.length - 8));
+        return new ClassMetadata(in);
+    }
+
+    private void append(final long key, final ClassMetadata classMetadata) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0);
+        out.writeInt(0);
+        out.writeLong(key);
+        classMetadata.write(out);
+        out.flush();
+        final ByteBuffer record = ByteBuffer.wrap(bytes.toByteArray());
+        record.putInt(0, record.capacity() - 4);
+        final CRC32 crc = new CRC32();
+        crc.update(record.array(), 8, record.capacity() - 8);
+        record.putInt(4, (int) crc.getValue());
+        // Overwrites any incomplete record left at the end. The file is not truncated while it is mapped, and the
+        // checksum rejects whatever remains of a longer record after this one.
+        long position = end;
+        while (record.hasRemaining()) {
+            position += channel.write(record, position);
+        }
+        end = position;
+    }
+
+    /**
+     * Returns a key of the version of the class and of its superclasses, since the field offsets of a class depend
+     * on the layout of its superclasses, or {@link #NOT_PERSISTABLE} if the version of one of them is unknown.
+     */
+    private long computeClassKey(final Class<?> cls) {
+        if (cls.isArray() || cls.isPrimitive() || cls.getName().indexOf('/') >= 0 || Proxy.isProxyClass(cls)) {
+            return NOT_PERSISTABLE;
+        }
+        final long superclassKey;
+        if (cls.getSuperclass() == null) {
+            superclassKey = 0x9e3779b97f4a7c15L;
+        } else if ((superclassKey = classKeys.get(cls.getSuperclass()).longValue()) == NOT_PERSISTABLE) {
+            return NOT_PERSISTABLE;
+        }
+        final long stamp = computeStamp(cls);
+        if (stamp == NOT_PERSISTABLE) {
+            return NOT_PERSISTABLE;
+        }
+        long key = 0xcbf29ce484222325L ^ superclassKey;
+        final String name = cls.getName();
+        for (int i = 0; i < name.length(); i++) {
+            key = (key ^ name.charAt(i)) * 0x100000001b3L;
+        }
+        key = (key ^ stamp) * 0x100000001b3L;
+        return key != NOT_PERSISTABLE ? key : 1;
+    }
+
+    /**
+     * Returns a checksum of the class file the class was loaded from, 1 for classes of the JDK, or
+     * {@link #NOT_PERSISTABLE} if the class was not loaded from a local file.
+     */
+    private long computeStamp(final Class<?> cls) {
+        final CodeSource codeSource;
+        try {
+            codeSource = cls.getProtectionDomain().getCodeSource();
+        } catch (final SecurityException exc) {
+            return NOT_PERSISTABLE;
+        }
+        final URL location = codeSource != null ? codeSource.getLocation() : null;
+        if (location == null) {
+            // Classes defined at runtime have no location either, but are not defined by the bootstrap loader
+            return cls.getClassLoader() == null ? 1 : NOT_PERSISTABLE;
+        } else if ("jrt".equals(location.getProtocol())) {
+            return 1;
+        } else if (!"file".equals(location.getProtocol())) {
+            return NOT_PERSISTABLE;
+        }
+        final File file;
+        try {
+            file = new File(location.toURI());
+        } catch (final Exception exc) {
+            return NOT_PERSISTABLE;
+        }
+        final String entryName = cls.getName().replace('.', '/') + ".class";
+        if (file.isDirectory()) {
+            try {
+                final byte[] bytes = Files.readAllBytes(new File(file, entryName).toPath());
+                final CRC32 crc = new CRC32();
+                crc.update(bytes, 0, bytes.length);
+                return checksum(crc.getValue(), bytes.length);
+            } catch (final IOException exc) {
+                return NOT_PERSISTABLE;
+            }
+        }
+        final JarChecksums jar = getJar(file);
+        return jar != null ? jar.get(entryName) : NOT_PERSISTABLE;
+    }
+
+    private synchronized JarChecksums getJar(final File file) {
+        final String path = file.getPath();
+        if (jars.containsKey(path) || !channel.isOpen()) {
+            return jars.get(path);
+        }
+        JarChecksums jar = null;
+        try {
+            jar = new JarChecksums(new JarFile(file, false));
+        } catch (final IOException exc) {
+            logger.log(Level.FINE, "Could not read the entries of " + file, exc);
+        }
+        jars.put(path, jar);
+        return jar;
+    }
+
+    /** Combines the CRC and the size of a class file into a stamp that is never {@link #NOT_PERSISTABLE}. */
+    private static long checksum(final long crc, final long size) {
+        return crc << 32 | (size & 0xffffffffL) | 1L << 31;
+    }
+
+    /**
+     * The checksums of the class files of a JAR, from its central directory. The class files of the versioned
+     * directories of a multi-release JAR are folded into that of the base class file, as any of them may be loaded.
+     */
+    private static final class JarChecksums {
+        private static final String VERSIONS = "META-INF/versions/";
+
+        final JarFile jarFile;
+        private final Map<String, Long> versionedChecksums = new HashMap<>();
+
+        JarChecksums(final JarFile jarFile) throws IOException {
+            this.jarFile = jarFile;
+            final Manifest manifest = jarFile.getManifest();
+            if (manifest != null && "true".equalsIgnoreCase(manifest.getMainAttributes().getValue("Multi-Release"))) {
+                for (final Enumeration<? extends ZipEntry> entries = jarFile.entries(); entries.hasMoreElements();) {
+                    final ZipEntry entry = entries.nextElement();
+                    final String name = entry.getName();
+                    final int versionEnd = name.startsWith(VERSIONS) ? name.indexOf('/', VERSIONS.length()) : -1;
+                    if (versionEnd >= 0 && name.endsWith(".class")) {
+                        final String baseName = name.substring(versionEnd + 1);
+                        final Long checksum = versionedChecksums.get(baseName);
+                        versionedChecksums.put(baseName, Long.valueOf((checksum != null ? checksum.longValue() : 0)
+                                * 0x100000001b3L ^ name.hashCode() ^ checksum(entry.getCrc(), entry.getSize())));
+                    }
+                }
+            }
+        }
+
+        long get(final String name) {
+            final ZipEntry entry = jarFile.getEntry(name);
+            final Long versionedChecksum = versionedChecksums.get(name);
+            if (entry == null || entry.getCrc() == -1) {
+                return versionedChecksum != null ? versionedChecksum.longValue() | 1 : NOT_PERSISTABLE;
+            }
+            final long checksum = checksum(entry.getCrc(), entry.getSize());
+            return versionedChecksum != null ? (checksum * 0x100000001b3L ^ versionedChecksum.longValue()) | 1
+                    : checksum;
+        }
+    }
+
+    /**
+     * Hashes the JVM and the field layout it produces. Rather than reading the options that affect it, which
+     * requires the management API, the layout is observed directly on probe classes.
+     */
+    private static long computeLayoutFingerprint() {
+        final StringBuilder layout = new StringBuilder();
+        for (final String property : new String[] { "java.vm.name", "java.vm.vendor", "java.vm.version",
+                "os.arch" }) {
+            layout.append(System.getProperty(property)).append(';');
+        }
+        // The object header size and field packing show in the offsets of the probes, while the object alignment
+        // only changes object sizes, not field offsets
+        layout.append(unsafe.addressSize()).append(';').append(unsafe.arrayIndexScale(Object[].class)).append(';');
+        for (final Class<?> probe : new Class<?>[] { LayoutProbe.class, LayoutProbeSubclass.class }) {
+            for (final Field field : probe.getDeclaredFields()) {
+                layout.append(field.getName()).append('=').append(unsafe.objectFieldOffset(field)).append(';');
+            }
+        }
+        long fingerprint = 0xcbf29ce484222325L;
+        for (int i = 0; i < layout.length(); i++) {
+            fingerprint = (fingerprint ^ layout.charAt(i)) * 0x100000001b3L;
+        }
+        return fingerprint;
+    }
+
+    /**
+     * Fields of all sizes, whose offsets change with the field ordering and packing of the JVM, including the
+     * packing of subclass fields into gaps left by superclasses.
+     */
+    @SuppressWarnings("unused")
+    private static class LayoutProbe {
+        private long l;
+        private byte b;
+    }
+
+    @SuppressWarnings("unused")
+    private static final class LayoutProbeSubclass extends LayoutProbe {
+        private byte b2;
+        private short s;
+        private int i;
+        private Object o;
+        private long l2;
+    }
+
+    /**
+     * The declared members of a class: fields with their offsets, methods by name and descriptor, and constructors by
+     * descriptor. Method keys are interned, like those of {@link ReflectionDriver#getMethodKey}.
+     */
+    public static final class ClassMetadata {
+        private final String className;
+        private final boolean fromFile;
+        private final String[] fieldNames;
+        private final String[] fieldDescriptors;
+        private final int[] fieldModifiers;
+        private final long[] fieldOffsets;
+        private final String[] methodKeys;
+        private final int[] methodNameLengths;
+        private final int[] methodModifiers;
+        private final String[] constructorDescriptors;
+        private final int[] constructorModifiers;
+
+        ClassMetadata(final Class<?> cls, final boolean fromFile) {
+            this.className = cls.getName();
+            this.fromFile = fromFile;
+            final Members members = Members.of(cls);
+            final Field[] fields = members.getDeclaredFields();
+            fieldNames = new String[fields.length];
+            fieldDescriptors = new String[fields.length];
+            fieldModifiers = new int[fields.length];
+            fieldOffsets = new long[fields.length];
+            for (int i = 0; i < fields.length; i++) {
+                fieldNames[i] = fields[i].getName();
+                fieldDescriptors[i] = ClassFileWriter.descriptor(fields[i].getType());
+                fieldModifiers[i] = fields[i].getModifiers();
+                fieldOffsets[i] = Modifier.isStatic(fieldModifiers[i]) ? FieldOffsets.staticFieldOffset(fields[i])
+                        : FieldOffsets.objectFieldOffset(fields[i]);
+            }
+            final Method[] methods = members.getDeclaredMethods();
+            methodKeys = new String[methods.length];
+            methodNameLengths = new int[methods.length];
+            methodModifiers = new int[methods.length];
+            for (int i = 0; i < methods.length; i++) {
+                methodKeys[i] = MethodIndex.getKey(methods[i]);
+                methodNameLengths[i] = methods[i].getName().length();
+                methodModifiers[i] = methods[i].getModifiers();
+            }
+            final Constructor<?>[] constructors = members.getDeclaredConstructors();
+            constructorDescriptors = new String[constructors.length];
+            constructorModifiers = new int[constructors.length];
+            for (int i = 0; i < constructors.length; i++) {
+                constructorDescriptors[i] = ClassFileWriter.descriptor(members.getParameterTypes(constructors[i]),
+                        void.class);
+                constructorModifiers[i] = constructors[i].getModifiers();
+            }
+        }
+
+        ClassMetadata(final DataInputStream in) throws IOException {
+            className = in.readUTF();
+            fromFile = true;
+            final int fieldCount = in.readInt();
+            fieldNames = new String[fieldCount];
+            fieldDescriptors = new String[fieldCount];
+            fieldModifiers = new int[fieldCount];
+            fieldOffsets = new long[fieldCount];
+            for (int i = 0; i < fieldCount; i++) {
+                fieldNames[i] = in.readUTF();
+                fieldDescriptors[i] = in.readUTF();
+                fieldModifiers[i] = in.readInt();
+                fieldOffsets[i] = in.readLong();
+            }
+            final int methodCount = in.readInt();
+            methodKeys = new String[methodCount];
+            methodNameLengths = new int[methodCount];
+            methodModifiers = new int[methodCount];
+            for (int i = 0; i < methodCount; i++) {
+                // Interned when requested, as most keys of a table are never used
+                methodKeys[i] = in.readUTF();
+                methodNameLengths[i] = methodKeys[i].indexOf('(');
+                methodModifiers[i] = in.readInt();
+            }
+            final int constructorCount = in.readInt();
+            constructorDescriptors = new String[constructorCount];
+            constructorModifiers = new int[constructorCount];
+            for (int i = 0; i < constructorCount; i++) {
+                constructorDescriptors[i] = in.readUTF();
+                constructorModifiers[i] = in.readInt();
+            }
+        }
+
+        void write(final DataOutputStream out) throws IOException {
+            out.writeUTF(className);
+            out.writeInt(fieldNames.length);
+            for (int i = 0; i < fieldNames.length; i++) {
+                out.writeUTF(fieldNames[i]);
+                out.writeUTF(fieldDescriptors[i]);
+                out.writeInt(fieldModifiers[i]);
+                out.writeLong(fieldOffsets[i]);
+            }
+            out.writeInt(methodKeys.length);
+            for (int i = 0; i < methodKeys.length; i++) {
+                out.writeUTF(methodKeys[i]);
+                out.writeInt(methodModifiers[i]);
+            }
+            out.writeInt(constructorDescriptors.length);
+            for (int i = 0; i < constructorDescriptors.length; i++) {
+                out.writeUTF(constructorDescriptors[i]);
+                out.writeInt(constructorModifiers[i]);
+            }
+        }
+
+        public String getClassName() {
+            return className;
+        }
+
+        /** Returns whether the table was read from the cache file rather than built by reflection. */
+        public boolean isFromFile() {
+            return fromFile;
+        }
+
+        public int getFieldCount() {
+            return fieldNames.length;
+        }
+
+        public String getFieldName(final int index) {
+            return fieldNames[index];
+        }
+
+        public String getFieldDescriptor(final int index) {
+            return fieldDescriptors[index];
+        }
+
+        public int getFieldModifiers(final int index) {
+            return fieldModifiers[index];
+        }
+
+        /** Returns the offset of the field, relative to the object, or to the static field base for static fields. */
+        public long getFieldOffset(final int index) {
+            return fieldOffsets[index];
+        }
+
+        /** Returns the index of the field with the given name, or -1 if there is none. */
+        public int indexOfField(final String name) {
+            for (int i = 0; i < fieldNames.length; i++) {
+                if (fieldNames[i].equals(name)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        public int getMethodCount() {
+            return methodKeys.length;
+        }
+
+        public String getMethodName(final int index) {
+            return methodKeys[index].substring(0, methodNameLengths[index]);
+        }
+
+        public String getMethodDescriptor(final int index) {
+            return methodKeys[index].substring(methodNameLengths[index]);
+        }
+
+        /** Returns the interned key of the method, its name followed by its descriptor. */
+        public String getMethodKey(final int index) {
+            final String key = methodKeys[index].intern();
+            methodKeys[index] = key;
+            return key;
+        }
+
+        public int getMethodModifiers(final int index) {
+            return methodModifiers[index];
+        }
+
+        /** Returns the index of the method with the given key, or -1 if there is none. */
+        public int indexOfMethod(final String key) {
+            for (int i = 0; i < methodKeys.length; i++) {
+                if (methodKeys[i].equals(key)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        public int getConstructorCount() {
+            return constructorDescriptors.length;
+        }
+
+        public String getConstructorDescriptor(final int index) {
+            return constructorDescriptors[index];
+        }
+
+        public int getConstructorModifiers(final int index) {
+            return constructorModifiers[index];
+        }
+
+        /** Returns whether a method with the given name and parameter types is declared. */
+        boolean hasMethod(final String name, final Class<?>[] parameterTypes) {
+            final String descriptor = ClassFileWriter.descriptor(parameterTypes, void.class);
+            // Any return type: compare up to the closing parenthesis
+            final int length = descriptor.length() - 1;
+            for (int i = 0; i < methodKeys.length; i++) {
+                if (methodNameLengths[i] == name.length() && methodKeys[i].startsWith(name)
+                        && methodKeys[i].regionMatches(methodNameLengths[i], descriptor, 0, length)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /** Returns whether a method with the given name is declared. */
+        boolean hasMethod(final String name) {
+            for (int i = 0; i < methodKeys.length; i++) {
+                if (methodNameLengths[i] == name.length() && methodKeys[i].startsWith(name)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /** Returns whether a constructor with the given parameter types is declared. */
+        boolean hasConstructor(final Class<?>[] parameterTypes) {
+            final String descriptor = ClassFileWriter.descriptor(parameterTypes, void.class);
+            for (final String constructorDescriptor : constructorDescriptors) {
+                if (constructorDescriptor.equals(descriptor)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Returns the description of the instance field at the index of the table of the class, or null if the
+         * field is static, as the base of static fields is only known through reflection, or if its type cannot be
+         * resolved.
+         */
+        FieldAccessor.FieldInfo getFieldInfo(final Class<?> cls, final int index) {
+            if (Modifier.isStatic(fieldModifiers[index])) {
+                return null;
+            }
+            final Class<?> type = resolveType(fieldDescriptors[index], cls.getClassLoader());
+            return type != null ? new FieldAccessor.FieldInfo(cls, fieldNames[index], type, fieldModifiers[index],
+                    fieldOffsets[index]) : null;
+        }
+
+        private static Class<?> resolveType(final String descriptor, final ClassLoader classLoader) {
+            switch (descriptor.charAt(0)) {
+            case 'Z':
+                return boolean.class;
+            case 'B':
+                return byte.class;
+            case 'C':
+                return char.class;
+            case 'S':
+                return short.class;
+            case 'I':
+                return int.class;
+            case 'J':
+                return long.class;
+            case 'F':
+                return float.class;
+            case 'D':
+                return double.class;
+            default:
+                final String name = descriptor.charAt(0) == 'L' ? descriptor.substring(1, descriptor.length() - 1)
+                        : descriptor;
+                try {
+                    return Class.forName(name.replace('/', '.'), false, classLoader);
+                } catch (final ClassNotFoundException | LinkageError exc) {
+                    return null;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,260 @@
+/*
+ * This file is derived from Burningwave Core.
+ *
+ * Author: Roberto Gentili
+ * 
+ * Hosted at: https://github.com/burningwave/core
+ * 
+ * Modified by: Luke Hutchison
+ *
+ * Modifications hosted at:  https://github.com/lukehutch/burningwave-reflection
+ *
+ * --
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Roberto Gentili
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT
+ * LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO
+ * EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package bwr;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Per-class index of methods by key, the interned concatenation of the name and the descriptor of a method, e.g.
+ * {@code "indexOf(Ljava/lang/Object;)I"}, with a cache of the methods selected by virtual dispatch on receivers of
+ * the class. Keys tell apart methods that only differ by return type, such as bridge methods, as the JVM does.
+ */
+final class MethodIndex {
+    private static final Object NOT_FOUND = new Object();
+
+    private static final ClassCache<MethodIndex> cache = new ClassCache<MethodIndex>() {
+        @Override
+        MethodIndex compute(final Class<?> cls) {
+            return new MethodIndex(cls);
+        }
+    };
+
+    private final Class<?> cls;
+    private volatile Map<String, Method> methodsByKey;
+    private volatile Map<Method, String> keysByMethod;
+    private final ConcurrentMap<String, Object> resolvedMethods = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Method, Object> selectedMethods = new ConcurrentHashMap<>();
+
+    private MethodIndex(final Class<?> cls) {
+        this.cls = cls;
+    }
+
+    static MethodIndex of(final Class<?> cls) {
+        return cache.get(cls);
+    }
+
+    /** Returns the interned key of a method. */
+    static String getKey(final Method method) {
+        final String key = of(method.getDeclaringClass()).getKeysByMethod().get(method);
+        return key != null ? key : computeKey(method, method.getParameterTypes());
+    }
+
+    private static String computeKey(final Method method, final Class<?>[] parameterTypes) {
+        return (method.getName() + ClassFileWriter.descriptor(parameterTypes, method.getReturnType())).intern();
+    }
+
+    /** Returns the method with the given key declared by this class, or null. */
+    Method getDeclaredMethod(final String key) {
+        getKeysByMethod();
+        return methodsByKey.get(key);
+    }
+
+    private Map<Method, String> getKeysByMethod() {
+        Map<Method, String> keysByMethod = this.keysByMethod;
+        if (keysByMethod == null) {
+            final Members members = Members.of(cls);
+            final Method[] methods = members.getDeclaredMethods();
+            final Map<String, Method> methodsByKey = new HashMap<>(methods.length * 2);
+            keysByMethod = new HashMap<>(methods.length * 2);
+            for (final Method method : methods) {
+                final String key = computeKey(method, members.getParameterTypes(method));
+                methodsByKey.put(key, method);
+                keysByMethod.put(method, key);
+            }
+            this.methodsByKey = methodsByKey;
+            this.keysByMethod = keysByMethod;
+        }
+        return keysByMethod;
+    }
+
+    /**
+     * Returns the method with the given key that a call on this class resolves to, as JVM method resolution does:
+     * a method declared by this class or a superclass, else the maximally specific superinterface method, preferring
+     * one that is not abstract. Returns null if there is none.
+     */
+    Method findMethod(final String key) {
+        Object method = resolvedMethods.get(key);
+        if (method == null) {
+            method = resolveMethod(key);
+            resolvedMethods.putIfAbsent(key, method != null ? method : NOT_FOUND);
+        }
+        return method != NOT_FOUND ? (Method) method : null;
+    }
+
+    private Method resolveMethod(final String key) {
+        for (Class<?> type = cls; type != null; type = type.getSuperclass()) {
+            final Method method = of(type).getDeclaredMethod(key);
+            if (method != null) {
+                return method;
+            }
+        }
+        final List<Method> candidates = getMaximallySpecificInterfaceMethods(key);
+        for (final Method candidate : candidates) {
+            if (!Modifier.isAbstract(candidate.getModifiers())) {
+                return candidate;
+            }
+        }
+        return candidates.isEmpty() ? null : candidates.get(0);
+    }
+
+    /**
+     * Returns the method that a virtual call of the resolved method on a receiver of this class runs, selected as
+     * JVM method selection does, or null if the JVM would throw, because the selected method is abstract or several
+     * default methods conflict. Static and private methods are returned as they are.
+     */
+    Method selectMethod(final Method resolvedMethod) {
+        Object method = selectedMethods.get(resolvedMethod);
+        if (method == null) {
+            final Class<?> declaringClass = resolvedMethod.getDeclaringClass();
+            if (!declaringClass.isAssignableFrom(cls)) {
+                throw new IllegalArgumentException(cls.getName() + " is not a subtype of " + declaringClass.getName());
+            }
+            method = selectMethodUncached(resolvedMethod);
+            selectedMethods.putIfAbsent(resolvedMethod, method != null ? method : NOT_FOUND);
+        }
+        return method != NOT_FOUND ? (Method) method : null;
+    }
+
+    private Method selectMethodUncached(final Method resolvedMethod) {
+        final int resolvedModifiers = resolvedMethod.getModifiers();
+        if ((resolvedModifiers & (Modifier.STATIC | Modifier.PRIVATE)) != 0) {
+            return resolvedMethod;
+        }
+        final String key = getKey(resolvedMethod);
+        for (Class<?> type = cls; type != null; type = type.getSuperclass()) {
+            final Method method = of(type).getDeclaredMethod(key);
+            if (method != null && (method.equals(resolvedMethod) || overrides(method, resolvedMethod))) {
+                return Modifier.isAbstract(method.getModifiers()) ? null : method;
+            }
+        }
+        Method selected = null;
+        for (final Method candidate : getMaximallySpecificInterfaceMethods(key)) {
+            if (!Modifier.isAbstract(candidate.getModifiers())) {
+                if (selected != null) {
+                    return null;
+                }
+                selected = candidate;
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * Returns whether a method of a subclass overrides a method of a superclass with the same key, directly or, as
+     * JVMS 5.4.5 allows, through a method of an intermediate class that overrides it and that it overrides.
+     */
+    private static boolean overrides(final Method method, final Method overridden) {
+        final int modifiers = method.getModifiers();
+        if ((modifiers & (Modifier.STATIC | Modifier.PRIVATE)) != 0) {
+            return false;
+        }
+        final int overriddenModifiers = overridden.getModifiers();
+        if ((overriddenModifiers & (Modifier.PUBLIC | Modifier.PROTECTED)) != 0
+                || overridden.getDeclaringClass().isInterface()) {
+            return true;
+        }
+        // A package-private method is only overridden from its runtime package
+        final Class<?> declaringClass = method.getDeclaringClass();
+        final Class<?> overriddenClass = overridden.getDeclaringClass();
+        if (declaringClass.getClassLoader() == overriddenClass.getClassLoader()
+                && packageName(declaringClass).equals(packageName(overriddenClass))) {
+            return true;
+        }
+        // e.g. a public method of the same package overriding it, which is in turn overridden from another package
+        final String key = getKey(overridden);
+        for (Class<?> type = declaringClass.getSuperclass(); type != null && type != overriddenClass;
+                type = type.getSuperclass()) {
+            final Method intermediate = of(type).getDeclaredMethod(key);
+            if (intermediate != null && overrides(intermediate, overridden) && overrides(method, intermediate)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String packageName(final Class<?> cls) {
+        final String name = cls.getName();
+        final int lastDot = name.lastIndexOf('.');
+        return lastDot < 0 ? "" : name.substring(0, lastDot);
+    }
+
+    /**
+     * Returns the non-static, non-private methods with the key declared by superinterfaces of this class, excluding
+     * those declared by a superinterface of the interface of another of them.
+     */
+    private List<Method> getMaximallySpecificInterfaceMethods(final String key) {
+        final Set<Class<?>> interfaces = new LinkedHashSet<>();
+        for (Class<?> type = cls; type != null; type = type.getSuperclass()) {
+            addInterfaces(type, interfaces);
+        }
+        final List<Method> candidates = new ArrayList<>();
+        for (final Class<?> iface : interfaces) {
+            final Method method = of(iface).getDeclaredMethod(key);
+            if (method != null && (method.getModifiers() & (Modifier.STATIC | Modifier.PRIVATE)) == 0) {
+                candidates.add(method);
+            }
+        }
+        final List<Method> maximallySpecific = new ArrayList<>(candidates.size());
+        for (final Method candidate : candidates) {
+            boolean isMaximallySpecific = true;
+            for (final Method other : candidates) {
+                if (other != candidate
+                        && candidate.getDeclaringClass().isAssignableFrom(other.getDeclaringClass())) {
+                    isMaximallySpecific = false;
+                    break;
+                }
+            }
+            if (isMaximallySpecific) {
+                maximallySpecific.add(candidate);
+            }
+        }
+        return maximallySpecific;
+    }
+
+    private static void addInterfaces(final Class<?> type, final Set<Class<?>> interfaces) {
+        for (final Class<?> iface : type.getInterfaces()) {
+            if (interfaces.add(iface)) {
+                addInterfaces(iface, interfaces);
+            }
+        }
+    }
+}
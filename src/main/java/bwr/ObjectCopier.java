@@ -0,0 +1,355 @@
+/*
+ * This file is derived from Burningwave Core.
+ *
+ * Author: Roberto Gentili
+ * 
+ * Hosted at: https://github.com/burningwave/core
+ * 
+ * Modified by: Luke Hutchison
+ *
+ * Modifications hosted at:  https://github.com/lukehutch/burningwave-reflection
+ *
+ * --
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Roberto Gentili
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT
+ * LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO
+ * EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package bwr;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+import sun.misc.Unsafe;
+
+/**
+ * Copies objects field by field through precomputed field offsets. Shallow copies share all referenced objects,
+ * deep copies follow references and preserve the identity structure of the copied graph, including cycles.
+ * Strings, primitive wrappers, classes and enum constants are always shared, as are instances of classes whose
+ * fields cannot be addressed by offset (e.g. lambdas). Records are copied through their accessors and canonical
+ * constructor, so a deep copy of a record is built from deep copies of its components.
+ */
+@SuppressWarnings("unchecked")
+public final class ObjectCopier {
+    private static final Unsafe unsafe = ReflectionDriver.unsafe;
+
+    private static final ClassCache<CopyPlan> copyPlans = new ClassCache<CopyPlan>() {
+        @Override
+        CopyPlan compute(final Class<?> cls) {
+            return new CopyPlan(cls);
+        }
+    };
+
+    private ObjectCopier() {
+    }
+
+    public static <T> T shallowCopy(final T object) {
+        if (object == null) {
+            return null;
+        }
+        final Class<?> cls = object.getClass();
+        if (cls.isArray()) {
+            return (T) cloneArray(object);
+        }
+        final CopyPlan copyPlan = copyPlans.get(cls);
+        if (copyPlan.shared) {
+            return object;
+        }
+        if (copyPlan.recordInstantiator != null) {
+            return (T) copyPlan.newRecord(copyPlan.getComponents(object));
+        }
+        final Object copy = copyPlan.allocate();
+        copyPlan.copyPrimitives(object, copy);
+        for (final long offset : copyPlan.referenceOffsets) {
+            unsafe.putObject(copy, offset, unsafe.getObject(object, offset));
+        }
+        return (T) copy;
+    }
+
+    public static <T> T deepCopy(final T object) {
+        if (object == null) {
+            return null;
+        }
+        final IdentityHashMap<Object, Object> copies = new IdentityHashMap<>();
+        final ArrayDeque<Object> pending = new ArrayDeque<>();
+        final T copy = (T) copyOf(object, copies, pending);
+        for (Object original; (original = pending.poll()) != null;) {
+            final Object originalCopy = copies.get(original);
+            if (original instanceof Object[]) {
+                final Object[] originalArray = (Object[]) original;
+                final Object[] arrayCopy = (Object[]) originalCopy;
+                for (int i = 0; i < originalArray.length; i++) {
+                    arrayCopy[i] = copyOf(originalArray[i], copies, pending);
+                }
+            } else {
+                for (final long offset : copyPlans.get(original.getClass()).referenceOffsets) {
+                    unsafe.putObject(originalCopy, offset,
+                            copyOf(unsafe.getObject(original, offset), copies, pending));
+                }
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * Returns the copy of the object, allocating it and scheduling its references for copying if it has not been
+     * reached before.
+     */
+    private static Object copyOf(final Object original, final IdentityHashMap<Object, Object> copies,
+            final ArrayDeque<Object> pending) {
+        if (original == null) {
+            return null;
+        }
+        Object copy = copies.get(original);
+        if (copy != null) {
+            return copy;
+        }
+        final Class<?> cls = original.getClass();
+        if (cls.isArray()) {
+            copy = cloneArray(original);
+            if (!(original instanceof Object[])) {
+                copies.put(original, copy);
+                return copy;
+            }
+        } else {
+            final CopyPlan copyPlan = copyPlans.get(cls);
+            if (copyPlan.shared) {
+                return original;
+            }
+            if (copyPlan.recordInstantiator != null) {
+                // Records are immutable, so their components are copied before the record itself
+                final Object[] components = copyPlan.getComponents(original);
+                for (int i = 0; i < components.length; i++) {
+                    components[i] = copyOf(components[i], copies, pending);
+                }
+                copy = copyPlan.newRecord(components);
+                copies.put(original, copy);
+                return copy;
+            }
+            copy = copyPlan.allocate();
+            copyPlan.copyPrimitives(original, copy);
+            if (copyPlan.referenceOffsets.length == 0) {
+                copies.put(original, copy);
+                return copy;
+            }
+        }
+        copies.put(original, copy);
+        pending.add(original);
+        return copy;
+    }
+
+    private static Object cloneArray(final Object array) {
+        if (array instanceof Object[]) {
+            return ((Object[]) array).clone();
+        } else if (array instanceof int[]) {
+            return ((int[]) array).clone();
+        } else if (array instanceof long[]) {
+            return ((long[]) array).clone();
+        } else if (array instanceof byte[]) {
+            return ((byte[]) array).clone();
+        } else if (array instanceof char[]) {
+            return ((char[]) array).clone();
+        } else if (array instanceof double[]) {
+            return ((double[]) array).clone();
+        } else if (array instanceof float[]) {
+            return ((float[]) array).clone();
+        } else if (array instanceof short[]) {
+            return ((short[]) array).clone();
+        } else {
+            return ((boolean[]) array).clone();
+        }
+    }
+
+    private static final class CopyPlan {
+        private static final long[] NO_OFFSETS = new long[0];
+
+        final Class<?> cls;
+        final boolean shared;
+        final long[] longOffsets;
+        final long[] intOffsets;
+        final long[] shortOffsets;
+        final long[] byteOffsets;
+        final long[] referenceOffsets;
+        final Instantiator<?> recordInstantiator;
+        final Invoker[] componentAccessors;
+
+        CopyPlan(final Class<?> cls) {
+            this.cls = cls;
+            final List<Long> longOffsets = new ArrayList<>();
+            final List<Long> intOffsets = new ArrayList<>();
+            final List<Long> shortOffsets = new ArrayList<>();
+            final List<Long> byteOffsets = new ArrayList<>();
+            final List<Long> referenceOffsets = new ArrayList<>();
+            boolean shared = isShared(cls);
+            final boolean record = isRecord(cls);
+            if (record && !shared) {
+                final Object[] components = RecordComponentsHolder.getComponents(cls);
+                final Class<?>[] componentTypes = new Class<?>[components.length];
+                this.componentAccessors = new Invoker[components.length];
+                for (int i = 0; i < components.length; i++) {
+                    componentTypes[i] = RecordComponentsHolder.getType(components[i]);
+                    componentAccessors[i] = Invoker.of(RecordComponentsHolder.getAccessor(components[i]));
+                }
+                this.recordInstantiator = Instantiator
+                        .of(ReflectionDriver.getDeclaredConstructor(cls, componentTypes));
+            } else {
+                this.componentAccessors = null;
+                this.recordInstantiator = null;
+            }
+            try {
+                for (Class<?> c = cls; c != null && !shared && !record; c = c.getSuperclass()) {
+                    for (final Field field : ReflectionDriver.getDeclaredFields(c)) {
+                        if (Modifier.isStatic(field.getModifiers())) {
+                            continue;
+                        }
+                        final Class<?> type = field.getType();
+                        final long offset = unsafe.objectFieldOffset(field);
+                        if (!type.isPrimitive()) {
+                            referenceOffsets.add(offset);
+                        } else if (type == long.class || type == double.class) {
+                            longOffsets.add(offset);
+                        } else if (type == int.class || type == float.class) {
+                            intOffsets.add(offset);
+                        } else if (type == short.class || type == char.class) {
+                            shortOffsets.add(offset);
+                        } else {
+                            byteOffsets.add(offset);
+                        }
+                    }
+                }
+            } catch (final UnsupportedOperationException exc) {
+                // Fields of hidden classes cannot be addressed by offset
+                shared = true;
+            }
+            this.shared = shared;
+            this.longOffsets = toArray(longOffsets);
+            this.intOffsets = toArray(intOffsets);
+            this.shortOffsets = toArray(shortOffsets);
+            this.byteOffsets = toArray(byteOffsets);
+            this.referenceOffsets = toArray(referenceOffsets);
+        }
+
+        private static boolean isShared(final Class<?> cls) {
+            return cls == String.class || cls == Integer.class || cls == Long.class || cls == Double.class
+                    || cls == Float.class || cls == Short.class || cls == Byte.class || cls == Character.class
+                    || cls == Boolean.class || cls == Class.class || Enum.class.isAssignableFrom(cls);
+        }
+
+        private static boolean isRecord(final Class<?> cls) {
+            final Class<?> superclass = cls.getSuperclass();
+            return superclass != null && superclass.getName().equals("java.lang.Record");
+        }
+
+        private static long[] toArray(final List<Long> offsets) {
+            if (offsets.isEmpty()) {
+                return NO_OFFSETS;
+            }
+            final long[] array = new long[offsets.size()];
+            for (int i = 0; i < array.length; i++) {
+                array[i] = offsets.get(i);
+            }
+            return array;
+        }
+
+        Object allocate() {
+            try {
+                return unsafe.allocateInstance(cls);
+            } catch (final InstantiationException exc) {
+                throw new RuntimeException(exc);
+            }
+        }
+
+        Object[] getComponents(final Object record) {
+            final Object[] components = new Object[componentAccessors.length];
+            try {
+                for (int i = 0; i < components.length; i++) {
+                    components[i] = componentAccessors[i].invoke(record);
+                }
+            } catch (final Throwable exc) {
+                throw new ReflectionDriverException(exc);
+            }
+            return components;
+        }
+
+        Object newRecord(final Object[] components) {
+            try {
+                return recordInstantiator.newInstanceWithArguments(components);
+            } catch (final Throwable exc) {
+                throw new ReflectionDriverException(exc);
+            }
+        }
+
+        void copyPrimitives(final Object source, final Object target) {
+            for (final long offset : longOffsets) {
+                unsafe.putLong(target, offset, unsafe.getLong(source, offset));
+            }
+            for (final long offset : intOffsets) {
+                unsafe.putInt(target, offset, unsafe.getInt(source, offset));
+            }
+            for (final long offset : shortOffsets) {
+                unsafe.putShort(target, offset, unsafe.getShort(source, offset));
+            }
+            for (final long offset : byteOffsets) {
+                unsafe.putByte(target, offset, unsafe.getByte(source, offset));
+            }
+        }
+    }
+
+    // Record components are not part of the API of every JDK the driver is compiled with
+    private static final class RecordComponentsHolder {
+        static final Method componentsRetriever;
+        static final Method typeRetriever;
+        static final Method accessorRetriever;
+
+        static {
+            try {
+                final Class<?> recordComponentClass = Class.forName("java.lang.reflect.RecordComponent");
+                componentsRetriever = Class.class.getMethod("getRecordComponents");
+                typeRetriever = recordComponentClass.getMethod("getType");
+                accessorRetriever = recordComponentClass.getMethod("getAccessor");
+            } catch (final Throwable exc) {
+                throw new RuntimeException(exc);
+            }
+        }
+
+        static Object[] getComponents(final Class<?> cls) {
+            return (Object[]) invoke(componentsRetriever, cls);
+        }
+
+        static Class<?> getType(final Object component) {
+            return (Class<?>) invoke(typeRetriever, component);
+        }
+
+        static Method getAccessor(final Object component) {
+            return (Method) invoke(accessorRetriever, component);
+        }
+
+        private static Object invoke(final Method method, final Object target) {
+            try {
+                return method.invoke(target);
+            } catch (final Exception exc) {
+                throw new ReflectionDriverException(exc);
+            }
+        }
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ * This file is derived from Burningwave Core.
+ *
+ * Author: Roberto Gentili
+ * 
+ * Hosted at: https://github.com/burningwave/core
+ * 
+ * Modified by: Luke Hutchison
+ *
+ * Modifications hosted at:  https://github.com/lukehutch/burningwave-reflection
+ *
+ * --
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Roberto Gentili
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT
+ * LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO
+ * EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package bwr;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Sorted index by name of the packages defined by a set of class loaders, holding resolved {@link Package}
+ * objects. Each query first checks whether the package table of any indexed class loader has grown, which is
+ * a size comparison per class loader, and only then resolves the newly defined packages. Packages are weakly
+ * referenced, so the index does not keep class loaders alive. Packages of the bootstrap class loader are not
+ * indexed.
+ */
+public final class PackageIndex {
+    private static final Position[] NO_POSITIONS = new Position[0];
+
+    private final ConcurrentSkipListMap<String, Entry> packagesByName = new ConcurrentSkipListMap<>();
+    private volatile Position[] positions = NO_POSITIONS;
+
+    PackageIndex() {
+    }
+
+    /** Starts indexing a class loader, if not already indexed. */
+    public synchronized void addClassLoader(final ClassLoader classLoader) {
+        if (classLoader == null) {
+            return;
+        }
+        for (final Position position : positions) {
+            if (position.classLoader.get() == classLoader) {
+                return;
+            }
+        }
+        final Position[] positions = Arrays.copyOf(this.positions, this.positions.length + 1);
+        positions[positions.length - 1] = new Position(classLoader);
+        this.positions = positions;
+    }
+
+    /** Starts indexing a class loader and all of its parents. */
+    public void addClassLoaderHierarchy(final ClassLoader classLoader) {
+        for (ClassLoader loader = classLoader; loader != null; loader = loader.getParent()) {
+            addClassLoader(loader);
+        }
+    }
+
+    /** Returns a package with the given name, or null if none of the indexed class loaders has defined it. */
+    public Package getPackage(final String name) {
+        refresh();
+        for (Entry entry = packagesByName.get(name); entry != null; entry = entry.next) {
+            final Package pkg = entry.get();
+            if (pkg != null) {
+                return pkg;
+            }
+        }
+        return null;
+    }
+
+    /** Returns all packages with the given name, one per class loader that has defined it. */
+    public List<Package> getPackages(final String name) {
+        refresh();
+        final List<Package> packages = new ArrayList<>(1);
+        collect(packagesByName.get(name), packages);
+        return packages;
+    }
+
+    /** Returns the packages whose name starts with the given prefix, sorted by name. */
+    public List<Package> getPackagesWithPrefix(final String prefix) {
+        refresh();
+        return collect(packagesByName.subMap(prefix, true, prefix + Character.MAX_VALUE, false));
+    }
+
+    /**
+     * Returns the package with the given name and all packages nested under it, sorted by name, e.g. "com.acme"
+     * returns "com.acme" and "com.acme.util" but not "com.acmecorp".
+     */
+    public List<Package> getPackageSubtree(final String packageName) {
+        refresh();
+        final List<Package> packages = new ArrayList<>();
+        collect(packagesByName.get(packageName), packages);
+        final String prefix = packageName + '.';
+        packages.addAll(collect(packagesByName.subMap(prefix, true, prefix + Character.MAX_VALUE, false)));
+        return packages;
+    }
+
+    /** Resolves and indexes the packages defined since the last refresh. */
+    public void refresh() {
+        for (final Position position : positions) {
+            final ClassLoader classLoader = position.classLoader.get();
+            if (classLoader != null
+                    && position.size != ReflectionDriver.retrieveLoadedPackages(classLoader).size()) {
+                update();
+                return;
+            }
+        }
+    }
+
+    private synchronized void update() {
+        final List<Position> livePositions = new ArrayList<>(positions.length);
+        for (final Position position : positions) {
+            final ClassLoader classLoader = position.classLoader.get();
+            if (classLoader == null) {
+                continue;
+            }
+            livePositions.add(position);
+            final Map<String, ?> packages = ReflectionDriver.retrieveLoadedPackages(classLoader);
+            final List<Map.Entry<String, ?>> newPackages = new ArrayList<>();
+            final int size;
+            synchronized (packages) {
+                size = packages.size();
+                if (size == position.size) {
+                    continue;
+                }
+                for (final Map.Entry<String, ?> entry : packages.entrySet()) {
+                    if (!position.names.contains(entry.getKey())) {
+                        newPackages.add(entry);
+                    }
+                }
+            }
+            for (final Map.Entry<String, ?> entry : newPackages) {
+                final Package pkg = resolve(classLoader, entry.getKey(), entry.getValue());
+                if (pkg != null) {
+                    position.names.add(entry.getKey());
+                    final Entry existing = prune(packagesByName.get(entry.getKey()));
+                    packagesByName.put(entry.getKey(), new Entry(pkg, existing));
+                }
+            }
+            position.size = size;
+        }
+        if (livePositions.size() != positions.length) {
+            positions = livePositions.toArray(NO_POSITIONS);
+        }
+    }
+
+    private static Package resolve(final ClassLoader classLoader, final String name, final Object value) {
+        if (value instanceof Package) {
+            return (Package) value;
+        }
+        try {
+            return ReflectionDriver.retrieveLoadedPackage(classLoader, value, name);
+        } catch (final Throwable exc) {
+            throw new RuntimeException(exc);
+        }
+    }
+
+    private static List<Package> collect(final NavigableMap<String, Entry> entries) {
+        final List<Package> packages = new ArrayList<>(entries.size());
+        for (final Entry entry : entries.values()) {
+            collect(entry, packages);
+        }
+        return packages;
+    }
+
+    private static void collect(Entry entry, final Collection<Package> packages) {
+        for (; entry != null; entry = entry.next) {
+            final Package pkg = entry.get();
+            if (pkg != null) {
+                packages.add(pkg);
+            }
+        }
+    }
+
+    /** Drops the entries of collected packages from the head of a chain. */
+    private static Entry prune(Entry entry) {
+        while (entry != null && entry.get() == null) {
+            entry = entry.next;
+        }
+        return entry;
+    }
+
+    private static final class Position {
+        final WeakReference<ClassLoader> classLoader;
+        final Set<String> names = new HashSet<>();
+        volatile int size = -1;
+
+        Position(final ClassLoader classLoader) {
+            this.classLoader = new WeakReference<>(classLoader);
+        }
+    }
+
+    /** Immutable chain of the packages sharing a name. */
+    private static final class Entry extends WeakReference<Package> {
+        final Entry next;
+
+        Entry(final Package pkg, final Entry next) {
+            super(pkg);
+            this.next = next;
+        }
+    }
+}
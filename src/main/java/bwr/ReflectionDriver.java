@@ -32,19 +32,21 @@
  */
 package bwr;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
 import java.lang.invoke.MethodHandles.Lookup;
-import java.lang.invoke.MethodType;
 import java.lang.reflect.AccessibleObject;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
@@ -62,8 +64,6 @@ public class ReflectionDriver {
     static MethodHandle getDeclaredFieldsRetriever;
     static MethodHandle getDeclaredMethodsRetriever;
     static MethodHandle getDeclaredConstructorsRetriever;
-    static MethodHandle methodInvoker;
-    static MethodHandle constructorInvoker;
     static BiConsumer<AccessibleObject, Boolean> accessibleSetter;
     static Function<Class<?>, MethodHandles.Lookup> consulterRetriever;
     static TriFunction<ClassLoader, Object, String, Package> packageRetriever;
@@ -75,9 +75,18 @@ public class ReflectionDriver {
     static Class<?> builtinClassLoaderClass;
 
     private static final Logger logger = Logger.getLogger(ReflectionDriver.class.getName());
+    private static final Map<String, Long> initializationTimes = new LinkedHashMap<>();
+    private static final Initializer initializer;
+
+    /** The result of the try methods returning arbitrary values, such as {@link #tryInvoke}, when they fail. */
+    public static final Object FAILURE = new Object();
+
+    private static final int NO_MISMATCH = -1;
+    private static final int WRONG_ARGUMENT_COUNT = -2;
 
     static {
         // Get Unsafe instance
+        long startTime = System.nanoTime();
         try {
             final Field theUnsafeField = Unsafe.class.getDeclaredField("theUnsafe");
             theUnsafeField.setAccessible(true);
@@ -86,38 +95,12 @@ public class ReflectionDriver {
             logger.log(Level.INFO, "Exception while retrieving unsafe");
             throw new RuntimeException(exc);
         }
+        recordInitializationTime("unsafe", startTime);
 
-        // Get Java major version
-        String jvmVersionStr = System.getProperty("java.version");
-        int startIdx = 0;
-        while (startIdx < jvmVersionStr.length() && !Character.isDigit(jvmVersionStr.charAt(startIdx))) {
-            startIdx++;
-        }
-        if (startIdx > 0) {
-            jvmVersionStr = jvmVersionStr.substring(startIdx);
-        }
-        if (jvmVersionStr.startsWith("1.")) {
-            jvmVersionStr = jvmVersionStr.substring(2);
-        }
-        int endIdx = 1;
-        while (endIdx < jvmVersionStr.length() && Character.isDigit(jvmVersionStr.charAt(endIdx))) {
-            endIdx++;
-        }
-        int jvmMajorVersion = 0;
-        try {
-            jvmMajorVersion = Integer.parseInt(jvmVersionStr.substring(0, endIdx));
-        } catch (final NumberFormatException e) {
-            // Ignore
-        }
-
-        // Init static fields
-        if (jvmMajorVersion <= 8) {
-            new Initializer.ForJava8().init();
-        } else if (jvmMajorVersion <= 13) {
-            new Initializer.ForJava9().init();
-        } else {
-            new Initializer.ForJava14().init();
-        }
+        // Select the initializer, the static fields are initialized lazily by the holder of each capability
+        startTime = System.nanoTime();
+        initializer = Initializers.forCurrentJVM();
+        recordInitializationTime("initializer", startTime);
     }
 
     @FunctionalInterface
@@ -137,598 +120,749 @@ public class ReflectionDriver {
         }
     }
 
+    /**
+     * Returns the time in nanoseconds taken by each initialization step performed so far, in order of completion.
+     * The time of a step includes the time of any other step it triggered.
+     */
+    public static Map<String, Long> getInitializationTimes() {
+        synchronized (initializationTimes) {
+            return new LinkedHashMap<>(initializationTimes);
+        }
+    }
+
     public static void setAccessible(final AccessibleObject object, final boolean flag) {
+        AccessibleSetterHolder.ensureInitialized();
         try {
             accessibleSetter.accept(object, flag);
         } catch (final Throwable exc) {
-            throw new RuntimeException(exc);
+            throw new ReflectionDriverException(exc);
         }
     }
 
     public static Class<?> defineAnonymousClass(final Class<?> outerClass, final byte[] byteCode,
             final Object[] var3) {
-        return unsafe.defineAnonymousClass(outerClass, byteCode, var3);
+        return initializer.defineAnonymousClass(outerClass, byteCode, var3);
     }
 
     public static Package retrieveLoadedPackage(final ClassLoader classLoader, final Object packageToFind,
             final String packageName) throws Throwable {
+        PackageRetrieverHolder.ensureInitialized();
         return packageRetriever.apply(classLoader, packageToFind, packageName);
     }
 
     public static Collection<Class<?>> retrieveLoadedClasses(final ClassLoader classLoader) {
+        LoadedClassesVectorFieldHolder.ensureInitialized();
         return (Collection<Class<?>>) unsafe.getObject(classLoader, loadedClassesVectorMemoryOffset);
     }
 
+    /** Returns a copy of the classes currently loaded by the class loader, taken while holding its lock. */
+    public static List<Class<?>> snapshotLoadedClasses(final ClassLoader classLoader) {
+        final List<Class<?>> loadedClasses = new ArrayList<>();
+        LoadedClassCursor.copy(retrieveLoadedClasses(classLoader), 0, loadedClasses);
+        return loadedClasses;
+    }
+
+    /**
+     * Returns a cursor over the classes loaded by the class loader, and by its parents if requested. The first
+     * poll returns the classes already loaded.
+     */
+    public static LoadedClassCursor newLoadedClassCursor(final ClassLoader classLoader,
+            final boolean includeParents) {
+        final LoadedClassCursor cursor = new LoadedClassCursor();
+        if (includeParents) {
+            cursor.addClassLoaderHierarchy(classLoader);
+        } else {
+            cursor.addClassLoader(classLoader);
+        }
+        return cursor;
+    }
+
+    /** Returns an index by name of the classes loaded by the class loader, and by its parents if requested. */
+    public static LoadedClassIndex newLoadedClassIndex(final ClassLoader classLoader, final boolean includeParents) {
+        final LoadedClassIndex index = new LoadedClassIndex();
+        if (includeParents) {
+            index.addClassLoaderHierarchy(classLoader);
+        } else {
+            index.addClassLoader(classLoader);
+        }
+        return index;
+    }
+
+    /**
+     * Returns an index by annotation type of the classes and members annotated by the classes loaded by the class
+     * loader, and by its parents if requested.
+     */
+    public static AnnotationIndex newAnnotationIndex(final ClassLoader classLoader, final boolean includeParents) {
+        final AnnotationIndex index = new AnnotationIndex();
+        if (includeParents) {
+            index.addClassLoaderHierarchy(classLoader);
+        } else {
+            index.addClassLoader(classLoader);
+        }
+        return index;
+    }
+
+    /** Opens a persistent cache of the member tables of classes, see {@link MetadataCache}. */
+    public static MetadataCache openMetadataCache(final Path path) throws IOException {
+        return MetadataCache.open(path);
+    }
+
+    /**
+     * Makes the driver consult the cache before retrieving the members of a class, or stops it if the cache is
+     * null. Members already retrieved are not affected.
+     */
+    public static void setMetadataCache(final MetadataCache cache) {
+        MetadataCache.installed = cache;
+    }
+
     public static Map<String, ?> retrieveLoadedPackages(final ClassLoader classLoader) {
+        LoadedPackagesMapFieldHolder.ensureInitialized();
         return (Map<String, ?>) unsafe.getObject(classLoader, loadedPackagesMapMemoryOffset);
     }
 
+    /** Returns an index by name of the packages defined by the class loader, and by its parents if requested. */
+    public static PackageIndex newPackageIndex(final ClassLoader classLoader, final boolean includeParents) {
+        final PackageIndex index = new PackageIndex();
+        if (includeParents) {
+            index.addClassLoaderHierarchy(classLoader);
+        } else {
+            index.addClassLoader(classLoader);
+        }
+        return index;
+    }
+
     public static boolean isBuiltinClassLoader(final ClassLoader classLoader) {
+        ClassLoaderClassesHolder.ensureInitialized();
         return builtinClassLoaderClass != null && builtinClassLoaderClass.isAssignableFrom(classLoader.getClass());
     }
 
     public static boolean isClassLoaderDelegate(final ClassLoader classLoader) {
+        ClassLoaderClassesHolder.ensureInitialized();
         return classLoaderDelegateClass != null
                 && classLoaderDelegateClass.isAssignableFrom(classLoader.getClass());
     }
 
     public static Class<?> getBuiltinClassLoaderClass() {
+        ClassLoaderClassesHolder.ensureInitialized();
         return builtinClassLoaderClass;
     }
 
     public static Class getClassLoaderDelegateClass() {
+        ClassLoaderClassesHolder.ensureInitialized();
         return classLoaderDelegateClass;
     }
 
     public static Lookup getConsulter(final Class<?> cls) {
-        return consulterRetriever.apply(cls);
+        ConsulterRetrieverHolder.ensureInitialized();
+        final ClassCache<Lookup> consulters = ConsulterRetrieverHolder.consulters;
+        // The cache is null while the retriever is still being initialized, possibly by a reentrant call
+        return consulters != null ? consulters.get(cls) : consulterRetriever.apply(cls);
+    }
+
+    public static Invoker getInvoker(final Method method) {
+        return Invoker.of(method);
     }
 
     public static Object invoke(final Method method, final Object target, final Object[] params) {
+        final long startTime = DriverMetrics.start();
         try {
-            return methodInvoker.invoke(method, target, params);
+            return Invoker.of(method).invokeWithArguments(target, params);
         } catch (final Throwable exc) {
-            throw new RuntimeException(exc);
+            throw new ReflectionDriverException(exc);
+        } finally {
+            DriverMetrics.stop(DriverMetrics.Operation.INVOKE, method.getDeclaringClass(), startTime);
         }
     }
 
+    /**
+     * Invokes the method like {@link #invoke}, but returns {@link #FAILURE} if the target or the arguments do not
+     * fit the method, which is checked without throwing, or if the invocation throws. The reason of the failure is
+     * then available from {@link #getLastFailure()}.
+     */
+    public static Object tryInvoke(final Method method, final Object target, final Object[] params) {
+        final long startTime = DriverMetrics.start();
+        try {
+            final Class<?> declaringClass = method.getDeclaringClass();
+            if (!Modifier.isStatic(method.getModifiers()) && !declaringClass.isInstance(target)) {
+                return LastFailure.record("Target is not an instance of the declaring class of", method,
+                        target == null ? null : target.getClass(), null);
+            }
+            final int mismatch = checkArguments(Members.of(declaringClass).getParameterTypes(method), params);
+            if (mismatch != NO_MISMATCH) {
+                return recordMismatch(method, mismatch);
+            }
+            return Invoker.of(method).invokeWithArguments(target, params);
+        } catch (final Throwable exc) {
+            return LastFailure.record("Invocation failed for", method, null, exc);
+        } finally {
+            DriverMetrics.stop(DriverMetrics.Operation.INVOKE, method.getDeclaringClass(), startTime);
+        }
+    }
+
+    public static <T> Instantiator<T> getInstantiator(final Constructor<T> ctor) {
+        return Instantiator.of(ctor);
+    }
+
+    /** Returns an instantiator using the no-arg constructor of the class, or null if there is none. */
+    public static <T> Instantiator<T> getInstantiator(final Class<T> cls) {
+        return Members.of(cls).getDefaultInstantiator();
+    }
+
+    /** Returns an instantiator that allocates instances of the class without running any constructor. */
+    public static <T> Instantiator<T> getAllocatingInstantiator(final Class<T> cls) {
+        return Members.of(cls).getAllocatingInstantiator();
+    }
+
     public static <T> T newInstance(final Constructor<T> ctor, final Object[] params) {
+        final long startTime = DriverMetrics.start();
         try {
-            return (T) constructorInvoker.invoke(ctor, params);
+            return Instantiator.of(ctor).newInstanceWithArguments(params);
         } catch (final Throwable exc) {
-            throw new RuntimeException(exc);
+            throw new ReflectionDriverException(exc);
+        } finally {
+            DriverMetrics.stop(DriverMetrics.Operation.NEW_INSTANCE, ctor.getDeclaringClass(), startTime);
         }
     }
 
-    public static Field getDeclaredField(final Class<?> cls, final String name) {
-        for (final Field field : getDeclaredFields(cls)) {
-            if (field.getName().equals(name)) {
-                return field;
+    /**
+     * Creates an instance like {@link #newInstance}, but returns null if the arguments do not fit the constructor,
+     * which is checked without throwing, or if the construction throws. The reason of the failure is then
+     * available from {@link #getLastFailure()}.
+     */
+    public static <T> T tryNewInstance(final Constructor<T> ctor, final Object[] params) {
+        final long startTime = DriverMetrics.start();
+        try {
+            final int mismatch = checkArguments(Members.of(ctor.getDeclaringClass()).getParameterTypes(ctor), params);
+            if (mismatch != NO_MISMATCH) {
+                recordMismatch(ctor, mismatch);
+                return null;
             }
+            return Instantiator.of(ctor).newInstanceWithArguments(params);
+        } catch (final Throwable exc) {
+            LastFailure.record("Instantiation failed for", ctor, null, exc);
+            return null;
+        } finally {
+            DriverMetrics.stop(DriverMetrics.Operation.NEW_INSTANCE, ctor.getDeclaringClass(), startTime);
         }
-        return null;
     }
 
-    public static Field[] getDeclaredFields(final Class<?> cls) {
+    /** Returns the declared field with the given name, or null if there is none or the fields cannot be loaded. */
+    public static Field tryGetDeclaredField(final Class<?> cls, final String name) {
         try {
-            return (Field[]) getDeclaredFieldsRetriever.invoke(cls, false);
+            final Field field = getDeclaredField(cls, name);
+            return field != null ? field : (Field) LastFailure.record("No field found in", cls, name, null, null);
         } catch (final Throwable exc) {
-            throw new RuntimeException(exc);
+            return (Field) LastFailure.record("Could not retrieve fields of", cls, name, exc, null);
         }
     }
 
-    public static <T> Constructor<T>[] getDeclaredConstructors(final Class<T> cls) {
+    /**
+     * Returns the declared method with the given name and parameter types, or null if there is none or the
+     * methods cannot be loaded.
+     */
+    public static Method tryGetDeclaredMethod(final Class<?> cls, final String name,
+            final Class<?>... parameterTypes) {
         try {
-            return (Constructor<T>[]) getDeclaredConstructorsRetriever.invoke(cls, false);
+            final Method method = getDeclaredMethod(cls, name, parameterTypes);
+            return method != null ? method : (Method) LastFailure.record("No method found in", cls, name, null, null);
         } catch (final Throwable exc) {
-            throw new RuntimeException(exc);
+            return (Method) LastFailure.record("Could not retrieve methods of", cls, name, exc, null);
         }
     }
 
-    public static Method[] getDeclaredMethods(final Class<?> cls) {
+    /**
+     * Returns the declared constructor with the given parameter types, or null if there is none or the
+     * constructors cannot be loaded.
+     */
+    public static <T> Constructor<T> tryGetDeclaredConstructor(final Class<T> cls, final Class<?>... parameterTypes) {
         try {
-            return (Method[]) getDeclaredMethodsRetriever.invoke(cls, false);
+            final Constructor<T> constructor = getDeclaredConstructor(cls, parameterTypes);
+            return constructor != null ? constructor
+                    : (Constructor<T>) LastFailure.record("No constructor found in", cls, null, null, null);
         } catch (final Throwable exc) {
-            throw new RuntimeException(exc);
+            return (Constructor<T>) LastFailure.record("Could not retrieve constructors of", cls, null, exc, null);
         }
     }
 
-    public static <T> T getFieldValue(Object target, final Field field) {
-        target = Modifier.isStatic(field.getModifiers()) ? field.getDeclaringClass() : target;
-        final long fieldOffset = Modifier.isStatic(field.getModifiers()) ? unsafe.staticFieldOffset(field)
-                : unsafe.objectFieldOffset(field);
-        final Class<?> cls = field.getType();
-        if (!cls.isPrimitive()) {
-            if (!Modifier.isVolatile(field.getModifiers())) {
-                return (T) unsafe.getObject(target, fieldOffset);
-            } else {
-                return (T) unsafe.getObjectVolatile(target, fieldOffset);
-            }
-        } else if (cls == int.class) {
-            if (!Modifier.isVolatile(field.getModifiers())) {
-                return (T) Integer.valueOf(unsafe.getInt(target, fieldOffset));
-            } else {
-                return (T) Integer.valueOf(unsafe.getIntVolatile(target, fieldOffset));
-            }
-        } else if (cls == long.class) {
-            if (!Modifier.isVolatile(field.getModifiers())) {
-                return (T) Long.valueOf(unsafe.getLong(target, fieldOffset));
-            } else {
-                return (T) Long.valueOf(unsafe.getLongVolatile(target, fieldOffset));
-            }
-        } else if (cls == float.class) {
-            if (!Modifier.isVolatile(field.getModifiers())) {
-                return (T) Float.valueOf(unsafe.getFloat(target, fieldOffset));
-            } else {
-                return (T) Float.valueOf(unsafe.getFloatVolatile(target, fieldOffset));
-            }
-        } else if (cls == double.class) {
-            if (!Modifier.isVolatile(field.getModifiers())) {
-                return (T) Double.valueOf(unsafe.getDouble(target, fieldOffset));
-            } else {
-                return (T) Double.valueOf(unsafe.getDoubleVolatile(target, fieldOffset));
-            }
-        } else if (cls == boolean.class) {
-            if (!Modifier.isVolatile(field.getModifiers())) {
-                return (T) Boolean.valueOf(unsafe.getBoolean(target, fieldOffset));
-            } else {
-                return (T) Boolean.valueOf(unsafe.getBooleanVolatile(target, fieldOffset));
-            }
-        } else if (cls == byte.class) {
-            if (!Modifier.isVolatile(field.getModifiers())) {
-                return (T) Byte.valueOf(unsafe.getByte(target, fieldOffset));
-            } else {
-                return (T) Byte.valueOf(unsafe.getByteVolatile(target, fieldOffset));
-            }
-        } else {
-            if (!Modifier.isVolatile(field.getModifiers())) {
-                return (T) Character.valueOf(unsafe.getChar(target, fieldOffset));
-            } else {
-                return (T) Character.valueOf(unsafe.getCharVolatile(target, fieldOffset));
-            }
+    /**
+     * Returns the reason of the last failure signalled by a try method on the current thread, or null if there was
+     * none. The failure is only meaningful right after a try method signalled it, as successful calls do not clear
+     * it. It is cleared once retrieved, so that the thread does not keep the failed member or its class loader
+     * reachable.
+     */
+    public static ReflectionDriverException getLastFailure() {
+        return LastFailure.get();
+    }
+
+    public static Field getDeclaredField(final Class<?> cls, final String name) {
+        final long startTime = DriverMetrics.start();
+        try {
+            return Members.of(cls).getDeclaredField(name);
+        } finally {
+            DriverMetrics.stop(DriverMetrics.Operation.GET_DECLARED_MEMBERS, cls, startTime);
         }
     }
 
-    public static void setFieldValue(Object target, final Field field, final Object value) {
-        if (value != null && !isAssignableFrom(field.getType(), value.getClass())) {
-            throw new RuntimeException("Value " + value + " is not assignable to " + field.getName());
+    /** Returns the declared fields of the class. The returned array is shared and must not be modified. */
+    public static Field[] getDeclaredFields(final Class<?> cls) {
+        final long startTime = DriverMetrics.start();
+        try {
+            return Members.of(cls).getDeclaredFields();
+        } finally {
+            DriverMetrics.stop(DriverMetrics.Operation.GET_DECLARED_MEMBERS, cls, startTime);
         }
-        target = Modifier.isStatic(field.getModifiers()) ? field.getDeclaringClass() : target;
-        final long fieldOffset = Modifier.isStatic(field.getModifiers()) ? unsafe.staticFieldOffset(field)
-                : unsafe.objectFieldOffset(field);
-        final Class<?> cls = field.getType();
-        if (!cls.isPrimitive()) {
-            if (!Modifier.isVolatile(field.getModifiers())) {
-                unsafe.putObject(target, fieldOffset, value);
-            } else {
-                unsafe.putObjectVolatile(target, fieldOffset, value);
-            }
-        } else if (cls == int.class) {
-            if (!Modifier.isVolatile(field.getModifiers())) {
-                unsafe.putInt(target, fieldOffset, ((Integer) value).intValue());
-            } else {
-                unsafe.putIntVolatile(target, fieldOffset, ((Integer) value).intValue());
-            }
-        } else if (cls == long.class) {
-            if (!Modifier.isVolatile(field.getModifiers())) {
-                unsafe.putLong(target, fieldOffset, ((Long) value).longValue());
-            } else {
-                unsafe.putLongVolatile(target, fieldOffset, ((Long) value).longValue());
-            }
-        } else if (cls == float.class) {
-            if (!Modifier.isVolatile(field.getModifiers())) {
-                unsafe.putFloat(target, fieldOffset, ((Float) value).floatValue());
-            } else {
-                unsafe.putFloatVolatile(target, fieldOffset, ((Float) value).floatValue());
-            }
-        } else if (cls == double.class) {
-            if (!Modifier.isVolatile(field.getModifiers())) {
-                unsafe.putDouble(target, fieldOffset, ((Double) value).doubleValue());
-            } else {
-                unsafe.putDoubleVolatile(target, fieldOffset, ((Double) value).doubleValue());
-            }
-        } else if (cls == boolean.class) {
-            if (!Modifier.isVolatile(field.getModifiers())) {
-                unsafe.putBoolean(target, fieldOffset, ((Boolean) value).booleanValue());
-            } else {
-                unsafe.putBooleanVolatile(target, fieldOffset, ((Boolean) value).booleanValue());
-            }
-        } else if (cls == byte.class) {
-            if (!Modifier.isVolatile(field.getModifiers())) {
-                unsafe.putByte(target, fieldOffset, ((Byte) value).byteValue());
-            } else {
-                unsafe.putByteVolatile(target, fieldOffset, ((Byte) value).byteValue());
-            }
-        } else if (cls == char.class) {
-            if (!Modifier.isVolatile(field.getModifiers())) {
-                unsafe.putChar(target, fieldOffset, ((Character) value).charValue());
-            } else {
-                unsafe.putCharVolatile(target, fieldOffset, ((Character) value).charValue());
-            }
+    }
+
+    /** Returns the declared constructors of the class. The returned array is shared and must not be modified. */
+    public static <T> Constructor<T>[] getDeclaredConstructors(final Class<T> cls) {
+        final long startTime = DriverMetrics.start();
+        try {
+            return Members.of(cls).getDeclaredConstructors();
+        } finally {
+            DriverMetrics.stop(DriverMetrics.Operation.GET_DECLARED_MEMBERS, cls, startTime);
         }
     }
 
-    private static byte[] readAllBytes(final InputStream inputStream) throws IOException {
-        final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
-        final byte[] data = new byte[4];
-        for (int nRead; (nRead = inputStream.read(data, 0, data.length)) != -1;) {
-            buffer.write(data, 0, nRead);
+    public static <T> Constructor<T> getDeclaredConstructor(final Class<T> cls, final Class<?>... parameterTypes) {
+        final long startTime = DriverMetrics.start();
+        try {
+            return Members.of(cls).getDeclaredConstructor(parameterTypes);
+        } finally {
+            DriverMetrics.stop(DriverMetrics.Operation.GET_DECLARED_MEMBERS, cls, startTime);
         }
-        buffer.flush();
-        final byte[] byteArray = buffer.toByteArray();
-        return byteArray;
     }
 
-    private static boolean isAssignableFrom(final Class<?> cls_01, final Class<?> cls_02) {
-        return getClassOrWrapper(cls_01).isAssignableFrom(getClassOrWrapper(cls_02));
+    /** Returns the declared methods of the class. The returned array is shared and must not be modified. */
+    public static Method[] getDeclaredMethods(final Class<?> cls) {
+        final long startTime = DriverMetrics.start();
+        try {
+            return Members.of(cls).getDeclaredMethods();
+        } finally {
+            DriverMetrics.stop(DriverMetrics.Operation.GET_DECLARED_MEMBERS, cls, startTime);
+        }
     }
 
-    private static Class<?> getClassOrWrapper(final Class<?> cls) {
-        if (cls.isPrimitive()) {
-            if (cls == int.class) {
-                return Integer.class;
-            } else if (cls == long.class) {
-                return Long.class;
-            } else if (cls == float.class) {
-                return Float.class;
-            } else if (cls == double.class) {
-                return Double.class;
-            } else if (cls == boolean.class) {
-                return Boolean.class;
-            } else if (cls == byte.class) {
-                return Byte.class;
-            } else if (cls == char.class) {
-                return Character.class;
-            }
+    /** Returns the declared methods with the given name. The returned array is shared and must not be modified. */
+    public static Method[] getDeclaredMethods(final Class<?> cls, final String name) {
+        final long startTime = DriverMetrics.start();
+        try {
+            return Members.of(cls).getDeclaredMethods(name);
+        } finally {
+            DriverMetrics.stop(DriverMetrics.Operation.GET_DECLARED_MEMBERS, cls, startTime);
         }
-        return cls;
     }
 
-    private static abstract class Initializer {
-        void init() {
-            initConsulterRetriever();
-            initMembersRetrievers();
-            initAccessibleSetter();
-            initConstructorInvoker();
-            initMethodInvoker();
-            initSpecificElements();
-            initClassesVectorField();
-            initPackagesMapField();
+    public static Method getDeclaredMethod(final Class<?> cls, final String name, final Class<?>... parameterTypes) {
+        final long startTime = DriverMetrics.start();
+        try {
+            return Members.of(cls).getDeclaredMethod(name, parameterTypes);
+        } finally {
+            DriverMetrics.stop(DriverMetrics.Operation.GET_DECLARED_MEMBERS, cls, startTime);
         }
+    }
 
-        abstract void initConsulterRetriever();
+    /**
+     * Returns the field with the given name declared by the class or one of its supertypes, or null if there is
+     * none. Fields of subclasses shadow fields of the same name in supertypes.
+     */
+    public static Field findField(final Class<?> cls, final String name) {
+        return MemberResolver.of(cls).findField(name);
+    }
 
-        abstract void initAccessibleSetter();
+    /**
+     * Returns the methods with the given name declared by the class or inherited from its supertypes, one per
+     * parameter list, with overridden and bridge methods removed. The returned array is shared and must not be
+     * modified.
+     */
+    public static Method[] findMethods(final Class<?> cls, final String name) {
+        return MemberResolver.of(cls).findMethods(name);
+    }
 
-        abstract void initSpecificElements();
+    /**
+     * Returns the most specific method with the given name and parameter types declared by the class or inherited
+     * from its supertypes, or null if there is none.
+     */
+    public static Method findMethod(final Class<?> cls, final String name, final Class<?>... parameterTypes) {
+        return MemberResolver.of(cls).findMethod(name, parameterTypes);
+    }
 
-        abstract void initConstructorInvoker();
+    /**
+     * Returns the key of the method, the interned concatenation of its name and descriptor, e.g.
+     * {@code "indexOf(Ljava/lang/Object;)I"}.
+     */
+    public static String getMethodKey(final Method method) {
+        return MethodIndex.getKey(method);
+    }
 
-        abstract void initMethodInvoker();
+    /**
+     * Returns the method with the given key that a call on the class resolves to, declared by the class or inherited
+     * from its supertypes, or null if there is none.
+     */
+    public static Method findMethodByKey(final Class<?> cls, final String key) {
+        return MethodIndex.of(cls).findMethod(key);
+    }
 
-        private void initPackagesMapField() {
-            try {
-                ReflectionDriver.loadedPackagesMapMemoryOffset = ReflectionDriver.unsafe
-                        .objectFieldOffset(ReflectionDriver.getDeclaredField(ClassLoader.class, "packages"));
-            } catch (final Throwable exc) {
-                logger.log(Level.SEVERE, "Could not initialize field memory offset of loaded classes vector");
-                throw new RuntimeException(exc);
-            }
+    /**
+     * Returns the method that a virtual call of the method runs on a receiver of the given class, which may be an
+     * override or a default method, or null if the call would fail because no single implementation applies. Static
+     * and private methods are returned as they are.
+     */
+    public static Method selectMethod(final Class<?> receiverClass, final Method method) {
+        return MethodIndex.of(receiverClass).selectMethod(method);
+    }
+
+    /** Returns the invoker of the method selected by {@link #selectMethod}, or null if there is none. */
+    public static Invoker getSelectedInvoker(final Class<?> receiverClass, final Method method) {
+        final Method selectedMethod = MethodIndex.of(receiverClass).selectMethod(method);
+        return selectedMethod != null ? Invoker.of(selectedMethod) : null;
+    }
+
+    public static FieldAccessor getFieldAccessor(final Field field) {
+        return FieldAccessor.of(field);
+    }
+
+    /**
+     * Returns the accessor of the field with the given name declared by the class, or null if there is none. With a
+     * metadata cache installed, the accessor of an instance field is built from its cached offset, and its field is
+     * only retrieved if requested.
+     */
+    public static FieldAccessor getFieldAccessor(final Class<?> cls, final String name) {
+        return Members.of(cls).getFieldAccessor(name);
+    }
+
+    public static <T> T getFieldValue(final Object target, final Field field) {
+        final long startTime = DriverMetrics.start();
+        try {
+            return (T) FieldAccessor.of(field).get(target);
+        } finally {
+            DriverMetrics.stop(DriverMetrics.Operation.GET_FIELD_VALUE, field.getDeclaringClass(), startTime);
         }
+    }
 
-        private void initClassesVectorField() {
-            try {
-                ReflectionDriver.loadedClassesVectorMemoryOffset = ReflectionDriver.unsafe
-                        .objectFieldOffset(ReflectionDriver.getDeclaredField(ClassLoader.class, "classes"));
-            } catch (final Throwable exc) {
-                logger.log(Level.SEVERE, "Could not initialize field memory offset of packages map");
-                throw new RuntimeException(exc);
-            }
+    public static void setFieldValue(final Object target, final Field field, final Object value) {
+        final long startTime = DriverMetrics.start();
+        try {
+            FieldAccessor.of(field).set(target, value);
+        } finally {
+            DriverMetrics.stop(DriverMetrics.Operation.SET_FIELD_VALUE, field.getDeclaringClass(), startTime);
         }
+    }
 
-        private void initMembersRetrievers() {
-            try {
-                final MethodHandles.Lookup consulter = ReflectionDriver.getConsulter(Class.class);
-                ReflectionDriver.getDeclaredFieldsRetriever = consulter.findSpecial(Class.class,
-                        "getDeclaredFields0", MethodType.methodType(Field[].class, boolean.class), Class.class);
+    public static boolean getBoolean(final Object target, final Field field) {
+        return FieldAccessor.of(field).getBoolean(target);
+    }
 
-                ReflectionDriver.getDeclaredMethodsRetriever = consulter.findSpecial(Class.class,
-                        "getDeclaredMethods0", MethodType.methodType(Method[].class, boolean.class), Class.class);
+    public static void setBoolean(final Object target, final Field field, final boolean value) {
+        FieldAccessor.of(field).setBoolean(target, value);
+    }
 
-                ReflectionDriver.getDeclaredConstructorsRetriever = consulter.findSpecial(Class.class,
-                        "getDeclaredConstructors0", MethodType.methodType(Constructor[].class, boolean.class),
-                        Class.class);
-            } catch (final Throwable exc) {
-                throw new RuntimeException(exc);
-            }
+    public static byte getByte(final Object target, final Field field) {
+        return FieldAccessor.of(field).getByte(target);
+    }
+
+    public static void setByte(final Object target, final Field field, final byte value) {
+        FieldAccessor.of(field).setByte(target, value);
+    }
+
+    public static char getChar(final Object target, final Field field) {
+        return FieldAccessor.of(field).getChar(target);
+    }
+
+    public static void setChar(final Object target, final Field field, final char value) {
+        FieldAccessor.of(field).setChar(target, value);
+    }
+
+    public static short getShort(final Object target, final Field field) {
+        return FieldAccessor.of(field).getShort(target);
+    }
+
+    public static void setShort(final Object target, final Field field, final short value) {
+        FieldAccessor.of(field).setShort(target, value);
+    }
+
+    public static int getInt(final Object target, final Field field) {
+        return FieldAccessor.of(field).getInt(target);
+    }
+
+    public static void setInt(final Object target, final Field field, final int value) {
+        FieldAccessor.of(field).setInt(target, value);
+    }
+
+    public static long getLong(final Object target, final Field field) {
+        return FieldAccessor.of(field).getLong(target);
+    }
+
+    public static void setLong(final Object target, final Field field, final long value) {
+        FieldAccessor.of(field).setLong(target, value);
+    }
+
+    public static float getFloat(final Object target, final Field field) {
+        return FieldAccessor.of(field).getFloat(target);
+    }
+
+    public static void setFloat(final Object target, final Field field, final float value) {
+        FieldAccessor.of(field).setFloat(target, value);
+    }
+
+    public static double getDouble(final Object target, final Field field) {
+        return FieldAccessor.of(field).getDouble(target);
+    }
+
+    public static void setDouble(final Object target, final Field field, final double value) {
+        FieldAccessor.of(field).setDouble(target, value);
+    }
+
+    public static ArrayAccessor getArrayAccessor(final Class<?> arrayClass) {
+        return ArrayAccessor.of(arrayClass);
+    }
+
+    /** Copies between arrays like {@link System#arraycopy}, converting between numeric primitive types. */
+    public static void copyArray(final Object source, final int sourceIndex, final Object destination,
+            final int destinationIndex, final int length) {
+        ArrayAccessor.copy(source, sourceIndex, destination, destinationIndex, length);
+    }
+
+    /**
+     * Writes all the elements of the primitive array held by the field to the buffer, and returns their number, or
+     * -1 if the field is null.
+     */
+    public static int getArrayField(final Object target, final Field field, final ByteBuffer buffer) {
+        final Object array = FieldAccessor.of(field).get(target);
+        if (array == null) {
+            return -1;
         }
+        final ArrayAccessor arrayAccessor = ArrayAccessor.of(array.getClass());
+        final int length = arrayAccessor.getLength(array);
+        arrayAccessor.get(array, 0, length, buffer);
+        return length;
+    }
 
-        private static class ForJava8 extends Initializer {
-            @Override
-            void initConsulterRetriever() {
-                try {
-                    final Field modes = MethodHandles.Lookup.class.getDeclaredField("allowedModes");
-                    modes.setAccessible(true);
-                    ReflectionDriver.consulterRetriever = new Function<Class<?>, Lookup>() {
-                        @Override
-                        public Lookup apply(final Class<?> cls) {
-                            final MethodHandles.Lookup consulter = MethodHandles.lookup().in(cls);
-                            try {
-                                modes.setInt(consulter, -1);
-                            } catch (final Throwable exc) {
-                                throw new RuntimeException(exc);
-                            }
-                            return consulter;
-                        }
-                    };
-                } catch (final Throwable exc) {
-                    logger.log(Level.SEVERE, "Could not initialize consulter retriever");
-                    throw new RuntimeException(exc);
-                }
-            }
+    /**
+     * Reads the elements of the primitive array held by the field from the buffer, as many as the array holds, and
+     * returns their number, or -1 if the field is null.
+     */
+    public static int setArrayField(final Object target, final Field field, final ByteBuffer buffer) {
+        final Object array = FieldAccessor.of(field).get(target);
+        if (array == null) {
+            return -1;
+        }
+        final ArrayAccessor arrayAccessor = ArrayAccessor.of(array.getClass());
+        final int length = arrayAccessor.getLength(array);
+        arrayAccessor.put(buffer, array, 0, length);
+        return length;
+    }
 
-            @Override
-            void initAccessibleSetter() {
-                try {
-                    final Method accessibleSetterMethod = AccessibleObject.class.getDeclaredMethod("setAccessible0",
-                            AccessibleObject.class, boolean.class);
-                    final MethodHandle accessibleSetterMethodHandle = ReflectionDriver
-                            .getConsulter(AccessibleObject.class).unreflect(accessibleSetterMethod);
-                    ReflectionDriver.accessibleSetter = new BiConsumer<AccessibleObject, Boolean>() {
-                        @Override
-                        public void accept(final AccessibleObject accessibleObject, final Boolean flag) {
-                            try {
-                                accessibleSetterMethodHandle.invoke(accessibleObject, flag);
-                            } catch (final Throwable exc) {
-                                throw new RuntimeException(exc);
-                            }
-                        }
-                    };
-                } catch (final Throwable exc) {
-                    logger.log(Level.SEVERE, "Could not initialize accessible setter");
-                    throw new RuntimeException(exc);
-                }
-            }
+    static Field[] retrieveDeclaredFields(final Class<?> cls) throws Throwable {
+        MembersRetrieversHolder.ensureInitialized();
+        return (Field[]) getDeclaredFieldsRetriever.invoke(cls, false);
+    }
 
-            @Override
-            void initConstructorInvoker() {
-                try {
-                    final Class<?> nativeAccessorImplClass = Class
-                            .forName("sun.reflect.NativeConstructorAccessorImpl");
-                    final Method method = nativeAccessorImplClass.getDeclaredMethod("newInstance0",
-                            Constructor.class, Object[].class);
-                    final MethodHandles.Lookup consulter = ReflectionDriver.getConsulter(nativeAccessorImplClass);
-                    ReflectionDriver.constructorInvoker = consulter.unreflect(method);
-                } catch (final Throwable exc) {
-                    logger.log(Level.SEVERE, "Could not initialize constructor invoker");
-                    throw new RuntimeException(exc);
-                }
-            }
+    static Method[] retrieveDeclaredMethods(final Class<?> cls) throws Throwable {
+        MembersRetrieversHolder.ensureInitialized();
+        return (Method[]) getDeclaredMethodsRetriever.invoke(cls, false);
+    }
 
-            @Override
-            void initMethodInvoker() {
-                try {
-                    final Class<?> nativeAccessorImplClass = Class.forName("sun.reflect.NativeMethodAccessorImpl");
-                    final Method method = nativeAccessorImplClass.getDeclaredMethod("invoke0", Method.class,
-                            Object.class, Object[].class);
-                    final MethodHandles.Lookup consulter = ReflectionDriver.getConsulter(nativeAccessorImplClass);
-                    ReflectionDriver.methodInvoker = consulter.unreflect(method);
-                } catch (final Throwable exc) {
-                    logger.log(Level.SEVERE, "Could not initialize method invoker");
-                    throw new RuntimeException(exc);
-                }
-            }
+    static Constructor<?>[] retrieveDeclaredConstructors(final Class<?> cls) throws Throwable {
+        MembersRetrieversHolder.ensureInitialized();
+        return (Constructor<?>[]) getDeclaredConstructorsRetriever.invoke(cls, false);
+    }
 
-            @Override
-            void initSpecificElements() {
-                ReflectionDriver.packageRetriever = new TriFunction<ClassLoader, Object, String, Package>() {
-                    @Override
-                    public Package apply(final ClassLoader classLoader, final Object object,
-                            final String packageName) {
-                        return (Package) object;
-                    }
-                };
+    /**
+     * Returns the index of the first argument that does not fit its parameter type, {@link #WRONG_ARGUMENT_COUNT}
+     * or {@link #NO_MISMATCH}.
+     */
+    private static int checkArguments(final Class<?>[] parameterTypes, final Object[] arguments) {
+        final int argumentCount = arguments != null ? arguments.length : 0;
+        if (argumentCount != parameterTypes.length) {
+            return WRONG_ARGUMENT_COUNT;
+        }
+        for (int i = 0; i < argumentCount; i++) {
+            if (!isAssignable(parameterTypes[i], arguments[i])) {
+                return i;
             }
+        }
+        return NO_MISMATCH;
+    }
 
+    private static Object recordMismatch(final Object member, final int mismatch) {
+        if (mismatch == WRONG_ARGUMENT_COUNT) {
+            return LastFailure.record("Wrong number of arguments for", member, null, null);
         }
+        return LastFailure.record("Argument does not fit its parameter in", member, Integer.valueOf(mismatch), null);
+    }
 
-        private static class ForJava9 extends Initializer {
-            ForJava9() {
-                try {
-                    final Class<?> cls = Class.forName("jdk.internal.module.IllegalAccessLogger");
-                    final Field logger = cls.getDeclaredField("logger");
-                    final long loggerFieldOffset = ReflectionDriver.unsafe.staticFieldOffset(logger);
-                    final Object illegalAccessLogger = ReflectionDriver.unsafe.getObjectVolatile(cls,
-                            loggerFieldOffset);
-                    ReflectionDriver.illegalAccessLoggerDisabler = new Runnable() {
-                        @Override
-                        public void run() {
-                            ReflectionDriver.unsafe.putObjectVolatile(cls, loggerFieldOffset, null);
-                        }
-                    };
-                    ReflectionDriver.illegalAccessLoggerEnabler = new Runnable() {
-                        @Override
-                        public void run() {
-                            ReflectionDriver.unsafe.putObjectVolatile(cls, loggerFieldOffset, illegalAccessLogger);
-                        }
-                    };
-                    ReflectionDriver.disableIllegalAccessLogger();
-                } catch (final Throwable e) {
+    /** Returns whether the value can be passed as a parameter of the type, unboxed and widened if primitive. */
+    private static boolean isAssignable(final Class<?> type, final Object value) {
+        if (!type.isPrimitive()) {
+            return value == null || type.isInstance(value);
+        } else if (value == null) {
+            return false;
+        }
+        final Class<?> valueType = value.getClass();
+        if (type == int.class) {
+            return valueType == Integer.class || valueType == Short.class || valueType == Byte.class
+                    || valueType == Character.class;
+        } else if (type == long.class) {
+            return valueType == Long.class || isAssignable(int.class, value);
+        } else if (type == double.class) {
+            return valueType == Double.class || isAssignable(float.class, value);
+        } else if (type == float.class) {
+            return valueType == Float.class || isAssignable(long.class, value);
+        } else if (type == short.class) {
+            return valueType == Short.class || valueType == Byte.class;
+        } else if (type == boolean.class) {
+            return valueType == Boolean.class;
+        } else if (type == byte.class) {
+            return valueType == Byte.class;
+        } else {
+            return valueType == Character.class;
+        }
+    }
 
-                }
-            }
+    private static void recordInitializationTime(final String step, final long startTime) {
+        final long time = System.nanoTime() - startTime;
+        synchronized (initializationTimes) {
+            initializationTimes.put(step, time);
+        }
+    }
 
+    /** The last failure signalled by a try method on each thread, turned into an exception only when requested. */
+    private static final class LastFailure {
+        private static final ThreadLocal<LastFailure> current = new ThreadLocal<LastFailure>() {
             @Override
-            void initConsulterRetriever() {
-                try (InputStream inputStream = ReflectionDriver.class.getClassLoader()
-                        .getResourceAsStream(this.getClass().getPackage().getName().replace(".", "/")
-                                + "/ConsulterRetrieverForJDK9.bwc")) {
-                    final Class<?> methodHandleWrapperClass = ReflectionDriver.defineAnonymousClass(Class.class,
-                            readAllBytes(inputStream), null);
-                    final MethodHandles.Lookup consulter = MethodHandles.lookup();
-                    final MethodHandle methodHandle = consulter.findStatic(MethodHandles.class, "privateLookupIn",
-                            MethodType.methodType(MethodHandles.Lookup.class, Class.class,
-                                    MethodHandles.Lookup.class));
-                    ReflectionDriver.unsafe
-                            .putObject(methodHandleWrapperClass,
-                                    ReflectionDriver.unsafe.staticFieldOffset(
-                                            methodHandleWrapperClass.getDeclaredField("consulterRetriever")),
-                                    methodHandle);
-                    ReflectionDriver.consulterRetriever = (Function<Class<?>, MethodHandles.Lookup>) ReflectionDriver.unsafe
-                            .allocateInstance(methodHandleWrapperClass);
-                } catch (final Throwable exc) {
-                    logger.log(Level.SEVERE, "Could not initialize consulter retriever");
-                    throw new RuntimeException(exc);
-                }
+            protected LastFailure initialValue() {
+                return new LastFailure();
+            }
+        };
+
+        String reason;
+        Object subject;
+        Object detail;
+        Throwable cause;
+
+        /** Records the failure and returns {@link ReflectionDriver#FAILURE}. */
+        static Object record(final String reason, final Object subject, final Object detail, final Throwable cause) {
+            final LastFailure lastFailure = current.get();
+            lastFailure.reason = reason;
+            lastFailure.subject = subject;
+            lastFailure.detail = detail;
+            lastFailure.cause = cause;
+            return FAILURE;
+        }
 
-            }
+        /** Records the failure and returns the given result. */
+        static Object record(final String reason, final Object subject, final Object detail, final Throwable cause,
+                final Object result) {
+            record(reason, subject, detail, cause);
+            return result;
+        }
 
-            @Override
-            void initAccessibleSetter() {
-                try (InputStream inputStream = ReflectionDriver.class.getClassLoader()
-                        .getResourceAsStream(this.getClass().getPackage().getName().replace(".", "/")
-                                + "/AccessibleSetterInvokerForJDK9.bwc");) {
-                    final Class<?> methodHandleWrapperClass = ReflectionDriver
-                            .defineAnonymousClass(AccessibleObject.class, readAllBytes(inputStream), null);
-                    ReflectionDriver.unsafe.putObject(methodHandleWrapperClass,
-                            ReflectionDriver.unsafe.staticFieldOffset(
-                                    methodHandleWrapperClass.getDeclaredField("methodHandleRetriever")),
-                            ReflectionDriver.getConsulter(methodHandleWrapperClass));
-                    ReflectionDriver.accessibleSetter = (BiConsumer<AccessibleObject, Boolean>) ReflectionDriver.unsafe
-                            .allocateInstance(methodHandleWrapperClass);
-                } catch (final Throwable exc) {
-                    logger.log(Level.SEVERE, "Could not initialize accessible setter");
-                    throw new RuntimeException(exc);
-                }
-            }
+        static ReflectionDriverException get() {
+            final LastFailure lastFailure = current.get();
+            if (lastFailure.reason == null) {
+                return null;
+            }
+            final ReflectionDriverException failure = new ReflectionDriverException(lastFailure.reason + " "
+                    + lastFailure.subject + (lastFailure.detail != null ? ": " + lastFailure.detail : ""),
+                    lastFailure.cause);
+            lastFailure.reason = null;
+            lastFailure.subject = null;
+            lastFailure.detail = null;
+            lastFailure.cause = null;
+            return failure;
+        }
+    }
 
-            @Override
-            void initConstructorInvoker() {
-                try {
-                    final Class<?> nativeAccessorImplClass = Class
-                            .forName("jdk.internal.reflect.NativeConstructorAccessorImpl");
-                    final Method method = nativeAccessorImplClass.getDeclaredMethod("newInstance0",
-                            Constructor.class, Object[].class);
-                    final MethodHandles.Lookup consulter = ReflectionDriver.getConsulter(nativeAccessorImplClass);
-                    ReflectionDriver.constructorInvoker = consulter.unreflect(method);
-                } catch (final Throwable exc) {
-                    logger.log(Level.SEVERE, "Could not initialize constructor invoker");
-                    throw new RuntimeException(exc);
+    private static class ConsulterRetrieverHolder {
+        static final ClassCache<Lookup> consulters;
+
+        static {
+            final long startTime = System.nanoTime();
+            initializer.initConsulterRetriever();
+            // Lookups only become cacheable once the final, deep retriever is in place
+            consulters = new ClassCache<Lookup>() {
+                @Override
+                Lookup compute(final Class<?> cls) {
+                    return consulterRetriever.apply(cls);
                 }
-            }
+            };
+            recordInitializationTime("consulterRetriever", startTime);
+        }
 
-            @Override
-            void initMethodInvoker() {
-                try {
-                    final Class<?> nativeMethodAccessorImplClass = Class
-                            .forName("jdk.internal.reflect.NativeMethodAccessorImpl");
-                    final Method invoker = nativeMethodAccessorImplClass.getDeclaredMethod("invoke0", Method.class,
-                            Object.class, Object[].class);
-                    final MethodHandles.Lookup consulter = ReflectionDriver
-                            .getConsulter(nativeMethodAccessorImplClass);
-                    ReflectionDriver.methodInvoker = consulter.unreflect(invoker);
-                } catch (final Throwable exc) {
-                    logger.log(Level.SEVERE, "Could not initialize method invoker");
-                    throw new RuntimeException(exc);
-                }
-            }
+        static void ensureInitialized() {
+            // Initialization is performed once by the static initializer
+        }
+    }
 
-            @Override
-            void initSpecificElements() {
-                try {
-                    final MethodHandles.Lookup classLoaderConsulter = ReflectionDriver.consulterRetriever
-                            .apply(ClassLoader.class);
-                    final MethodType methodType = MethodType.methodType(Package.class, String.class);
-                    final MethodHandle methodHandle = classLoaderConsulter.findSpecial(ClassLoader.class,
-                            "getDefinedPackage", methodType, ClassLoader.class);
-                    ReflectionDriver.packageRetriever = new TriFunction<ClassLoader, Object, String, Package>() {
-                        @Override
-                        public Package apply(final ClassLoader classLoader, final Object object,
-                                final String packageName) {
-                            try {
-                                return (Package) methodHandle.invokeExact(classLoader, packageName);
-                            } catch (final Throwable exc) {
-                                throw new RuntimeException(exc);
-                            }
-                        }
-                    };
-                } catch (final Throwable exc) {
-                    logger.log(Level.SEVERE, "Could not initialize package retriever");
-                    throw new RuntimeException(exc);
-                }
-                try {
-                    ReflectionDriver.builtinClassLoaderClass = Class
-                            .forName("jdk.internal.loader.BuiltinClassLoader");
-                } catch (final Throwable exc) {
-                    logger.log(Level.SEVERE, "Could not initialize builtin class loader class");
-                    throw new RuntimeException(exc);
-                }
-                try (InputStream inputStream = ReflectionDriver.class.getClassLoader()
-                        .getResourceAsStream(this.getClass().getPackage().getName().replace('.', '/')
-                                + "/ClassLoaderDelegateForJDK9.bwc")) {
-                    ReflectionDriver.classLoaderDelegateClass = ReflectionDriver.defineAnonymousClass(
-                            ReflectionDriver.builtinClassLoaderClass, readAllBytes(inputStream), null);
-                } catch (final Throwable exc) {
-                    logger.log(Level.SEVERE, "Could not initialize class loader delegate class");
-                    throw new RuntimeException(exc);
-                }
-                try {
-                    initDeepConsulterRetriever();
-                } catch (final Throwable exc) {
-                    logger.log(Level.INFO, "Could not initialize deep consulter retriever");
-                    throw new RuntimeException(exc);
-                }
-            }
+    private static class MembersRetrieversHolder {
+        static {
+            final long startTime = System.nanoTime();
+            initializer.initMembersRetrievers();
+            recordInitializationTime("membersRetrievers", startTime);
+        }
 
-            void initDeepConsulterRetriever() throws Throwable {
-                final Constructor<MethodHandles.Lookup> lookupCtor = MethodHandles.Lookup.class
-                        .getDeclaredConstructor(Class.class, int.class);
-                ReflectionDriver.setAccessible(lookupCtor, true);
-                final Field fullPowerModeConstant = MethodHandles.Lookup.class.getDeclaredField("FULL_POWER_MODES");
-                ReflectionDriver.setAccessible(fullPowerModeConstant, true);
-                final int fullPowerModeConstantValue = fullPowerModeConstant.getInt(null);
-                final MethodHandle methodHandle = lookupCtor
-                        .newInstance(MethodHandles.Lookup.class, fullPowerModeConstantValue)
-                        .findConstructor(MethodHandles.Lookup.class,
-                                MethodType.methodType(void.class, Class.class, int.class));
-                ReflectionDriver.consulterRetriever = new Function<Class<?>, Lookup>() {
-                    @Override
-                    public Lookup apply(final Class<?> cls) {
-                        try {
-                            return (MethodHandles.Lookup) methodHandle.invoke(cls, fullPowerModeConstantValue);
-                        } catch (final Throwable exc) {
-                            throw new RuntimeException(exc);
-                        }
-                    }
-                };
-            }
+        static void ensureInitialized() {
+            // Initialization is performed once by the static initializer
         }
+    }
 
-        private static class ForJava14 extends ForJava9 {
-            @Override
-            void initDeepConsulterRetriever() throws Throwable {
-                final Constructor<?> lookupCtor = MethodHandles.Lookup.class.getDeclaredConstructor(Class.class,
-                        Class.class, int.class);
-                ReflectionDriver.setAccessible(lookupCtor, true);
-                final Field fullPowerModeConstant = MethodHandles.Lookup.class.getDeclaredField("FULL_POWER_MODES");
-                ReflectionDriver.setAccessible(fullPowerModeConstant, true);
-                final int fullPowerModeConstantValue = fullPowerModeConstant.getInt(null);
-                final MethodHandle methodHandle = ((MethodHandles.Lookup) lookupCtor
-                        .newInstance(MethodHandles.Lookup.class, null, fullPowerModeConstantValue)).findConstructor(
-                                MethodHandles.Lookup.class,
-                                MethodType.methodType(void.class, Class.class, Class.class, int.class));
-                ReflectionDriver.consulterRetriever = new Function<Class<?>, Lookup>() {
-                    @Override
-                    public Lookup apply(final Class<?> cls) {
-                        try {
-                            return (MethodHandles.Lookup) methodHandle.invoke(cls, null,
-                                    fullPowerModeConstantValue);
-                        } catch (final Throwable exc) {
-                            throw new RuntimeException(exc);
-                        }
-                    }
-                };
-            }
+    private static class AccessibleSetterHolder {
+        static {
+            final long startTime = System.nanoTime();
+            initializer.initAccessibleSetter();
+            recordInitializationTime("accessibleSetter", startTime);
+        }
+
+        static void ensureInitialized() {
+            // Initialization is performed once by the static initializer
+        }
+    }
+
+    private static class PackageRetrieverHolder {
+        static {
+            final long startTime = System.nanoTime();
+            initializer.initPackageRetriever();
+            recordInitializationTime("packageRetriever", startTime);
+        }
+
+        static void ensureInitialized() {
+            // Initialization is performed once by the static initializer
+        }
+    }
+
+    private static class ClassLoaderClassesHolder {
+        static {
+            final long startTime = System.nanoTime();
+            initializer.initClassLoaderClasses();
+            recordInitializationTime("classLoaderClasses", startTime);
+        }
+
+        static void ensureInitialized() {
+            // Initialization is performed once by the static initializer
+        }
+    }
+
+    private static class LoadedClassesVectorFieldHolder {
+        static {
+            final long startTime = System.nanoTime();
+            initializer.initClassesVectorField();
+            recordInitializationTime("loadedClassesVectorField", startTime);
+        }
+
+        static void ensureInitialized() {
+            // Initialization is performed once by the static initializer
+        }
+    }
+
+    private static class LoadedPackagesMapFieldHolder {
+        static {
+            final long startTime = System.nanoTime();
+            initializer.initPackagesMapField();
+            recordInitializationTime("loadedPackagesMapField", startTime);
+        }
+
+        static void ensureInitialized() {
+            // Initialization is performed once by the static initializer
         }
     }
 }
@@ -0,0 +1,467 @@
+/*
+ * This file is derived from Burningwave Core.
+ *
+ * Author: Roberto Gentili
+ * 
+ * Hosted at: https://github.com/burningwave/core
+ * 
+ * Modified by: Luke Hutchison
+ *
+ * Modifications hosted at:  https://github.com/lukehutch/burningwave-reflection
+ *
+ * --
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Roberto Gentili
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT
+ * LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO
+ * EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package bwr;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.Buffer;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import sun.misc.Unsafe;
+
+/**
+ * Packed layout of the primitive instance fields of a class as fixed-size records, for copying objects to and
+ * from direct buffers, memory-mapped files or heap buffers without per-field serialization. Fields are laid out by
+ * decreasing size, so that every field is naturally aligned, and records are padded to the size of their largest
+ * field. Values are stored in native byte order, and reference fields are not stored.
+ *
+ * <p>
+ * A {@link View} reads and writes the fields of the records in place, without materializing objects.
+ */
+@SuppressWarnings("unchecked")
+public final class StructLayout<T> {
+    private static final Unsafe unsafe = ReflectionDriver.unsafe;
+    private static final long bufferAddressOffset;
+
+    static {
+        try {
+            bufferAddressOffset = unsafe.objectFieldOffset(ReflectionDriver.getDeclaredField(Buffer.class,
+                    "address"));
+        } catch (final Throwable exc) {
+            throw new RuntimeException(exc);
+        }
+    }
+
+    private static final ClassCache<StructLayout<?>> layouts = new ClassCache<StructLayout<?>>() {
+        @Override
+        StructLayout<?> compute(final Class<?> cls) {
+            return new StructLayout<>(cls);
+        }
+    };
+
+    private final Class<T> cls;
+    private final Field[] fields;
+    private final long[] fieldOffsets;
+    private final int[] structOffsets;
+    private final int stride;
+
+    // Object and struct offsets grouped by field size, for copying without looking at field types
+    private final long[][] objectOffsetsBySize = new long[4][];
+    private final int[][] structOffsetsBySize = new int[4][];
+
+    private StructLayout(final Class<T> cls) {
+        this.cls = cls;
+        final List<Field> fields = new ArrayList<>();
+        collectFields(cls, fields);
+        this.fields = fields.toArray(new Field[fields.size()]);
+        this.fieldOffsets = new long[this.fields.length];
+        this.structOffsets = new int[this.fields.length];
+        int offset = 0;
+        int alignment = 1;
+        for (int sizeClass = 3; sizeClass >= 0; sizeClass--) {
+            final int size = 1 << sizeClass;
+            final List<Integer> indexes = new ArrayList<>();
+            for (int i = 0; i < this.fields.length; i++) {
+                if (FieldBatch.sizeOf(this.fields[i].getType()) == size) {
+                    indexes.add(i);
+                }
+            }
+            objectOffsetsBySize[sizeClass] = new long[indexes.size()];
+            structOffsetsBySize[sizeClass] = new int[indexes.size()];
+            for (int j = 0; j < indexes.size(); j++) {
+                final int i = indexes.get(j);
+                try {
+                    fieldOffsets[i] = unsafe.objectFieldOffset(this.fields[i]);
+                } catch (final UnsupportedOperationException exc) {
+                    throw new IllegalArgumentException("Fields of class " + cls.getName()
+                            + " cannot be addressed by offset", exc);
+                }
+                structOffsets[i] = offset;
+                objectOffsetsBySize[sizeClass][j] = fieldOffsets[i];
+                structOffsetsBySize[sizeClass][j] = offset;
+                offset += size;
+                alignment = Math.max(alignment, size);
+            }
+        }
+        if (offset == 0) {
+            throw new IllegalArgumentException("Class " + cls.getName() + " has no primitive instance fields");
+        }
+        this.stride = (offset + alignment - 1) & -alignment;
+    }
+
+    private static void collectFields(final Class<?> cls, final List<Field> fields) {
+        if (cls.getSuperclass() != null) {
+            collectFields(cls.getSuperclass(), fields);
+        }
+        for (final Field field : ReflectionDriver.getDeclaredFields(cls)) {
+            if (!Modifier.isStatic(field.getModifiers()) && field.getType().isPrimitive()) {
+                fields.add(field);
+            }
+        }
+    }
+
+    /**
+     * Returns the layout of the class, computing it on first use.
+     *
+     * @throws IllegalArgumentException
+     *             if the class has no primitive instance fields
+     */
+    public static <T> StructLayout<T> of(final Class<T> cls) {
+        return (StructLayout<T>) layouts.get(cls);
+    }
+
+    /** Returns the number of bytes between the start of consecutive records. */
+    public int getStride() {
+        return stride;
+    }
+
+    /** Returns the number of stored fields. Fields are indexed in declaration order, superclass fields first. */
+    public int getFieldCount() {
+        return fields.length;
+    }
+
+    public Field getField(final int index) {
+        return fields[index];
+    }
+
+    /** Returns the offset of the field within a record. */
+    public int getFieldOffset(final int index) {
+        return structOffsets[index];
+    }
+
+    /** Returns the index of the stored field with the given name, or -1 if there is none. */
+    public int indexOf(final String name) {
+        for (int i = fields.length - 1; i >= 0; i--) {
+            if (fields[i].getName().equals(name)) {
+                // The last match is the one declared by the most specific class
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /** Maps a region of the file large enough for the given number of records. */
+    public MappedByteBuffer map(final FileChannel channel, final FileChannel.MapMode mode, final long position,
+            final int count) throws IOException {
+        return channel.map(mode, position, (long) count * stride);
+    }
+
+    /**
+     * Copies the fields of the objects into consecutive records starting at the position of the buffer, and
+     * advances the position past the last record.
+     */
+    public void write(final T[] objects, final ByteBuffer buffer) {
+        final int start = checkRemaining(buffer, objects.length, true);
+        final Object base = base(buffer);
+        long address = address(buffer, base) + start;
+        for (final T object : objects) {
+            write(cls.cast(object), base, address);
+            address += stride;
+        }
+        ((Buffer) buffer).position(start + objects.length * stride);
+    }
+
+    public void write(final List<? extends T> objects, final ByteBuffer buffer) {
+        write((T[]) objects.toArray(), buffer);
+    }
+
+    /**
+     * Copies consecutive records starting at the position of the buffer into the fields of the objects, and
+     * advances the position past the last record. Reference fields of the objects are left untouched.
+     */
+    public void read(final ByteBuffer buffer, final T[] objects) {
+        final int start = checkRemaining(buffer, objects.length, false);
+        final Object base = base(buffer);
+        long address = address(buffer, base) + start;
+        for (final T object : objects) {
+            read(base, address, cls.cast(object));
+            address += stride;
+        }
+        ((Buffer) buffer).position(start + objects.length * stride);
+    }
+
+    /**
+     * Reads the given number of records into newly allocated objects, without running any constructor, and
+     * advances the position of the buffer past the last record.
+     */
+    public List<T> read(final ByteBuffer buffer, final int count) {
+        final int start = checkRemaining(buffer, count, false);
+        final Object base = base(buffer);
+        long address = address(buffer, base) + start;
+        final List<T> objects = new ArrayList<>(count);
+        try {
+            for (int i = 0; i < count; i++) {
+                final T object = (T) unsafe.allocateInstance(cls);
+                read(base, address, object);
+                objects.add(object);
+                address += stride;
+            }
+        } catch (final InstantiationException exc) {
+            throw new RuntimeException(exc);
+        }
+        ((Buffer) buffer).position(start + count * stride);
+        return objects;
+    }
+
+    /**
+     * Returns a view over the records between the position and the limit of the buffer, positioned on the first
+     * record.
+     *
+     * @throws IllegalArgumentException
+     *             if the buffer does not hold at least one record
+     */
+    public View view(final ByteBuffer buffer) {
+        return new View(buffer);
+    }
+
+    private void write(final Object object, final Object base, final long address) {
+        final long[] longOffsets = objectOffsetsBySize[3];
+        final int[] longStructOffsets = structOffsetsBySize[3];
+        for (int i = 0; i < longOffsets.length; i++) {
+            unsafe.putLong(base, address + longStructOffsets[i], unsafe.getLong(object, longOffsets[i]));
+        }
+        final long[] intOffsets = objectOffsetsBySize[2];
+        final int[] intStructOffsets = structOffsetsBySize[2];
+        for (int i = 0; i < intOffsets.length; i++) {
+            unsafe.putInt(base, address + intStructOffsets[i], unsafe.getInt(object, intOffsets[i]));
+        }
+        final long[] shortOffsets = objectOffsetsBySize[1];
+        final int[] shortStructOffsets = structOffsetsBySize[1];
+        for (int i = 0; i < shortOffsets.length; i++) {
+            unsafe.putShort(base, address + shortStructOffsets[i], unsafe.getShort(object, shortOffsets[i]));
+        }
+        final long[] byteOffsets = objectOffsetsBySize[0];
+        final int[] byteStructOffsets = structOffsetsBySize[0];
+        for (int i = 0; i < byteOffsets.length; i++) {
+            unsafe.putByte(base, address + byteStructOffsets[i], unsafe.getByte(object, byteOffsets[i]));
+        }
+    }
+
+    private void read(final Object base, final long address, final Object object) {
+        final long[] longOffsets = objectOffsetsBySize[3];
+        final int[] longStructOffsets = structOffsetsBySize[3];
+        for (int i = 0; i < longOffsets.length; i++) {
+            unsafe.putLong(object, longOffsets[i], unsafe.getLong(base, address + longStructOffsets[i]));
+        }
+        final long[] intOffsets = objectOffsetsBySize[2];
+        final int[] intStructOffsets = structOffsetsBySize[2];
+        for (int i = 0; i < intOffsets.length; i++) {
+            unsafe.putInt(object, intOffsets[i], unsafe.getInt(base, address + intStructOffsets[i]));
+        }
+        final long[] shortOffsets = objectOffsetsBySize[1];
+        final int[] shortStructOffsets = structOffsetsBySize[1];
+        for (int i = 0; i < shortOffsets.length; i++) {
+            unsafe.putShort(object, shortOffsets[i], unsafe.getShort(base, address + shortStructOffsets[i]));
+        }
+        final long[] byteOffsets = objectOffsetsBySize[0];
+        final int[] byteStructOffsets = structOffsetsBySize[0];
+        for (int i = 0; i < byteOffsets.length; i++) {
+            unsafe.putByte(object, byteOffsets[i], unsafe.getByte(base, address + byteStructOffsets[i]));
+        }
+    }
+
+    private int checkRemaining(final ByteBuffer buffer, final int count, final boolean writing) {
+        if ((long) count * stride > buffer.remaining()) {
+            throw writing ? new BufferOverflowException() : new BufferUnderflowException();
+        }
+        if (writing && buffer.isReadOnly()) {
+            throw new ReadOnlyBufferException();
+        }
+        return buffer.position();
+    }
+
+    /** Returns the array backing a heap buffer, or null for a direct buffer. */
+    private static Object base(final ByteBuffer buffer) {
+        if (buffer.isDirect()) {
+            return null;
+        }
+        if (!buffer.hasArray()) {
+            throw new IllegalArgumentException("Read-only heap buffers are not supported");
+        }
+        return buffer.array();
+    }
+
+    /** Returns the address of the start of the buffer, relative to its base. */
+    private static long address(final ByteBuffer buffer, final Object base) {
+        if (base == null) {
+            return unsafe.getLong(buffer, bufferAddressOffset);
+        }
+        return Unsafe.ARRAY_BYTE_BASE_OFFSET + buffer.arrayOffset();
+    }
+
+    /**
+     * Flyweight over the records of a buffer. The view is positioned on one record at a time, and its accessors
+     * read and write the fields of that record directly in the memory of the buffer.
+     */
+    public final class View {
+        private final ByteBuffer buffer;
+        private final boolean readOnly;
+        private final Object base;
+        private final long start;
+        private final int count;
+        private long address;
+
+        View(final ByteBuffer buffer) {
+            this.buffer = buffer;
+            this.readOnly = buffer.isReadOnly();
+            this.base = base(buffer);
+            this.start = address(buffer, base) + buffer.position();
+            this.count = buffer.remaining() / stride;
+            if (count == 0) {
+                // The accessors do not check bounds, so the view must always be on a whole record
+                throw new IllegalArgumentException("Buffer of " + buffer.remaining()
+                        + " bytes does not hold a record of " + stride + " bytes");
+            }
+            this.address = start;
+        }
+
+        /** Returns the number of records in the view. */
+        public int count() {
+            return count;
+        }
+
+        /** Positions the view on the record with the given index. */
+        public View moveTo(final int index) {
+            if (index < 0 || index >= count) {
+                throw new IndexOutOfBoundsException("Record " + index + " out of " + count);
+            }
+            address = start + (long) index * stride;
+            return this;
+        }
+
+        /** Copies the current record into the fields of the object. */
+        public void readInto(final T object) {
+            read(base, address, cls.cast(object));
+        }
+
+        /** Copies the fields of the object into the current record. */
+        public void writeFrom(final T object) {
+            checkWritable();
+            write(cls.cast(object), base, address);
+        }
+
+        public boolean getBoolean(final int field) {
+            return unsafe.getBoolean(base, address + offsetOf(field, boolean.class));
+        }
+
+        public void setBoolean(final int field, final boolean value) {
+            checkWritable();
+            unsafe.putBoolean(base, address + offsetOf(field, boolean.class), value);
+        }
+
+        public byte getByte(final int field) {
+            return unsafe.getByte(base, address + offsetOf(field, byte.class));
+        }
+
+        public void setByte(final int field, final byte value) {
+            checkWritable();
+            unsafe.putByte(base, address + offsetOf(field, byte.class), value);
+        }
+
+        public char getChar(final int field) {
+            return unsafe.getChar(base, address + offsetOf(field, char.class));
+        }
+
+        public void setChar(final int field, final char value) {
+            checkWritable();
+            unsafe.putChar(base, address + offsetOf(field, char.class), value);
+        }
+
+        public short getShort(final int field) {
+            return unsafe.getShort(base, address + offsetOf(field, short.class));
+        }
+
+        public void setShort(final int field, final short value) {
+            checkWritable();
+            unsafe.putShort(base, address + offsetOf(field, short.class), value);
+        }
+
+        public int getInt(final int field) {
+            return unsafe.getInt(base, address + offsetOf(field, int.class));
+        }
+
+        public void setInt(final int field, final int value) {
+            checkWritable();
+            unsafe.putInt(base, address + offsetOf(field, int.class), value);
+        }
+
+        public long getLong(final int field) {
+            return unsafe.getLong(base, address + offsetOf(field, long.class));
+        }
+
+        public void setLong(final int field, final long value) {
+            checkWritable();
+            unsafe.putLong(base, address + offsetOf(field, long.class), value);
+        }
+
+        public float getFloat(final int field) {
+            return unsafe.getFloat(base, address + offsetOf(field, float.class));
+        }
+
+        public void setFloat(final int field, final float value) {
+            checkWritable();
+            unsafe.putFloat(base, address + offsetOf(field, float.class), value);
+        }
+
+        public double getDouble(final int field) {
+            return unsafe.getDouble(base, address + offsetOf(field, double.class));
+        }
+
+        public void setDouble(final int field, final double value) {
+            checkWritable();
+            unsafe.putDouble(base, address + offsetOf(field, double.class), value);
+        }
+
+        private void checkWritable() {
+            if (readOnly) {
+                throw new ReadOnlyBufferException();
+            }
+        }
+
+        private int offsetOf(final int field, final Class<?> type) {
+            if (fields[field].getType() != type) {
+                throw new IllegalArgumentException("Field " + fields[field].getName() + " of type "
+                        + fields[field].getType().getName() + " is not of type " + type.getName());
+            }
+            return structOffsets[field];
+        }
+    }
+}
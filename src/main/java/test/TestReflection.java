@@ -10,26 +10,19 @@ import bwr.ReflectionDriver;
 public class TestReflection {
 
     private static Field getField(final Class<?> cls, final String fieldName) {
-        for (Class<?> c = cls; c != null; c = c.getSuperclass()) {
-            for (final Field declaredField : ReflectionDriver.getDeclaredFields(c)) {
-                if (declaredField.getName().equals(fieldName)) {
-                    return declaredField;
-                }
-            }
+        final Field field = ReflectionDriver.findField(cls, fieldName);
+        if (field == null) {
+            throw new IllegalArgumentException("Field " + fieldName + " not found in class " + cls.getName());
         }
-        throw new IllegalArgumentException("Field " + fieldName + " not found in class " + cls.getName());
+        return field;
     }
 
     private static Method getMethod(final Class<?> cls, final String methodName, final Class<?>... paramTypes) {
-        for (Class<?> c = cls; c != null; c = c.getSuperclass()) {
-            for (final Method declaredMethod : ReflectionDriver.getDeclaredMethods(c)) {
-                if (declaredMethod.getName().equals(methodName)
-                        && Arrays.equals(declaredMethod.getParameterTypes(), paramTypes)) {
-                    return declaredMethod;
-                }
-            }
+        final Method method = ReflectionDriver.findMethod(cls, methodName, paramTypes);
+        if (method == null) {
+            throw new IllegalArgumentException("Method " + methodName + " not found in class " + cls.getName());
         }
-        throw new IllegalArgumentException("Method " + methodName + " not found in class " + cls.getName());
+        return method;
     }
 
     public static void main(final String[] args) {
@@ -0,0 +1,161 @@
+/*
+ * This file is derived from Burningwave Core.
+ *
+ * Author: Roberto Gentili
+ * 
+ * Hosted at: https://github.com/burningwave/core
+ * 
+ * Modified by: Luke Hutchison
+ *
+ * Modifications hosted at:  https://github.com/lukehutch/burningwave-reflection
+ *
+ * --
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Roberto Gentili
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT
+ * LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO
+ * EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package bwr;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodHandles.Lookup;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.logging.Level;
+
+/**
+ * Initializer for JDK 17+, where anonymous classes cannot be defined anymore. A trusted lookup is obtained by
+ * making the private constructor of {@link Lookup} accessible through the memory offset of the override flag of
+ * {@link AccessibleObject}, and replaces the .bwc helper classes. Anonymous classes are defined as hidden classes.
+ */
+class InitializerForJava17 extends InitializerForJava14 {
+    private static final int TRUSTED_MODES = -1;
+
+    private final Lookup trustedConsulter;
+
+    InitializerForJava17() {
+        try {
+            final Constructor<Lookup> lookupCtor = Lookup.class.getDeclaredConstructor(Class.class, Class.class,
+                    int.class);
+            ReflectionDriver.unsafe.putBoolean(lookupCtor, retrieveOverrideFlagOffset(), true);
+            trustedConsulter = lookupCtor.newInstance(Object.class, null, TRUSTED_MODES);
+        } catch (final Throwable exc) {
+            logger.log(Level.SEVERE, "Could not initialize trusted consulter");
+            throw new RuntimeException(exc);
+        }
+    }
+
+    /**
+     * Finds the offset of the override flag by comparing an accessible and a non-accessible copy of the same
+     * method. The flag is a field of {@link AccessibleObject}, the root of the hierarchy of {@link Method} apart
+     * from Object, so it is laid out right after the object header, and a Method is larger than the scanned range
+     * on all supported JVMs. The only byte that differs between the copies must follow setAccessible both ways,
+     * otherwise initialization fails instead of writing to a wrong offset.
+     */
+    private static long retrieveOverrideFlagOffset() throws NoSuchMethodException {
+        final Method method = InitializerForJava17.class.getDeclaredMethod("retrieveOverrideFlagOffset");
+        final Method accessibleMethod = InitializerForJava17.class.getDeclaredMethod("retrieveOverrideFlagOffset");
+        accessibleMethod.setAccessible(true);
+        long overrideFlagOffset = -1;
+        for (long offset = 8; offset < 64; offset++) {
+            if (ReflectionDriver.unsafe.getByte(method, offset) != ReflectionDriver.unsafe.getByte(accessibleMethod,
+                    offset)) {
+                if (overrideFlagOffset != -1) {
+                    throw new IllegalStateException("Ambiguous offset of override flag");
+                }
+                overrideFlagOffset = offset;
+            }
+        }
+        if (overrideFlagOffset == -1) {
+            throw new IllegalStateException("Could not find offset of override flag");
+        }
+        accessibleMethod.setAccessible(false);
+        final boolean cleared = ReflectionDriver.unsafe.getByte(accessibleMethod, overrideFlagOffset) == 0;
+        accessibleMethod.setAccessible(true);
+        if (!cleared || ReflectionDriver.unsafe.getByte(accessibleMethod, overrideFlagOffset) != 1
+                || ReflectionDriver.unsafe.getByte(method, overrideFlagOffset) != 0) {
+            throw new IllegalStateException("Offset " + overrideFlagOffset + " does not hold the override flag");
+        }
+        return overrideFlagOffset;
+    }
+
+    @Override
+    void initConsulterRetriever() {
+        try {
+            final int fullPowerModes = (int) trustedConsulter
+                    .findStaticGetter(Lookup.class, "FULL_POWER_MODES", int.class).invokeExact();
+            final MethodHandle methodHandle = trustedConsulter.findConstructor(Lookup.class,
+                    MethodType.methodType(void.class, Class.class, Class.class, int.class));
+            ReflectionDriver.consulterRetriever = new Function<Class<?>, Lookup>() {
+                @Override
+                public Lookup apply(final Class<?> cls) {
+                    try {
+                        return (Lookup) methodHandle.invokeExact(cls, (Class<?>) null, fullPowerModes);
+                    } catch (final Throwable exc) {
+                        throw new RuntimeException(exc);
+                    }
+                }
+            };
+        } catch (final Throwable exc) {
+            logger.log(Level.SEVERE, "Could not initialize consulter retriever");
+            throw new RuntimeException(exc);
+        }
+    }
+
+    @Override
+    void initAccessibleSetter() {
+        try {
+            // The result of setAccessible0 is dropped, so that the handle can be invoked exactly as a statement
+            final MethodHandle methodHandle = trustedConsulter.findVirtual(AccessibleObject.class,
+                    "setAccessible0", MethodType.methodType(boolean.class, boolean.class))
+                    .asType(MethodType.methodType(void.class, AccessibleObject.class, boolean.class));
+            ReflectionDriver.accessibleSetter = new BiConsumer<AccessibleObject, Boolean>() {
+                @Override
+                public void accept(final AccessibleObject accessibleObject, final Boolean flag) {
+                    try {
+                        methodHandle.invokeExact(accessibleObject, flag.booleanValue());
+                    } catch (final Throwable exc) {
+                        throw new RuntimeException(exc);
+                    }
+                }
+            };
+        } catch (final Throwable exc) {
+            logger.log(Level.SEVERE, "Could not initialize accessible setter");
+            throw new RuntimeException(exc);
+        }
+    }
+
+    @Override
+    Class<?> defineAnonymousClass(final Class<?> outerClass, final byte[] byteCode,
+            final Object[] constantPoolPatches) {
+        if (constantPoolPatches != null) {
+            throw new UnsupportedOperationException("Constant pool patches are not supported by hidden classes");
+        }
+        try {
+            return ReflectionDriver.getConsulter(outerClass)
+                    .defineHiddenClass(byteCode, true, MethodHandles.Lookup.ClassOption.NESTMATE).lookupClass();
+        } catch (final IllegalAccessException exc) {
+            throw new RuntimeException(exc);
+        }
+    }
+}